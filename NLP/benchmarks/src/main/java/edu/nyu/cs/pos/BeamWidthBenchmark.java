@@ -0,0 +1,83 @@
+package edu.nyu.cs.pos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.Sentence;
+
+/**
+ * Accuracy against throughput of beam-pruned decoding, over a sweep of beam
+ * widths: time to tag a sentence of the development set with the tagger
+ * {@link HiddenMarkovModel} trains, keeping at most that many tags per word,
+ * 0 for the full lattice. The accuracy of each width on
+ * <code>development.pos</code> is printed at the end of its trial. Typical
+ * usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar pos.BeamWidthBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ * @see DecoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeamWidthBenchmark {
+
+	private static final String TRAINING_FILE = "test/edu/nyu/cs/pos/training.pos";
+
+	@Param( { "0", "10", "5", "3", "2", "1" })
+	public int beamWidth;
+
+	private Decoder instance;
+
+	private List<Sentence> sentences;
+
+	// sentences with correct tags
+	private List<Sentence> key;
+
+	// next sentence to decode
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws IOException {
+		sentences = TaggingAccuracy.read(TaggingAccuracy.TEST_FILE);
+		key = TaggingAccuracy.read(TaggingAccuracy.KEY_FILE);
+		HiddenMarkovModel model = new HiddenMarkovModel();
+		model.train(TRAINING_FILE);
+		model.setBeamWidth(beamWidth);
+		instance = model.getDecoder();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println(TaggingAccuracy.report("beam=" + beamWidth,
+				instance, sentences, key));
+	}
+
+	@Benchmark
+	public Sentence decode() {
+		Sentence sentence = sentences.get(next);
+		next = (next + 1) % sentences.size();
+		return instance.decode(sentence);
+	}
+}
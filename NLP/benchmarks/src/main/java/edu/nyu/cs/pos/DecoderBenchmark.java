@@ -0,0 +1,116 @@
+package edu.nyu.cs.pos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.MappedFileReader;
+import edu.nyu.cs.pub.Matrix;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.TagDictionary;
+
+/**
+ * Time to tag a sentence of the development set with the HMM tagger, trained
+ * on the training set: {@link Viterbi} over the probability matrices,
+ * {@link CompiledViterbi} over the compiled model as {@link HiddenMarkovModel}
+ * decodes, in full and with a beam, {@link ForwardBackward}, and
+ * {@link TrigramViterbi} as {@link SecondOrderHiddenMarkovModel} decodes, in
+ * full and with its default beam of tag pairs. Sentences are decoded in turn,
+ * one per operation. At the end of each trial, the accuracy of the decoder
+ * against <code>development.pos</code> is printed, see {@link TaggingAccuracy}.
+ * Typical usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar pos.DecoderBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ * @see BeamWidthBenchmark
+ * @see MinPlusKernelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+	private static final String TRAINING_FILE = "test/edu/nyu/cs/pos/training.pos";
+
+	// tags kept per word by the beam decoder, see BeamWidthBenchmark
+	private static final int BEAM_WIDTH = 3;
+
+	@Param( { "viterbi", "compiled", "beam", "forward-backward", "trigram",
+			"trigram-beam" })
+	public String decoder;
+
+	private Decoder instance;
+
+	private List<Sentence> sentences;
+
+	// sentences with correct tags
+	private List<Sentence> key;
+
+	// next sentence to decode
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws IOException {
+		sentences = TaggingAccuracy.read(TaggingAccuracy.TEST_FILE);
+		key = TaggingAccuracy.read(TaggingAccuracy.KEY_FILE);
+		if (decoder.startsWith("trigram")) {
+			SecondOrderHiddenMarkovModel model = new SecondOrderHiddenMarkovModel();
+			model.train(TRAINING_FILE);
+			if (!"trigram-beam".equals(decoder)) {
+				model.setBeamWidth(0);
+			}
+			instance = model.getDecoder();
+			return;
+		}
+		Corpus corpus = new Corpus(TRAINING_FILE, MappedFileReader.instance);
+		Matrix prior = new TransitionMatrix(corpus);
+		Matrix likelihood = new EmissionMatrix(corpus);
+		if ("viterbi".equals(decoder)) {
+			instance = new Viterbi(prior, likelihood);
+			return;
+		}
+		CompiledModel model = new CompiledModel(prior, likelihood,
+				new TagDictionary(corpus));
+		if ("forward-backward".equals(decoder)) {
+			instance = new ForwardBackward(model, true);
+		} else {
+			int beamWidth = "beam".equals(decoder) ? BEAM_WIDTH : 0;
+			instance = new CompiledViterbi(model, beamWidth,
+					Double.POSITIVE_INFINITY, true);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println(TaggingAccuracy.report(decoder, instance,
+				sentences, key));
+	}
+
+	@Benchmark
+	public Sentence decode() {
+		Sentence sentence = sentences.get(next);
+		next = (next + 1) % sentences.size();
+		return instance.decode(sentence);
+	}
+}
@@ -0,0 +1,123 @@
+package edu.nyu.cs.pos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.MappedFileReader;
+import edu.nyu.cs.pub.Matrix;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.TagDictionary;
+
+/**
+ * Scalar against selected {@link MinPlusKernel}: the bare min-plus product on
+ * random costs over as many states as the HMM tagger has tags, and decoding a
+ * sentence of the development set on the full lattice, where every position
+ * is a product. The selected kernel is the Vector API one only if the
+ * <code>vector</code> source root is built onto the class path and the JVM
+ * runs with the incubator module; otherwise both are the scalar loop. Typical
+ * usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar pos.MinPlusKernelBenchmark
+ *     -jvmArgsAppend "--add-modules jdk.incubator.vector"
+ * </pre>
+ *
+ * @author Daniel Wu
+ * @see DecoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinPlusKernelBenchmark {
+
+	private static final String TRAINING_FILE = "test/edu/nyu/cs/pos/training.pos";
+
+	@Param( { "scalar", "selected" })
+	public String kernel;
+
+	private MinPlusKernel instance;
+
+	private CompiledViterbi decoder;
+
+	private List<Sentence> sentences;
+
+	// next sentence to decode
+	private int next = 0;
+
+	// number of states of a product
+	private int N;
+
+	// two columns of costs, products alternate between them
+	private double[] costs;
+
+	private double[] transition;
+
+	private int[] states;
+
+	private int[] arg;
+
+	// column the next product reads
+	private int from = 0;
+
+	@Setup
+	public void setUp() throws IOException {
+		instance = "scalar".equals(kernel) ? MinPlusKernel.scalar()
+				: MinPlusKernel.instance;
+		Corpus corpus = new Corpus(TRAINING_FILE, MappedFileReader.instance);
+		Matrix prior = new TransitionMatrix(corpus);
+		Matrix likelihood = new EmissionMatrix(corpus);
+		CompiledModel model = new CompiledModel(prior, likelihood,
+				new TagDictionary(corpus));
+		decoder = new CompiledViterbi(model);
+		decoder.setKernel(instance);
+		sentences = TaggingAccuracy.read(TaggingAccuracy.TEST_FILE);
+		// random costs
+		N = model.numberOfTags();
+		Random random = new Random(42);
+		costs = new double[2 * N];
+		transition = new double[N * N];
+		states = new int[N];
+		arg = new int[2 * N];
+		for (int s = 0; s < N; s++) {
+			costs[s] = 1 + random.nextDouble() * 10;
+			states[s] = s;
+		}
+		for (int i = 0; i < transition.length; i++) {
+			transition[i] = random.nextDouble() * 5;
+		}
+	}
+
+	@Benchmark
+	public double[] product() {
+		// alternate columns, so each product reads the last one
+		instance.minPlus(costs, from, states, N, transition, N, costs, arg, N
+				- from);
+		from = N - from;
+		return costs;
+	}
+
+	@Benchmark
+	public Sentence decode() {
+		Sentence sentence = sentences.get(next);
+		next = (next + 1) % sentences.size();
+		return decoder.decode(sentence);
+	}
+}
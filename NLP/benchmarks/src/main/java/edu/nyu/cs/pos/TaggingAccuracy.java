@@ -0,0 +1,86 @@
+package edu.nyu.cs.pos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.MappedFileReader;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+
+/**
+ * Accuracy of a POS decoder on the development set, scored against the key
+ * file, for benchmarks to report along with their timings. Throughput in
+ * tokens per second is the mean length of a sentence over the average time
+ * JMH reports for decoding one.
+ *
+ * @author Daniel Wu
+ *
+ */
+final class TaggingAccuracy {
+
+	static final String TEST_FILE = "test/edu/nyu/cs/pos/development.text";
+
+	static final String KEY_FILE = "test/edu/nyu/cs/pos/development.pos";
+
+	private TaggingAccuracy() {
+	}
+
+	/**
+	 * @param filePath
+	 *            tagged or untagged corpus
+	 * @return sentences of the corpus that have tokens, in order
+	 * @throws IOException
+	 *             if reading corpus fails
+	 */
+	static List<Sentence> read(String filePath) throws IOException {
+		List<Sentence> res = new ArrayList<Sentence>();
+		for (Sentence sentence : new Corpus(filePath, MappedFileReader.instance)) {
+			if (!sentence.isEmpty()) {
+				res.add(sentence);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Decode a copy of every test sentence and score its tags against the key
+	 *
+	 * @param name
+	 *            name of decoding option
+	 * @param decoder
+	 *            decoder to score
+	 * @param test
+	 *            untagged sentences
+	 * @param key
+	 *            same sentences with correct tags
+	 * @return line of accuracy and mean sentence length
+	 */
+	static String report(String name, Decoder decoder, List<Sentence> test,
+			List<Sentence> key) {
+		if (test.size() != key.size()) {
+			throw new IllegalArgumentException("Key has " + key.size()
+					+ " sentences, test has " + test.size() + "\n");
+		}
+		int correct = 0;
+		int total = 0;
+		for (int i = 0; i < test.size(); i++) {
+			// tagged in place, some decoders return tokens in other order
+			Sentence sentence = test.get(i).clone();
+			decoder.decode(sentence);
+			List<Token> sysTokens = sentence.getTokens();
+			List<Token> keyTokens = key.get(i).getTokens();
+			for (int j = 0; j < sysTokens.size() && j < keyTokens.size(); j++) {
+				if (keyTokens.get(j).getPosTag().equals(
+						sysTokens.get(j).getPosTag())) {
+					correct++;
+				}
+				total++;
+			}
+		}
+		return String.format("%s: accuracy %.4f on %d tokens, %.1f per sentence",
+				name, 1.0 * correct / total, total, 1.0 * total / test.size());
+	}
+}
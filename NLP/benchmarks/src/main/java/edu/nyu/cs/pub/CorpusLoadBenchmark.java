@@ -0,0 +1,87 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load a tagged corpus, one whole file per operation, by each reader:
+ * {@link FileManager} into a list of sentences or into a
+ * {@link SentenceStore}, {@link MappedFileReader}, and a warm
+ * {@link CorpusCache} over the latter. Typical usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar pub.CorpusLoadBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusLoadBenchmark {
+
+	@Param( { "fileManager", "fileManagerStore", "mapped", "cache" })
+	public String reader;
+
+	@Param( { "test/edu/nyu/cs/pos/training.pos",
+			"resources/named_entity/train.np" })
+	public String file;
+
+	private IStoreReader storeReader;
+
+	// cache directory, only for the cache reader
+	private File directory;
+
+	@Setup
+	public void setUp() throws Exception {
+		if ("mapped".equals(reader)) {
+			storeReader = MappedFileReader.instance;
+		} else if ("cache".equals(reader)) {
+			directory = File.createTempFile("corpus", ".cache");
+			directory.delete();
+			directory.mkdirs();
+			storeReader = new CorpusCache(MappedFileReader.instance, "",
+					directory);
+			// write cache file, so that every operation loads it
+			storeReader.read(new File(file), new SentenceStore());
+		} else {
+			storeReader = FileManager.instance;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (directory != null) {
+			for (File cached : directory.listFiles()) {
+				cached.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	@Benchmark
+	public Object load() throws Exception {
+		if ("fileManager".equals(reader)) {
+			return storeReader.read(new File(file));
+		}
+		SentenceStore store = new SentenceStore();
+		storeReader.read(new File(file), store);
+		return store;
+	}
+}
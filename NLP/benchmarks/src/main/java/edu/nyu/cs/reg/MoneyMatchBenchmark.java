@@ -0,0 +1,92 @@
+package edu.nyu.cs.reg;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to bracket money expressions of a line of the sample article with
+ * {@link MoneyMatch#match(String, int)}, one line per operation: all lines,
+ * most of which are passed over, or only those mentioning dollars. Typical
+ * usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar reg.MoneyMatchBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyMatchBenchmark {
+
+	private static final String INPUT_FILE = "resources/input.txt";
+
+	@Param( { "all", "money" })
+	public String lines;
+
+	private MoneyMatch matcher;
+
+	private List<String> input;
+
+	// next line to match
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		matcher = new MoneyMatch(new String[] { INPUT_FILE });
+		input = new ArrayList<String>();
+		for (String line : read(INPUT_FILE)) {
+			if ("all".equals(lines) || line.contains("$")
+					|| line.toLowerCase().contains("dollar")) {
+				input.add(line);
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void resetStatistics() {
+		MoneyMatch.resetStatistics();
+	}
+
+	@Benchmark
+	public String match() {
+		int line = next;
+		next = (next + 1) % input.size();
+		return matcher.match(input.get(line), line);
+	}
+
+	private static List<String> read(String path) throws IOException {
+		List<String> res = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			for (String line = reader.readLine(); line != null; line = reader
+					.readLine()) {
+				res.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return res;
+	}
+}
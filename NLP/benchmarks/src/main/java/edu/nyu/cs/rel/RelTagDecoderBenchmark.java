@@ -0,0 +1,92 @@
+package edu.nyu.cs.rel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.ne.feature.RelExtractor;
+import edu.nyu.cs.ne.feature.RelFeature;
+import edu.nyu.cs.ne.feature.SimpleExtractor;
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.MappedFileReader;
+import edu.nyu.cs.pub.Sentence;
+
+/**
+ * Time to find the ARG1 of a sentence of the development set with
+ * {@link RelTagDecoder}, trained on the training set, one sentence per
+ * operation. Features of relations come from parse trees, so the OpenNLP
+ * model resources/en-parser-chunking.bin, not bundled, must be in place.
+ * Typical usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar rel.RelTagDecoderBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelTagDecoderBenchmark {
+
+	private static final String TRAINING_FILE = "resources/relation_extraction/%-training";
+
+	private static final String TEST_FILE = "resources/relation_extraction/%-dev";
+
+	// extracted features, with model built from them next to it
+	private File features;
+
+	private RelTagDecoder decoder;
+
+	private List<Sentence> sentences;
+
+	// next sentence to decode
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		Corpus corpus = new Corpus(TRAINING_FILE, MappedFileReader.instance);
+		features = File.createTempFile("rel", ".dat");
+		FileManager.writeFeatures(features.getPath(),
+				new SimpleExtractor<RelFeature>(new RelExtractor())
+						.features(corpus));
+		decoder = new RelTagDecoder(features.getPath());
+		sentences = new ArrayList<Sentence>();
+		for (Sentence sentence : new Corpus(TEST_FILE,
+				MappedFileReader.instance)) {
+			if (!sentence.isEmpty()) {
+				sentences.add(sentence);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		new File(features.getPath() + ".model").delete();
+		features.delete();
+	}
+
+	@Benchmark
+	public Sentence decode() {
+		Sentence sentence = sentences.get(next);
+		next = (next + 1) % sentences.size();
+		return decoder.decode(sentence);
+	}
+}
@@ -0,0 +1,80 @@
+package edu.nyu.cs.snt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.Sentence;
+
+/**
+ * Time to score a review with the naive Bayes language model,
+ * {@link TransitionMatrix#probabilityWithUnigram(String[])} and
+ * {@link TransitionMatrix#probabilityWithBigram(String[])}, as
+ * {@link NaiveBayes} does, one review per operation. The model is trained on
+ * the first folder of positive reviews and scores those of the first folder
+ * of negative ones. Typical usage, from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar snt.TransitionMatrixBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionMatrixBenchmark {
+
+	private static final String TRAINING_DIR = "resources/review_polarity/pos/folder1";
+
+	private static final String TEST_DIR = "resources/review_polarity/neg/folder1";
+
+	private TransitionMatrix matrix;
+
+	// words of each review
+	private List<String[]> reviews;
+
+	// next review to score
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		FileManager fileManager = new FileManager();
+		matrix = new TransitionMatrix(new Corpus(TRAINING_DIR, fileManager));
+		reviews = new ArrayList<String[]>();
+		for (Sentence sentence : new Corpus(TEST_DIR, fileManager)) {
+			reviews.add(sentence.getTokenArray());
+		}
+	}
+
+	@Benchmark
+	public Double unigram() {
+		return matrix.probabilityWithUnigram(nextReview());
+	}
+
+	@Benchmark
+	public Double bigram() {
+		return matrix.probabilityWithBigram(nextReview());
+	}
+
+	private String[] nextReview() {
+		String[] res = reviews.get(next);
+		next = (next + 1) % reviews.size();
+		return res;
+	}
+}
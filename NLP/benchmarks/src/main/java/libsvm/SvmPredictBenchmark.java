@@ -0,0 +1,158 @@
+package libsvm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FeatureIndex;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.snt.FileManager;
+
+/**
+ * Time to classify a review with {@link svm#svm_predict(svm_model, svm_node[])},
+ * one review per operation. Reviews are word counts, as the sentiment SVM
+ * sees them; the model is trained on the first folders of positive and
+ * negative reviews and classifies those of the second ones. Typical usage,
+ * from the project root:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar libsvm.SvmPredictBenchmark
+ * </pre>
+ *
+ * @author Daniel Wu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SvmPredictBenchmark {
+
+	private static final String REVIEW_DIR = "resources/review_polarity/";
+
+	@Param( { "linear", "rbf" })
+	public String kernel;
+
+	private svm_model model;
+
+	private List<svm_node[]> reviews;
+
+	// next review to classify
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		svm.svm_set_print_string_function(new svm_print_interface() {
+			public void print(String s) {
+				// quiet while training
+			}
+		});
+		FileManager fileManager = new FileManager();
+		List<Sentence> positive = new Corpus(REVIEW_DIR + "pos/folder1",
+				fileManager).getSentences();
+		List<Sentence> negative = new Corpus(REVIEW_DIR + "neg/folder1",
+				fileManager).getSentences();
+		TreeSet<String> vocabulary = new TreeSet<String>();
+		for (Sentence sentence : positive) {
+			vocabulary.addAll(Arrays.asList(sentence.getTokenArray()));
+		}
+		for (Sentence sentence : negative) {
+			vocabulary.addAll(Arrays.asList(sentence.getTokenArray()));
+		}
+		FeatureIndex index = new FeatureIndex(new ArrayList<String>(
+				vocabulary));
+
+		svm_problem problem = new svm_problem();
+		problem.l = positive.size() + negative.size();
+		problem.x = new svm_node[problem.l][];
+		problem.y = new double[problem.l];
+		for (int i = 0; i < problem.l; i++) {
+			boolean pos = i < positive.size();
+			Sentence sentence = pos ? positive.get(i) : negative.get(i
+					- positive.size());
+			problem.x[i] = nodes(sentence, index);
+			problem.y[i] = pos ? 1 : -1;
+		}
+		model = svm.svm_train(problem, parameter(index.size()));
+
+		reviews = new ArrayList<svm_node[]>();
+		for (String polarity : new String[] { "pos", "neg" }) {
+			for (Sentence sentence : new Corpus(REVIEW_DIR + polarity
+					+ "/folder2", fileManager)) {
+				reviews.add(nodes(sentence, index));
+			}
+		}
+	}
+
+	@Benchmark
+	public double predict() {
+		svm_node[] review = reviews.get(next);
+		next = (next + 1) % reviews.size();
+		return svm.svm_predict(model, review);
+	}
+
+	/**
+	 * @return counts of words in vocabulary, in order of features
+	 */
+	private static svm_node[] nodes(Sentence sentence, FeatureIndex index) {
+		Map<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+		for (String word : sentence.getTokenArray()) {
+			int feature = index.get(word);
+			if (feature > 0) {
+				Integer count = counts.get(feature);
+				counts.put(feature, (count == null) ? 1 : count + 1);
+			}
+		}
+		svm_node[] res = new svm_node[counts.size()];
+		int i = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			res[i] = new svm_node();
+			res[i].index = entry.getKey();
+			res[i].value = entry.getValue();
+			i++;
+		}
+		return res;
+	}
+
+	/**
+	 * @return C-SVC parameters of the sentiment SVM, with given kernel
+	 */
+	private svm_parameter parameter(int features) {
+		svm_parameter param = new svm_parameter();
+		param.svm_type = svm_parameter.C_SVC;
+		param.kernel_type = "rbf".equals(kernel) ? svm_parameter.RBF
+				: svm_parameter.LINEAR;
+		param.degree = 3;
+		param.gamma = 1.0 / features;
+		param.coef0 = 0;
+		param.nu = 0.5;
+		param.cache_size = 40;
+		param.C = 1;
+		param.eps = 1e-3;
+		param.p = 0.1;
+		param.shrinking = 1;
+		param.probability = 0;
+		param.nr_weight = 0;
+		param.weight_label = new int[0];
+		param.weight = new double[0];
+		return param;
+	}
+}
@@ -58,9 +58,13 @@ public class CreateModel {
 	 * More information about this parser can be found in OpenNLP/Tool package.
 	 * {@link http://opennlp.sourceforge.net/api/opennlp/tools/parser/package-summary.html}
 	 * 
+	 * <p>
+	 * The parser is shared and not thread safe, callers parse while holding its
+	 * lock.
+	 * 
 	 * @return an English parser
 	 */
-	public Parser buildParser() {
+	public synchronized Parser buildParser() {
 		if (parser != null) {
 			return parser;
 		}
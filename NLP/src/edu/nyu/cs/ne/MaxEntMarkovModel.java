@@ -1,7 +1,6 @@
 package edu.nyu.cs.ne;
 
 import java.io.IOException;
-import java.util.List;
 
 import edu.nyu.cs.ne.feature.SimpleExtractor;
 import edu.nyu.cs.ne.feature.TagExtractor;
@@ -9,6 +8,9 @@ import edu.nyu.cs.ne.feature.TagFeature;
 import edu.nyu.cs.pub.AbstractModel;
 import edu.nyu.cs.pub.Decoder;
 import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Metrics.Timer;
 
 /**
  * Maximum Entropy Markov Model.
@@ -22,16 +24,21 @@ import edu.nyu.cs.pub.FileManager;
  */
 public class MaxEntMarkovModel extends AbstractModel {
 
+	// time to load corpus and write its features
+	private static final Timer TRAIN = Metrics.instance.timer("memm.train");
+
 	private String modelFile = "trainingFeatures.dat";
 
 	@Override
 	public void train(String filePath) throws IOException {
+		long start = TRAIN.start();
 		// debug Load corpus into memory
 		loadCorpus(filePath);
 		SimpleExtractor<TagFeature> extractor = new SimpleExtractor<TagFeature>(
 				new TagExtractor());
-		List<TagFeature> features = extractor.extractFeature(corpus);
-		FileManager.writeFeatures(modelFile, features);
+		// written as extracted, so that they need not fit in memory
+		FileManager.writeFeatures(modelFile, extractor.features(corpus));
+		TRAIN.stop(start);
 	}
 
 	@Override
@@ -44,6 +51,11 @@ public class MaxEntMarkovModel extends AbstractModel {
 		}
 	}
 
+	@Override
+	protected LatticeScorer getScorer() {
+		return ((ViterbiForMEMM) getDecoder()).scorer();
+	}
+
 	/**
 	 * Execute command: 1. Training & Test java HiddenMarkovModel -t
 	 * training.pos -d test.text
@@ -60,16 +72,11 @@ public class MaxEntMarkovModel extends AbstractModel {
 		MaxEntMarkovModel memm = new MaxEntMarkovModel();
 		// training
 		if ("-t".equals(args[0])) {
-			long t1 = System.currentTimeMillis();
 			memm.train(args[1]);
-			long t2 = System.currentTimeMillis();
-			System.out.println("Create model time: " + (t2 - t1));
 		}
 		if ("-d".equals(args[2])) {
-			long t2 = System.currentTimeMillis();
 			memm.tag(args[3]);
-			long t3 = System.currentTimeMillis();
-			System.out.println("Decoding time: " + (t3 - t2));
+			System.out.print(Metrics.instance.dump());
 		} else {
 			System.out.println("Wrong command\n " + instruction);
 			return;
@@ -1,9 +1,15 @@
 package edu.nyu.cs.ne;
 
+import java.util.List;
+
 import opennlp.model.MaxentModel;
 import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.MathUtil;
+import edu.nyu.cs.pub.OnlineViterbi;
 import edu.nyu.cs.pub.Sentence;
 import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.ViterbiWorkspace;
 
 /**
  * Decoder for MEMM Named Entity Finder.
@@ -19,107 +25,180 @@ public class ViterbiForMEMM implements Decoder {
 
 	private MaxentModel maxentModel = null;
 
+	// outcome index of each state in maxent model
+	private int[] stateIndex = null;
+
 	public ViterbiForMEMM(String dataFilePath) throws Exception {
 		this.maxentModel = CreateModel.instance.build(dataFilePath);
+		this.stateIndex = new int[states.length];
+		for (int s = 0; s < states.length; s++) {
+			stateIndex[s] = maxentModel.getIndex(states[s]);
+		}
+	}
+
+	/**
+	 * Costs of states under given context, i.e. negative log posterior
+	 * probabilities computed by maximum entropy.
+	 * 
+	 * @param context
+	 *            features around current word
+	 * @param costs
+	 *            array to write cost of each state to, indexed as
+	 *            {@link #states}
+	 * @param offset
+	 *            index of cost of first state in costs
+	 * @see MathUtil#cost(double)
+	 */
+	private void stateCosts(String[] context, double[] costs, int offset) {
+		double[] postprob = maxentModel.eval(context);
+		for (int s = 0; s < states.length; s++) {
+			costs[offset + s] = MathUtil.cost(postprob[stateIndex[s]]);
+		}
 	}
 
 	@Override
 	public Sentence decode(Sentence sentence) {
 		// observations
-		Token[] tokens = sentence.getTokens().toArray(new Token[0]);
+		List<Token> tokens = sentence.getTokens();
 		int N = states.length;
-		int T = tokens.length;
-		double[][] viterbi = new double[N + 1][T + 1];
-		String[][] backtrack = new String[N + 1][T + 1];
+		int T = tokens.size();
+		ViterbiWorkspace workspace = ViterbiWorkspace.get().ensure(N, T);
+		double[] viterbi = workspace.costs();
+		int[] backtrack = workspace.backpointers();
+		// state costs given each previous state, indexed [s1 * N + s]
+		double[] costs = workspace.scratch(N * N);
 		// initialize first step
+		// calculate posterior probability by maximum entropy
+		Context.Builder first = new Context.Builder();
+		first.setCurrentToken(tokens.get(0));
+		if (T > 1) {
+			first.setNextToken(tokens.get(1));
+		}
+		first.setFirstWord(true);
+		stateCosts(first.build(), viterbi, 0);
 		for (int s = 0; s < N; s++) {
-			String state = states[s];
-			double v = 1.0;
-			// calculate posterior probability by maximum entropy
-			Context.Builder builder = new Context.Builder();
-			builder.setCurrentToken(tokens[0]);
-			if (tokens.length > 1) {
-				builder.setNextToken(tokens[1]);
-			}
-			builder.setFirstWord(true);
-			String[] context = builder.build();
-			double[] postprob = maxentModel.eval(context);
-			int stateIndex = maxentModel.getIndex(state);
-			// max probability
-			double likelihood = v * postprob[stateIndex];
-			double log = Math.abs(Math.log10(likelihood));
-			viterbi[s][0] = log;
-			backtrack[s][0] = "";
+			backtrack[s] = -1;
 		}
 
 		// recursive step
 		for (int t = 1; t < T; t++) {
+			int previous = (t - 1) * N;
+			int current = t * N;
+			// features depend on previous state only
+			for (int s1 = 0; s1 < N; s1++) {
+				if (viterbi[previous + s1] == 0.0) {
+					continue;
+				}
+				// build features
+				Context.Builder builder = new Context.Builder();
+				builder.setCurrentToken(tokens.get(t));
+				builder.setPreviousToken(tokens.get(t - 1));
+				if (t > 1) {
+					builder.setPrePreToken(tokens.get(t - 2));
+				}
+				builder.setPreType(states[s1]);
+				if (t < T - 1) {
+					builder.setNextToken(tokens.get(t + 1));
+				}
+				stateCosts(builder.build(), costs, s1 * N);
+			}
 			for (int s = 0; s < N; s++) {
 				double argmax = Double.MAX_VALUE;
-				String backtrackArg = "";
-				String state = states[s];
+				int backtrackArg = -1;
 				for (int s1 = 0; s1 < N; s1++) {
-					double v = viterbi[s1][t - 1];
+					double v = viterbi[previous + s1];
 					if (v == 0.0) {
 						continue;
 					}
-					String previousState = states[s1];
-					// build features
-					Context.Builder builder = new Context.Builder();
-					builder.setCurrentToken(tokens[t]);
-					builder.setPreviousToken(tokens[t - 1]);
-					if (t > 1) {
-						builder.setPrePreToken(tokens[t - 2]);
-					}
-					builder.setPreType(previousState);
-					if (t < tokens.length - 1) {
-						builder.setNextToken(tokens[t + 1]);
-					}
-					String[] context = builder.build();
-					double[] postprob = maxentModel.eval(context);
-					int stateIndex = maxentModel.getIndex(state);
-					// max probability
-					double log = v + Math.abs(Math.log10(postprob[stateIndex]));
+					// min cost
+					double log = v + costs[s1 * N + s];
 					if (log < argmax) {
 						argmax = log;
-						backtrackArg = previousState;
+						backtrackArg = s1;
 					}
 				}
-				viterbi[s][t] = argmax;
-				backtrack[s][t] = backtrackArg;
+				viterbi[current + s] = argmax;
+				backtrack[current + s] = backtrackArg;
 			}
 		}
 
 		// terminate step
-		viterbi[N][T] = Double.MAX_VALUE;
+		double best = Double.MAX_VALUE;
+		int tag = -1;
+		int last = (T - 1) * N;
 		for (int s = 0; s < N; s++) {
-			String state = states[s];
-			// max probability
-			double likelihood = viterbi[s][T - 1];
-			if (likelihood < viterbi[N][T]) {
-				viterbi[N][T] = likelihood;
-				backtrack[N][T] = state;
+			double likelihood = viterbi[last + s];
+			if (likelihood < best) {
+				best = likelihood;
+				tag = s;
 			}
 		}
-		// backtracking
-		Sentence res = new Sentence();
-		int tagIndex = N;
+		// backtracking, entity types are set in place
 		int stepIndex = T;
-		String tag = backtrack[tagIndex][stepIndex];
-		while (tag != null && tag.length() != 0) {
-			// set tag
-			Token token = tokens[stepIndex - 1];
-			token.setEntityType(tag);
-			res.addToken(token);
-			for (int i = 0; i < states.length; i++) {
-				if (states[i].equals(tag)) {
-					tagIndex = i;
-					break;
+		while (tag >= 0) {
+			stepIndex--;
+			tokens.get(stepIndex).setEntityType(states[tag]);
+			tag = backtrack[stepIndex * N + tag];
+		}
+		return sentence;
+	}
+
+	/**
+	 * Scorer of the same lattice, to decode a token stream without sentence
+	 * breaks with {@link OnlineViterbi}. Features look two tokens back and one
+	 * ahead, as in {@link #decode(Sentence)}.
+	 * 
+	 * @return lattice scorer over {@link #states}
+	 */
+	public LatticeScorer scorer() {
+		final int N = states.length;
+		return new LatticeScorer() {
+
+			public int numberOfStates() {
+				return N;
+			}
+
+			public int history() {
+				return 2;
+			}
+
+			public int lookahead() {
+				return 1;
+			}
+
+			public void costs(Token[] window, boolean first, double[] costs) {
+				if (first) {
+					Context.Builder builder = new Context.Builder();
+					builder.setCurrentToken(window[2]);
+					if (window[3] != null) {
+						builder.setNextToken(window[3]);
+					}
+					builder.setFirstWord(true);
+					stateCosts(builder.build(), costs, 0);
+					return;
+				}
+				for (int s1 = 0; s1 < N; s1++) {
+					Context.Builder builder = new Context.Builder();
+					builder.setCurrentToken(window[2]);
+					builder.setPreviousToken(window[1]);
+					if (window[0] != null) {
+						builder.setPrePreToken(window[0]);
+					}
+					builder.setPreType(states[s1]);
+					if (window[3] != null) {
+						builder.setNextToken(window[3]);
+					}
+					stateCosts(builder.build(), costs, s1 * N);
 				}
 			}
-			tag = backtrack[tagIndex][--stepIndex];
-		}
 
-		return res;
+			public double endCost(int state) {
+				return 0.0;
+			}
+
+			public void assign(Token token, int state) {
+				token.setEntityType(states[state]);
+			}
+		};
 	}
 }
@@ -166,7 +166,11 @@ public class RelFeatureBuilder {
 	private Parse createParse() {
 		Parser parser = CreateModel.instance.buildParser();
 		try {
-			Parse[] topParses = ParserTool.parseLine(sentence, parser, 1);
+			Parse[] topParses = null;
+			// shared parser is not thread safe
+			synchronized (parser) {
+				topParses = ParserTool.parseLine(sentence, parser, 1);
+			}
 			return topParses[0];
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -3,9 +3,12 @@ package edu.nyu.cs.ne.feature;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Metrics.Timer;
 import edu.nyu.cs.pub.Sentence;
 
 /**
@@ -20,6 +23,10 @@ import edu.nyu.cs.pub.Sentence;
  */
 public class SimpleExtractor<T> {
 
+	// time to extract features of a sentence
+	private static final Timer EXTRACT = Metrics.instance
+			.timer("features.sentence");
+
 	private Extractor<T> tagExtractor = null;
 
 	public SimpleExtractor(Extractor<T> extractor) {
@@ -38,13 +45,65 @@ public class SimpleExtractor<T> {
 		while (sents.hasNext()) {
 			Sentence sent = sents.next();
 			if (!sent.isEmpty()) {
-				System.out.println("Extracting features from sentence "
-						+ sent.getIndex());
-				Set<T> features = tagExtractor.extract(sent);
-				featureSet.addAll(features);
+				featureSet.addAll(extract(sent));
 			}
 		}
 		return featureSet;
 	}
 
+	/**
+	 * Extracting features from corpus lazily, sentence by sentence as they
+	 * are iterated, so that features of a corpus larger than memory can be
+	 * written out.
+	 * 
+	 * @param corpus
+	 * @return features, in the order of {@link #extractFeature(Corpus)}
+	 */
+	public Iterable<T> features(final Corpus corpus) {
+		return new Iterable<T>() {
+
+			@Override
+			public Iterator<T> iterator() {
+				final Iterator<Sentence> sents = corpus.iterator();
+				return new Iterator<T>() {
+
+					private Iterator<T> features = null;
+
+					@Override
+					public boolean hasNext() {
+						while (features == null || !features.hasNext()) {
+							if (!sents.hasNext()) {
+								return false;
+							}
+							Sentence sent = sents.next();
+							if (!sent.isEmpty()) {
+								features = extract(sent).iterator();
+							}
+						}
+						return true;
+					}
+
+					@Override
+					public T next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return features.next();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	private Set<T> extract(Sentence sent) {
+		long start = EXTRACT.start();
+		Set<T> res = tagExtractor.extract(sent);
+		EXTRACT.stop(start);
+		return res;
+	}
 }
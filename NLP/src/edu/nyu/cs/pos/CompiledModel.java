@@ -0,0 +1,636 @@
+package edu.nyu.cs.pos;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import edu.nyu.cs.pub.Constant;
+import edu.nyu.cs.pub.Matrix;
+import edu.nyu.cs.pub.TagDictionary;
+
+/**
+ * Compiled form of the Hidden Markov Model.
+ * <p>
+ * Tags and words are interned to dense int ids. Every probability is stored
+ * as its cost, i.e. negative log probability (see
+ * {@link edu.nyu.cs.pub.MathUtil#cost(double)}). Transition costs are held in a
+ * primitive <code>double[][]</code>, emission costs of known words in
+ * compressed rows: for word id <code>w</code>, entries
+ * <code>rowOffsets[w]</code> to <code>rowOffsets[w + 1]</code> of
+ * <code>rowTags</code> and <code>rowCosts</code> are the tags the word has
+ * been seen with. Any other tag takes the unseen cost. Costs of out of
+ * vocabulary words are held per {@link OOVSignature}, so an unknown word is
+ * analysed once and its row copied from a table.
+ * <p>
+ * If compiled with a {@link TagDictionary}, the candidate tags of each known
+ * word are kept as well, so decoders may skip tags a word was never seen with.
+ * <p>
+ * A compiled model can be saved to a binary file, see {@link #save(File)}, and
+ * loaded back with {@link #load(File)}. Loading maps the file into memory;
+ * emission rows are read from the mapping in place, so processes tagging with
+ * the same model file share its pages. Tags, words and the vocabulary are
+ * looked up by string, and are read into maps on the heap. A second order
+ * model saves its trigram counts in the same file, see
+ * {@link #save(File, TrigramModel)}.
+ *
+ * @author Daniel Wu
+ * @see CompiledViterbi
+ */
+public class CompiledModel {
+
+	// "HMM1", first int of a model file
+	private static final int MAGIC = 0x484D4D31;
+
+	// model file format version; version 2 adds trigram counts
+	private static final int VERSION = 2;
+
+	// tag id -> tag
+	private final String[] tags;
+
+	// tag -> tag id
+	private final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+
+	// word -> word id, case sensitive
+	private final Map<String, Integer> wordIds = new HashMap<String, Integer>();
+
+	// word id -> word
+	private final String[] words;
+
+	// transition cost <previous tag id, tag id>
+	private final double[][] transitionCost;
+
+	// the same, flat: <previous tag id * N + tag id>, for MinPlusKernel
+	private final double[] transitionTable;
+
+	// cost of a tag starting a sentence
+	private final double[] startCost;
+
+	// cost of a tag ending a sentence
+	private final double[] endCost;
+
+	// emission rows, indexed by word id
+	private final IntBuffer rowOffsets;
+
+	private final IntBuffer rowTags;
+
+	private final DoubleBuffer rowCosts;
+
+	// emission cost of a known word under an unseen tag
+	private final double unseenEmissionCost;
+
+	// every tag id, candidates of an unknown word
+	private final int[] allTags;
+
+	// candidate tag ids, indexed by word id; null without tag dictionary
+	private int[][] candidates = null;
+
+	// training words in lower case; null unless compiled from EmissionMatrix
+	private Set<String> vocabulary = null;
+
+	// OOV costs <signature, tag id>; null unless compiled from EmissionMatrix
+	private double[][] signatureCosts = null;
+
+	// trigram transitions read from a model file; null if there are none
+	private TrigramModel trigramModel = null;
+
+	// likelihood matrix, consulted for words without an emission row if it
+	// is no EmissionMatrix
+	private Matrix likelihoodMatrix = null;
+
+	/**
+	 * Compile trained matrices
+	 *
+	 * @param priorMatrix
+	 *            transition matrix
+	 * @param likelihoodMatrix
+	 *            emission matrix
+	 */
+	public CompiledModel(Matrix priorMatrix, Matrix likelihoodMatrix) {
+		this.tags = priorMatrix.getKeys();
+		int N = tags.length;
+		allTags = new int[N];
+		for (int i = 0; i < N; i++) {
+			tagIds.put(tags[i], i);
+			allTags[i] = i;
+		}
+		// transitions
+		transitionCost = new double[N][N];
+		transitionTable = new double[N * N];
+		startCost = new double[N];
+		endCost = new double[N];
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j < N; j++) {
+				transitionCost[i][j] = priorMatrix.getCost(tags[i], tags[j]);
+				transitionTable[i * N + j] = transitionCost[i][j];
+			}
+			startCost[i] = priorMatrix.getCost(Constant.START_SYMBOL, tags[i]);
+			endCost[i] = priorMatrix.getCost(tags[i], Constant.END_SYMBOL);
+		}
+		// emissions, grouped by word: count entries of each word first
+		String[] rows = likelihoodMatrix.getKeys();
+		int[] lengths = new int[16];
+		int entries = 0;
+		for (String tag : rows) {
+			if (!tagIds.containsKey(tag)) {
+				continue;
+			}
+			for (String word : likelihoodMatrix.getRow(tag).keySet()) {
+				Integer id = wordIds.get(word);
+				if (id == null) {
+					id = wordIds.size();
+					wordIds.put(word, id);
+					if (id == lengths.length) {
+						lengths = Arrays.copyOf(lengths, id << 1);
+					}
+				}
+				lengths[id]++;
+				entries++;
+			}
+		}
+		int W = wordIds.size();
+		words = new String[W];
+		int[] offsets = new int[W + 1];
+		for (int w = 0; w < W; w++) {
+			offsets[w + 1] = offsets[w] + lengths[w];
+		}
+		// then fill in compressed rows
+		int[] cursor = Arrays.copyOf(offsets, W);
+		int[] entryTags = new int[entries];
+		double[] entryCosts = new double[entries];
+		for (String tag : rows) {
+			Integer tagId = tagIds.get(tag);
+			if (tagId == null) {
+				continue;
+			}
+			for (String word : likelihoodMatrix.getRow(tag).keySet()) {
+				int id = wordIds.get(word);
+				words[id] = word;
+				entryTags[cursor[id]] = tagId;
+				entryCosts[cursor[id]] = likelihoodMatrix.getCost(tag, word);
+				cursor[id]++;
+			}
+		}
+		rowOffsets = IntBuffer.wrap(offsets);
+		rowTags = IntBuffer.wrap(entryTags);
+		rowCosts = DoubleBuffer.wrap(entryCosts);
+		unseenEmissionCost = likelihoodMatrix.getOOVCost();
+		// OOV words, by signature
+		if (likelihoodMatrix instanceof EmissionMatrix) {
+			EmissionMatrix emission = (EmissionMatrix) likelihoodMatrix;
+			vocabulary = emission.getVocabulary();
+			signatureCosts = new double[OOVSignature.COUNT][N];
+			for (int sig = 0; sig < OOVSignature.COUNT; sig++) {
+				for (int s = 0; s < N; s++) {
+					signatureCosts[sig][s] = emission.getOOVCost(tags[s], sig);
+				}
+			}
+		} else {
+			this.likelihoodMatrix = likelihoodMatrix;
+		}
+	}
+
+	/**
+	 * Compile trained matrices, together with candidate tags of known words
+	 *
+	 * @param priorMatrix
+	 *            transition matrix
+	 * @param likelihoodMatrix
+	 *            emission matrix
+	 * @param tagDictionary
+	 *            tags observed with each training word
+	 */
+	public CompiledModel(Matrix priorMatrix, Matrix likelihoodMatrix,
+			TagDictionary tagDictionary) {
+		this(priorMatrix, likelihoodMatrix);
+		candidates = new int[wordIds.size()][];
+		for (Entry<String, Integer> word : wordIds.entrySet()) {
+			Set<String> observed = tagDictionary.getTags(word.getKey());
+			if (observed == null) {
+				continue;
+			}
+			int[] ids = new int[observed.size()];
+			int count = 0;
+			for (String tag : observed) {
+				int id = getTagId(tag);
+				if (id >= 0) {
+					ids[count++] = id;
+				}
+			}
+			if (count > 0) {
+				ids = Arrays.copyOf(ids, count);
+				Arrays.sort(ids);
+				candidates[word.getValue()] = ids;
+			}
+		}
+	}
+
+	/**
+	 * Read a model file mapped into memory
+	 */
+	private CompiledModel(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a compiled HMM model file\n");
+		}
+		int version = buffer.getInt();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported model file version " + version
+					+ "\n");
+		}
+		// tags
+		int N = buffer.getInt();
+		tags = new String[N];
+		allTags = new int[N];
+		for (int i = 0; i < N; i++) {
+			tags[i] = readString(buffer);
+			tagIds.put(tags[i], i);
+			allTags[i] = i;
+		}
+		// words
+		int W = buffer.getInt();
+		words = new String[W];
+		for (int w = 0; w < W; w++) {
+			words[w] = readString(buffer);
+			wordIds.put(words[w], w);
+		}
+		// transitions
+		transitionCost = new double[N][N];
+		transitionTable = new double[N * N];
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j < N; j++) {
+				transitionCost[i][j] = buffer.getDouble();
+				transitionTable[i * N + j] = transitionCost[i][j];
+			}
+		}
+		startCost = new double[N];
+		endCost = new double[N];
+		for (int i = 0; i < N; i++) {
+			startCost[i] = buffer.getDouble();
+		}
+		for (int i = 0; i < N; i++) {
+			endCost[i] = buffer.getDouble();
+		}
+		// emissions, read in place
+		unseenEmissionCost = buffer.getDouble();
+		rowOffsets = slice(buffer, (W + 1) * 4).asIntBuffer();
+		int entries = buffer.getInt();
+		rowTags = slice(buffer, entries * 4).asIntBuffer();
+		rowCosts = slice(buffer, entries * 8).asDoubleBuffer();
+		// OOV words
+		if (buffer.getInt() != 0) {
+			int V = buffer.getInt();
+			vocabulary = new HashSet<String>();
+			for (int v = 0; v < V; v++) {
+				vocabulary.add(readString(buffer));
+			}
+			signatureCosts = new double[OOVSignature.COUNT][N];
+			for (int sig = 0; sig < OOVSignature.COUNT; sig++) {
+				for (int s = 0; s < N; s++) {
+					signatureCosts[sig][s] = buffer.getDouble();
+				}
+			}
+		}
+		// tag dictionary
+		if (buffer.getInt() != 0) {
+			candidates = new int[W][];
+			for (int w = 0; w < W; w++) {
+				int count = buffer.getInt();
+				if (count > 0) {
+					candidates[w] = new int[count];
+					for (int c = 0; c < count; c++) {
+						candidates[w][c] = buffer.getInt();
+					}
+				}
+			}
+		}
+		// trigram transitions
+		if (version >= 2 && buffer.getInt() != 0) {
+			trigramModel = TrigramModel.read(buffer, this);
+		}
+	}
+
+	/**
+	 * Save model in binary format
+	 *
+	 * @param file
+	 *            model file
+	 * @throws IOException
+	 *             if writing fails, or model was compiled without an
+	 *             EmissionMatrix
+	 */
+	public void save(File file) throws IOException {
+		save(file, null);
+	}
+
+	/**
+	 * Save model in binary format, along with counts of trigram transitions
+	 * built for it
+	 *
+	 * @param file
+	 *            model file
+	 * @param trigramModel
+	 *            trigram transitions of this model, or null
+	 * @throws IOException
+	 *             if writing fails, or model was compiled without an
+	 *             EmissionMatrix
+	 */
+	public void save(File file, TrigramModel trigramModel) throws IOException {
+		if (likelihoodMatrix != null) {
+			throw new IOException(
+					"Only models compiled from an EmissionMatrix can be saved\n");
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			int N = tags.length;
+			out.writeInt(N);
+			for (String tag : tags) {
+				writeString(out, tag);
+			}
+			out.writeInt(words.length);
+			for (String word : words) {
+				writeString(out, word);
+			}
+			for (int i = 0; i < N; i++) {
+				for (int j = 0; j < N; j++) {
+					out.writeDouble(transitionCost[i][j]);
+				}
+			}
+			for (int i = 0; i < N; i++) {
+				out.writeDouble(startCost[i]);
+			}
+			for (int i = 0; i < N; i++) {
+				out.writeDouble(endCost[i]);
+			}
+			out.writeDouble(unseenEmissionCost);
+			for (int w = 0; w <= words.length; w++) {
+				out.writeInt(rowOffsets.get(w));
+			}
+			int entries = rowOffsets.get(words.length);
+			out.writeInt(entries);
+			for (int i = 0; i < entries; i++) {
+				out.writeInt(rowTags.get(i));
+			}
+			for (int i = 0; i < entries; i++) {
+				out.writeDouble(rowCosts.get(i));
+			}
+			out.writeInt(1);
+			out.writeInt(vocabulary.size());
+			for (String word : vocabulary) {
+				writeString(out, word);
+			}
+			for (int sig = 0; sig < OOVSignature.COUNT; sig++) {
+				for (int s = 0; s < N; s++) {
+					out.writeDouble(signatureCosts[sig][s]);
+				}
+			}
+			out.writeInt((candidates == null) ? 0 : 1);
+			if (candidates != null) {
+				for (int[] ids : candidates) {
+					out.writeInt((ids == null) ? 0 : ids.length);
+					if (ids != null) {
+						for (int id : ids) {
+							out.writeInt(id);
+						}
+					}
+				}
+			}
+			out.writeInt((trigramModel == null) ? 0 : 1);
+			if (trigramModel != null) {
+				trigramModel.write(out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a model saved by {@link #save(File)}. The file is mapped read only
+	 * and must not change while the model is in use.
+	 *
+	 * @param file
+	 *            model file
+	 * @return compiled model
+	 * @throws IOException
+	 *             if file cannot be read or is no model file
+	 */
+	public static CompiledModel load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			return new CompiledModel(buffer);
+		} finally {
+			// mapping stays valid after channel is closed
+			raf.close();
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String str)
+			throws IOException {
+		byte[] bytes = str.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * @return next given number of bytes as a buffer of their own, moving
+	 *         past them
+	 */
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		ByteBuffer res = buffer.slice();
+		res.limit(length);
+		buffer.position(buffer.position() + length);
+		return res;
+	}
+
+	/**
+	 * @return trigram transitions saved with the model, or null if there are
+	 *         none
+	 */
+	public TrigramModel getTrigramModel() {
+		return trigramModel;
+	}
+
+	/**
+	 * @return number of tags
+	 */
+	public int numberOfTags() {
+		return tags.length;
+	}
+
+	/**
+	 * @param tagId
+	 *            tag id
+	 * @return tag
+	 */
+	public String getTag(int tagId) {
+		return tags[tagId];
+	}
+
+	/**
+	 * @param tag
+	 *            any tag
+	 * @return tag id, or -1 if tag is unknown
+	 */
+	public int getTagId(String tag) {
+		Integer id = tagIds.get(tag);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * @param word
+	 *            any word, case sensitive
+	 * @return word id, or -1 if word has no emission row
+	 */
+	public int getWordId(String word) {
+		Integer id = wordIds.get(word);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * Transition cost
+	 *
+	 * @param from
+	 *            previous tag id
+	 * @param to
+	 *            following tag id
+	 * @return cost
+	 */
+	public double transitionCost(int from, int to) {
+		return transitionCost[from][to];
+	}
+
+	/**
+	 * @return transition cost table, indexed by [previous tag][tag]
+	 */
+	double[][] getTransitionCosts() {
+		return transitionCost;
+	}
+
+	/**
+	 * @return transition cost table, flat, indexed by
+	 *         <code>previous tag * N + tag</code>
+	 */
+	double[] getTransitionTable() {
+		return transitionTable;
+	}
+
+	/**
+	 * @param tagId
+	 *            tag id
+	 * @return cost of a sentence starting with given tag
+	 */
+	public double startCost(int tagId) {
+		return startCost[tagId];
+	}
+
+	/**
+	 * @param tagId
+	 *            tag id
+	 * @return cost of a sentence ending with given tag
+	 */
+	public double endCost(int tagId) {
+		return endCost[tagId];
+	}
+
+	/**
+	 * Candidate tags of a word. Unknown words, and every word if compiled
+	 * without tag dictionary, may take any tag.
+	 *
+	 * @param wordId
+	 *            word id, or -1 for an unknown word
+	 * @return candidate tag ids, in ascending order
+	 */
+	public int[] candidates(int wordId) {
+		if (wordId < 0 || candidates == null || candidates[wordId] == null) {
+			return allTags;
+		}
+		return candidates[wordId];
+	}
+
+	/**
+	 * Fill in emission costs of a word for every tag
+	 *
+	 * @param word
+	 *            observed word
+	 * @param row
+	 *            output, indexed by tag id
+	 */
+	public void emissionCost(String word, double[] row) {
+		emissionCost(getWordId(word), word, row);
+	}
+
+	/**
+	 * Fill in emission costs of a word for every tag
+	 *
+	 * @param wordId
+	 *            word id, see {@link #getWordId(String)}
+	 * @param word
+	 *            observed word
+	 * @param row
+	 *            output, indexed by tag id
+	 */
+	public void emissionCost(int wordId, String word, double[] row) {
+		if (wordId < 0 && likelihoodMatrix != null) {
+			// no emission row, ask likelihood matrix
+			for (int s = 0; s < tags.length; s++) {
+				row[s] = likelihoodMatrix.getCost(tags[s], word);
+			}
+			return;
+		}
+		if (wordId < 0) {
+			int signature = signature(word);
+			if (signature >= 0) {
+				System.arraycopy(signatureCosts[signature], 0, row, 0,
+						tags.length);
+				return;
+			}
+			// in vocabulary in another case, unseen under every tag
+			Arrays.fill(row, 0, tags.length, unseenEmissionCost);
+			return;
+		}
+		for (int s = 0; s < tags.length; s++) {
+			row[s] = unseenEmissionCost;
+		}
+		int end = rowOffsets.get(wordId + 1);
+		for (int i = rowOffsets.get(wordId); i < end; i++) {
+			row[rowTags.get(i)] = rowCosts.get(i);
+		}
+	}
+
+	/**
+	 * Same rule as {@link EmissionMatrix#getSignature(String)}
+	 *
+	 * @return OOV signature of given word, or -1 if the word is in vocabulary
+	 */
+	private int signature(String word) {
+		if (word.trim().length() > 0
+				&& vocabulary.contains(word.toLowerCase())) {
+			return -1;
+		}
+		return OOVSignature.of(word);
+	}
+
+}
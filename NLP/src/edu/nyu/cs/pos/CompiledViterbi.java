@@ -0,0 +1,376 @@
+package edu.nyu.cs.pos;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.MathUtil;
+import edu.nyu.cs.pub.OnlineViterbi;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.ViterbiWorkspace;
+
+/**
+ * Viterbi algorithm over a {@link CompiledModel}.
+ * <p>
+ * Same recursion as {@link Viterbi}, but states are tag ids and every cost is
+ * read from primitive tables. Emission costs of a token are looked up once per
+ * token instead of once per state pair. The lattice lives in the per-thread
+ * {@link ViterbiWorkspace} with int back pointers, so steady-state decoding
+ * allocates nothing, and tags are written to the sentence in place.
+ * <p>
+ * Optionally, each position is pruned to a beam: at most
+ * <code>beamWidth</code> states, all within <code>beamThreshold</code> of the
+ * best one. Pruned states are not extended, so decoding drops from
+ * O(N<sup>2</sup>T) towards O(kNT) for a beam of k states.
+ * <p>
+ * Optionally, a known word is only given the tags it has been seen with in
+ * training corpus, see {@link CompiledModel#candidates(int)}. Unknown words
+ * still consider every tag. A position considering every tag is one min-plus
+ * product of the previous position with the transition table, done by
+ * {@link MinPlusKernel}.
+ *
+ * @author Daniel Wu
+ */
+public class CompiledViterbi implements Decoder {
+
+	private CompiledModel model = null;
+
+	// maximum number of states kept per position, 0 for no limit
+	private int beamWidth = 0;
+
+	// states costing more than best + threshold are pruned
+	private double beamThreshold = Double.POSITIVE_INFINITY;
+
+	// restrict known words to their observed tags
+	private boolean tagDictionary = false;
+
+	// inner loop over every state
+	private MinPlusKernel kernel = MinPlusKernel.instance;
+
+	public CompiledViterbi(CompiledModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Decoder with beam pruning. Only the surviving states of a position are
+	 * extended to the next one.
+	 * 
+	 * @param model
+	 *            compiled model
+	 * @param beamWidth
+	 *            maximum number of states kept per position, 0 for no limit
+	 * @param beamThreshold
+	 *            maximum cost distance from best state of a position,
+	 *            {@link Double#POSITIVE_INFINITY} for no limit
+	 */
+	public CompiledViterbi(CompiledModel model, int beamWidth,
+			double beamThreshold) {
+		this(model, beamWidth, beamThreshold, false);
+	}
+
+	/**
+	 * Decoder with beam pruning and tag dictionary
+	 * 
+	 * @param model
+	 *            compiled model, with tag dictionary
+	 * @param beamWidth
+	 *            maximum number of states kept per position, 0 for no limit
+	 * @param beamThreshold
+	 *            maximum cost distance from best state of a position,
+	 *            {@link Double#POSITIVE_INFINITY} for no limit
+	 * @param tagDictionary
+	 *            true to consider only observed tags of known words
+	 */
+	public CompiledViterbi(CompiledModel model, int beamWidth,
+			double beamThreshold, boolean tagDictionary) {
+		this.model = model;
+		this.beamWidth = beamWidth;
+		this.beamThreshold = beamThreshold;
+		this.tagDictionary = tagDictionary;
+	}
+
+	/**
+	 * @param kernel
+	 *            min-plus kernel to decode with, {@link MinPlusKernel#instance}
+	 *            by default
+	 */
+	void setKernel(MinPlusKernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.Decoder#decode(edu.nyu.cs.pub.Sentence)
+	 */
+	public Sentence decode(Sentence sentence) {
+		List<Token> tokens = sentence.getTokens();
+		int N = model.numberOfTags();
+		int T = tokens.size();
+		if (T == 0) {
+			return sentence;
+		}
+		double[][] transition = model.getTransitionCosts();
+		double[] table = model.getTransitionTable();
+		ViterbiWorkspace workspace = ViterbiWorkspace.get().ensure(N, T);
+		double[] viterbi = workspace.costs();
+		int[] backtrack = workspace.backpointers();
+		double[] b = workspace.row();
+		int[] active = workspace.active();
+		int[] bestState = workspace.best();
+		// initialize first step
+		int[] candidates = emissionCost(tokens.get(0).getLiteral(), b);
+		for (int c = 0; c < candidates.length; c++) {
+			int s = candidates[c];
+			viterbi[s] = model.startCost(s) + b[s];
+			backtrack[s] = -1;
+		}
+		int survivors = prune(viterbi, 0, candidates, active, workspace);
+		bestState[0] = lowest(viterbi, 0, active, survivors);
+
+		// recursive step
+		for (int t = 1; t < T; t++) {
+			candidates = emissionCost(tokens.get(t).getLiteral(), b);
+			int previous = (t - 1) * N;
+			int current = t * N;
+			if (candidates.length == N) {
+				// every state, a full min-plus product
+				kernel.minPlus(viterbi, previous, active, survivors, table, N,
+						viterbi, backtrack, current);
+				for (int s = 0; s < N; s++) {
+					viterbi[current + s] += b[s];
+				}
+				survivors = prune(viterbi, current, candidates, active,
+						workspace);
+				bestState[t] = lowest(viterbi, current, active, survivors);
+				continue;
+			}
+			for (int c = 0; c < candidates.length; c++) {
+				int s = candidates[c];
+				double argmax = Double.MAX_VALUE;
+				int backtrackArg = -1;
+				for (int i = 0; i < survivors; i++) {
+					int s1 = active[i];
+					double log = viterbi[previous + s1] + transition[s1][s];
+					if (log < argmax) {
+						argmax = log;
+						backtrackArg = s1;
+					}
+				}
+				viterbi[current + s] = argmax + b[s];
+				backtrack[current + s] = backtrackArg;
+			}
+			survivors = prune(viterbi, current, candidates, active, workspace);
+			bestState[t] = lowest(viterbi, current, active, survivors);
+		}
+
+		// terminate step
+		double best = Double.MAX_VALUE;
+		int tag = -1;
+		int last = (T - 1) * N;
+		for (int i = 0; i < survivors; i++) {
+			int s = active[i];
+			double likelihood = viterbi[last + s] + model.endCost(s);
+			if (likelihood < best) {
+				best = likelihood;
+				tag = s;
+			}
+		}
+		// no path reaches the end at a finite cost, e.g. every survivor is
+		// pruned or every transition is unseen: the best survivor stands in
+		if (tag < 0) {
+			tag = bestState[T - 1];
+		}
+		// backtracking, tags are set in place
+		int stepIndex = T;
+		while (tag >= 0) {
+			stepIndex--;
+			tokens.get(stepIndex).setTag(model.getTag(tag));
+			tag = backtrack[stepIndex * N + tag];
+			// so does a path broken before the first position
+			if (tag < 0 && stepIndex > 0) {
+				tag = bestState[stepIndex - 1];
+			}
+		}
+		return sentence;
+	}
+
+	/**
+	 * @return surviving state of lowest cost at a position, the first one if
+	 *         all cost as much, or -1 if none survives
+	 */
+	private static int lowest(double[] viterbi, int offset, int[] active,
+			int survivors) {
+		int res = (survivors > 0) ? active[0] : -1;
+		for (int i = 1; i < survivors; i++) {
+			if (viterbi[offset + active[i]] < viterbi[offset + res]) {
+				res = active[i];
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Scorer of the same lattice, to decode a token stream without sentence
+	 * breaks with {@link OnlineViterbi}. Beam settings do not apply. A scorer
+	 * serves one stream at a time.
+	 * 
+	 * @return lattice scorer over tag ids
+	 */
+	public LatticeScorer scorer() {
+		final int N = model.numberOfTags();
+		final double[][] transition = model.getTransitionCosts();
+		return new LatticeScorer() {
+
+			// emission costs of current token
+			private final double[] b = new double[N];
+
+			public int numberOfStates() {
+				return N;
+			}
+
+			public int history() {
+				return 0;
+			}
+
+			public int lookahead() {
+				return 0;
+			}
+
+			public void costs(Token[] window, boolean first, double[] costs) {
+				int[] candidates = emissionCost(window[0].getLiteral(), b);
+				if (first) {
+					Arrays.fill(costs, 0, N, Double.POSITIVE_INFINITY);
+					for (int s : candidates) {
+						costs[s] = model.startCost(s) + b[s];
+					}
+					return;
+				}
+				Arrays.fill(costs, 0, N * N, Double.POSITIVE_INFINITY);
+				for (int s1 = 0; s1 < N; s1++) {
+					for (int s : candidates) {
+						costs[s1 * N + s] = transition[s1][s] + b[s];
+					}
+				}
+			}
+
+			public double endCost(int state) {
+				return model.endCost(state);
+			}
+
+			public void assign(Token token, int state) {
+				token.setTag(model.getTag(state));
+			}
+		};
+	}
+
+	/**
+	 * Look up emission costs of a word
+	 * 
+	 * @param word
+	 *            observed word
+	 * @param row
+	 *            output, indexed by tag id
+	 * @return tags to consider for the word
+	 */
+	private int[] emissionCost(String word, double[] row) {
+		int wordId = model.getWordId(word);
+		model.emissionCost(wordId, word, row);
+		return model.candidates(tagDictionary ? wordId : -1);
+	}
+
+	/**
+	 * Collect states of a position that may be extended, in ascending id order
+	 * 
+	 * @param viterbi
+	 *            cost lattice
+	 * @param offset
+	 *            first cell of the position
+	 * @param candidates
+	 *            states filled in at the position
+	 * @param active
+	 *            output, surviving state ids
+	 * @param workspace
+	 *            current workspace
+	 * @return number of surviving states
+	 */
+	private int prune(double[] viterbi, int offset, int[] candidates,
+			int[] active, ViterbiWorkspace workspace) {
+		int count = 0;
+		for (int c = 0; c < candidates.length; c++) {
+			int s = candidates[c];
+			double v = viterbi[offset + s];
+			if (v == 0.0) {
+				continue;
+			}
+			active[count++] = s;
+		}
+		return prune(viterbi, offset, active, count, beamWidth, beamThreshold,
+				workspace);
+	}
+
+	/**
+	 * Prune a list of states to a beam, keeping their order
+	 * 
+	 * @param viterbi
+	 *            cost lattice
+	 * @param offset
+	 *            first cell of the position
+	 * @param active
+	 *            input and output, state ids
+	 * @param count
+	 *            number of states in list
+	 * @param beamWidth
+	 *            maximum number of states kept, 0 for no limit
+	 * @param beamThreshold
+	 *            maximum cost distance from best state
+	 * @param workspace
+	 *            current workspace
+	 * @return number of surviving states
+	 */
+	static int prune(double[] viterbi, int offset, int[] active, int count,
+			int beamWidth, double beamThreshold, ViterbiWorkspace workspace) {
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			double v = viterbi[offset + active[i]];
+			if (v < best) {
+				best = v;
+			}
+		}
+		// score threshold
+		double limit = best + beamThreshold;
+		// beam width
+		if (beamWidth > 0 && count > beamWidth) {
+			double[] costs = workspace.scratch(count);
+			for (int i = 0; i < count; i++) {
+				costs[i] = viterbi[offset + active[i]];
+			}
+			limit = Math.min(limit, MathUtil.select(costs, count, beamWidth - 1));
+		}
+		if (limit == Double.POSITIVE_INFINITY) {
+			return count;
+		}
+		// states tied with the limit only fill up what is left of the beam
+		int ties = count;
+		if (beamWidth > 0) {
+			ties = beamWidth;
+			for (int i = 0; i < count; i++) {
+				if (viterbi[offset + active[i]] < limit) {
+					ties--;
+				}
+			}
+		}
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int s = active[i];
+			double v = viterbi[offset + s];
+			if (v < limit || (v == limit && ties-- > 0)) {
+				active[kept++] = s;
+			}
+		}
+		return kept;
+	}
+
+}
@@ -1,16 +1,17 @@
 package edu.nyu.cs.pos;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.CountTable;
+import edu.nyu.cs.pub.MathUtil;
 import edu.nyu.cs.pub.Matrix;
 import edu.nyu.cs.pub.Sentence;
-import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.SentenceStore;
 
 /**
  * Likelihood matrix
@@ -20,62 +21,61 @@ import edu.nyu.cs.pub.Token;
  */
 public class EmissionMatrix extends Matrix {
 
-	// probability that a NNS followed by VBZ
-	private double NNS_AND_VBZ_PROB = 1.0;
+	// estimated probability of an OOV word, <K,V> = <Tag,Probability by
+	// signature>
+	private Map<String, double[]> oovProb = new HashMap<String, double[]>();
 
-	// probability that a NNS followed by VB
-	private double NN_AND_VB_PROB = 1.0;
+	// cost of the same
+	private Map<String, double[]> oovCost = new HashMap<String, double[]>();
 
-	// highest probability of a NP
-	private double NP_PROB = 0.0;
+	// estimated probability of an OOV word under a tag with no heuristic
+	private double defaultOOVProb = 1.0;
 
-	// highest probability of a CD
-	private double CD_PROB = 0.0;
-
-	// highest probability of a NNPS
-	private double NNPS_PROB = 0.0;
-
-	// highest probability of a VBN
-	private double VBN_PROB = 1.0;
-
-	// highest probability of a RB
-	private double RB_PROB = 1.0;
-
-	// highest probability of a JJ
-	private double JJ_PROB = 1.0;
-
-	// highest probability of a NN
-	private double NN_PROB = 1.0;
-
-	// highest probability of a VBG
-	private double VBG_PROB = 1.0;
+	private double defaultOOVCost = 0.0;
 
 	public EmissionMatrix(Corpus corpus) {
+		this(corpus, null);
+	}
+
+	/**
+	 * @param corpus
+	 *            training corpus
+	 * @param executor
+	 *            executor to count on in parallel, or null
+	 */
+	public EmissionMatrix(Corpus corpus, ExecutorService executor) {
 		super(corpus);
-		// initialize transition matrix
-		initialize();
+		// initialize emission matrix
+		CountTable counts = count(executor, getCounter());
+		bigramMatrix = counts.getBigramCounts();
 		// compute probability
 		normalize();
+		// estimate OOV probabilities
+		estimateOOV();
 	}
 
-	private void initialize() {
-		List<Sentence> sentences = getCorpus().getSentences();
-		for (Sentence sentence : sentences) {
-			for (Token token : sentence.getTokens()) {
-				String word = token.getLiteral();
-				String tag = token.getPosTag();
-				if (bigramMatrix.get(tag) == null) {
-					Map<String, Double> priorMap = new HashMap<String, Double>();
-					bigramMatrix.put(tag, priorMap);
-				}
-				if (bigramMatrix.get(tag).get(word) == null) {
-					Double value = 0.0;
-					bigramMatrix.get(tag).put(word, value);
+	@Override
+	protected Counter getCounter() {
+		return new Counter() {
+			public void count(SentenceStore store, int sentence,
+					CountTable counts) {
+				int end = store.end(sentence);
+				for (int token = store.begin(sentence); token < end; token++) {
+					counts.addBigram(store.getTagId(token), store
+							.getLiteralId(token));
 				}
-				Double value = bigramMatrix.get(tag).get(word);
-				bigramMatrix.get(tag).put(word, ++value);
 			}
-		}
+		};
+	}
+
+	/*
+	 * OOV estimates depend on the lowest and highest probabilities of rows,
+	 * so they are estimated again.
+	 */
+	@Override
+	public void update(List<Sentence> sentences) {
+		super.update(sentences);
+		estimateOOV();
 	}
 
 	/*
@@ -84,233 +84,157 @@ public class EmissionMatrix extends Matrix {
 	 */
 	@Override
 	public double getItem(String state, String word) {
-		// if out of vocabulary
-		boolean oov = !(getCorpus().containsWord(word));
-		if (oov) {
-			if (startsWithCapital(word) && word.toLowerCase().endsWith("s")
-					&& state.equals("NNPS")) {
-				// NP
-				return getHighestProbForNNPS();
-			}
-			if ((startsWithCapital(word)) && state.equals("NNP")) {
-				// NP
-				return getHighestProbForNNP();
-			}
-			if (startsWithNum(word) && state.equals("CD")) {
-				// CD
-				return getHighestProbForCD();
-			}
-			if (word.toLowerCase().endsWith("s")
-					&& (state.equals("NNS") || state.equals("VBZ"))) {
-				// NNS and VBZ
-				return getLowestProbForNNSAndVBZ();
-			}
-			if (word.toLowerCase().endsWith("ed") && state.equals("VBN")) {
-				// VBN
-				return getLowestProbForVBN();
-			}
-			if (word.toLowerCase().endsWith("ly") && state.equals("RB")) {
-				// RB
-				return getLowestProbForRB();
-			}
-			if ((word.toLowerCase().endsWith("able")
-					|| word.toLowerCase().endsWith("al") || word.contains("-"))
-					&& state.equals("JJ")) {
-				// JJ
-				return getLowestProbForJJ();
-			}
-			if (word.toLowerCase().endsWith("ion") && state.equals("NN")) {
-				// NN
-				return getLowestProbForNN();
-			}
-			if (word.toLowerCase().endsWith("ing") && state.equals("VBG")) {
-				// NN
-				return getLowestProbForVBG();
-			} else {
-				// use the lowest probabilities for NN and JJ.
-				return getLowestProbForNNAndVB();
-			}
-		} else {
+		int signature = getSignature(word);
+		if (signature < 0) {
 			// search with case sensitive
-			double caseSenstive = super.getItem(state, word);
-			return caseSenstive;
+			return super.getItem(state, word);
 		}
+		return getOOVItem(state, signature);
 	}
 
-	private double getHighestProbForNNPS() {
-		if (NNPS_PROB == 0.0) {
-			Map<String, Double> NNSMap = super.getRow("NNPS");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob > NNPS_PROB) {
-					NNPS_PROB = prob;
-				}
-			}
-		}
-		return NNPS_PROB;
-	}
-
-	private double getLowestProbForVBG() {
-		if (VBG_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("VBG");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < VBG_PROB) {
-					VBG_PROB = prob;
-				}
-			}
-		}
-		return VBG_PROB;
-	}
-
-	private double getLowestProbForNN() {
-		if (NN_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("NN");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < NN_PROB) {
-					NN_PROB = prob;
-				}
-			}
-		}
-		return NN_PROB;
-	}
-
-	private double getLowestProbForJJ() {
-		if (JJ_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("JJ");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < JJ_PROB) {
-					JJ_PROB = prob;
-				}
-			}
-		}
-		return JJ_PROB;
-	}
-
-	private double getLowestProbForRB() {
-		if (RB_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("RB");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < RB_PROB) {
-					RB_PROB = prob;
-				}
-			}
-		}
-		return RB_PROB;
-	}
-
-	private double getLowestProbForVBN() {
-		if (VBN_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("VBN");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < VBN_PROB) {
-					VBN_PROB = prob;
-				}
-			}
+	/*
+	 * Costs of known words are read from the normalized matrix, OOV words fall
+	 * back on the cost of their estimated probability.
+	 */
+	@Override
+	public double getCost(String state, String word) {
+		int signature = getSignature(word);
+		if (signature < 0) {
+			return super.getCost(state, word);
 		}
-		return VBN_PROB;
+		return getOOVCost(state, signature);
 	}
 
-	private double getHighestProbForCD() {
-		if (CD_PROB == 0.0) {
-			Map<String, Double> NNSMap = super.getRow("CD");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob > CD_PROB) {
-					CD_PROB = prob;
-				}
-			}
+	/**
+	 * Analyse a word once, so that its probabilities can be looked up by
+	 * signature
+	 *
+	 * @param word
+	 *            any word
+	 * @return OOV signature of given word, or -1 if the word is in vocabulary
+	 * @see OOVSignature
+	 */
+	public int getSignature(String word) {
+		if (getCorpus().containsWord(word)) {
+			return -1;
 		}
-		return CD_PROB;
+		return OOVSignature.of(word);
 	}
 
-	private double getHighestProbForNNP() {
-		if (NP_PROB == 0.0) {
-			Map<String, Double> NNSMap = super.getRow("NNP");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob > NP_PROB) {
-					NP_PROB = prob;
-				}
-			}
-		}
-		return NP_PROB;
+	/**
+	 * @return vocabulary of training corpus, in lower case
+	 */
+	public Set<String> getVocabulary() {
+		return getCorpus().getVocabulary();
 	}
 
-	boolean startsWithCapital(String s) {
-		return Pattern.compile("^[A-Z]").matcher(s).find();
+	/**
+	 * @param state
+	 *            tag
+	 * @param signature
+	 *            signature of an OOV word
+	 * @return estimated probability of the word under given tag
+	 */
+	public double getOOVItem(String state, int signature) {
+		double[] row = oovProb.get(state);
+		return (row == null) ? defaultOOVProb : row[signature];
 	}
 
-	boolean startsWithNum(String s) {
-		return Pattern.compile("^.*[0-9].*").matcher(s).find();
+	/**
+	 * @param state
+	 *            tag
+	 * @param signature
+	 *            signature of an OOV word
+	 * @return cost of the word under given tag
+	 */
+	public double getOOVCost(String state, int signature) {
+		double[] row = oovCost.get(state);
+		return (row == null) ? defaultOOVCost : row[signature];
 	}
 
-	private double getLowestProbForNNSAndVBZ() {
-		if (NNS_AND_VBZ_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("NNS");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < NNS_AND_VBZ_PROB) {
-					NNS_AND_VBZ_PROB = prob;
-				}
-			}
-			Map<String, Double> VBZMap = super.getRow("VBZ");
-			Iterator<Entry<String, Double>> vbzIt = VBZMap.entrySet()
-					.iterator();
-			while (vbzIt.hasNext()) {
-				double prob = vbzIt.next().getValue();
-				if (prob < NNS_AND_VBZ_PROB) {
-					NNS_AND_VBZ_PROB = prob;
+	/*
+	 * Fill in the probability table of every tag and signature. If a capital
+	 * word ends in "s", use the highest probability of NNPS, if it starts with
+	 * a capital, the highest of NNP, and if it contains a digit, the highest of
+	 * CD. By suffix, use the lowest probability of NNS and VBZ for "s", VBN for
+	 * "ed", RB for "ly", JJ for "able", "al" or a hyphen, NN for "ion" and VBG
+	 * for "ing". Any other tag takes the lowest probability of NN and VB.
+	 */
+	private void estimateOOV() {
+		double nnps = getHighestItem("NNPS");
+		double nnp = getHighestItem("NNP");
+		double cd = getHighestItem("CD");
+		double nnsAndVbz = lowest("NNS", "VBZ");
+		double vbn = lowest("VBN");
+		double rb = lowest("RB");
+		double jj = lowest("JJ");
+		double nn = lowest("NN");
+		double vbg = lowest("VBG");
+		defaultOOVProb = lowest("NN", "VB");
+		defaultOOVCost = MathUtil.cost(defaultOOVProb);
+		for (String state : getKeys()) {
+			double[] prob = new double[OOVSignature.COUNT];
+			double[] cost = new double[OOVSignature.COUNT];
+			for (int signature = 0; signature < OOVSignature.COUNT; signature++) {
+				boolean capital = OOVSignature.has(signature,
+						OOVSignature.CAPITAL);
+				int suffix = OOVSignature.suffix(signature);
+				double p = defaultOOVProb;
+				if (state.equals("NNPS")) {
+					if (capital && suffix == OOVSignature.SUFFIX_S) {
+						p = nnps;
+					}
+				} else if (state.equals("NNP")) {
+					if (capital) {
+						p = nnp;
+					}
+				} else if (state.equals("CD")) {
+					if (OOVSignature.has(signature, OOVSignature.NUMERIC)) {
+						p = cd;
+					}
+				} else if (state.equals("NNS") || state.equals("VBZ")) {
+					if (suffix == OOVSignature.SUFFIX_S) {
+						p = nnsAndVbz;
+					}
+				} else if (state.equals("VBN")) {
+					if (suffix == OOVSignature.SUFFIX_ED) {
+						p = vbn;
+					}
+				} else if (state.equals("RB")) {
+					if (suffix == OOVSignature.SUFFIX_LY) {
+						p = rb;
+					}
+				} else if (state.equals("JJ")) {
+					if (suffix == OOVSignature.SUFFIX_ABLE
+							|| suffix == OOVSignature.SUFFIX_AL
+							|| OOVSignature.has(signature, OOVSignature.HYPHEN)) {
+						p = jj;
+					}
+				} else if (state.equals("NN")) {
+					if (suffix == OOVSignature.SUFFIX_ION) {
+						p = nn;
+					}
+				} else if (state.equals("VBG")) {
+					if (suffix == OOVSignature.SUFFIX_ING) {
+						p = vbg;
+					}
 				}
+				prob[signature] = p;
+				cost[signature] = MathUtil.cost(p);
 			}
+			oovProb.put(state, prob);
+			oovCost.put(state, cost);
 		}
-		return NNS_AND_VBZ_PROB;
 	}
 
-	private double getLowestProbForNNAndVB() {
-		if (NN_AND_VB_PROB == 1.0) {
-			Map<String, Double> NNSMap = super.getRow("NN");
-			Iterator<Entry<String, Double>> nnsIt = NNSMap.entrySet()
-					.iterator();
-			while (nnsIt.hasNext()) {
-				double prob = nnsIt.next().getValue();
-				if (prob < NN_AND_VB_PROB) {
-					NN_AND_VB_PROB = prob;
-				}
-			}
-			Map<String, Double> VBZMap = super.getRow("VB");
-			Iterator<Entry<String, Double>> vbzIt = VBZMap.entrySet()
-					.iterator();
-			while (vbzIt.hasNext()) {
-				double prob = vbzIt.next().getValue();
-				if (prob < NN_AND_VB_PROB) {
-					NN_AND_VB_PROB = prob;
-				}
-			}
+	/**
+	 * @return lowest probability in given rows, 1 if there are no such rows
+	 */
+	private double lowest(String... rows) {
+		double res = 1.0;
+		for (String row : rows) {
+			res = Math.min(res, getLowestItem(row));
 		}
-		return NN_AND_VB_PROB;
-
+		return res;
 	}
 }
@@ -0,0 +1,239 @@
+package edu.nyu.cs.pos;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.ViterbiWorkspace;
+
+/**
+ * Forward-backward algorithm over a {@link CompiledModel}.
+ * <p>
+ * Besides the best tag sequence, computes the posterior probability of every
+ * tag at every token, see {@link TagPosteriors}. The forward pass and the
+ * Viterbi recursion share one walk over the lattice: for each pair of states
+ * the transition is read once, added as a cost for Viterbi and multiplied as a
+ * probability for the forward sum. A backward pass then turns forward
+ * probabilities into posteriors.
+ * <p>
+ * Forward and backward probabilities are rescaled to sum to one at each
+ * position, so long sentences do not underflow; the scale factors give the
+ * probability of the sentence. The Viterbi path is the one
+ * {@link CompiledViterbi} finds without beam.
+ *
+ * @author Daniel Wu
+ * @see TagPosteriors
+ */
+public class ForwardBackward implements Decoder {
+
+	// natural log of 10, costs are in log10 units
+	private static final double LN10 = Math.log(10);
+
+	private CompiledModel model = null;
+
+	// restrict known words to their observed tags
+	private boolean tagDictionary = false;
+
+	// transition probability <previous tag id, tag id>
+	private final double[][] transitionProb;
+
+	// probability of a tag starting a sentence
+	private final double[] startProb;
+
+	// probability of a tag ending a sentence
+	private final double[] endProb;
+
+	public ForwardBackward(CompiledModel model) {
+		this(model, false);
+	}
+
+	/**
+	 * @param model
+	 *            compiled model
+	 * @param tagDictionary
+	 *            true to consider only observed tags of known words
+	 */
+	public ForwardBackward(CompiledModel model, boolean tagDictionary) {
+		this.model = model;
+		this.tagDictionary = tagDictionary;
+		int N = model.numberOfTags();
+		transitionProb = new double[N][N];
+		startProb = new double[N];
+		endProb = new double[N];
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j < N; j++) {
+				transitionProb[i][j] = prob(model.transitionCost(i, j));
+			}
+			startProb[i] = prob(model.startCost(i));
+			endProb[i] = prob(model.endCost(i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.Decoder#decode(edu.nyu.cs.pub.Sentence)
+	 */
+	public Sentence decode(Sentence sentence) {
+		analyse(sentence);
+		return sentence;
+	}
+
+	/**
+	 * Decode a sentence, tags of the Viterbi path are set in place
+	 *
+	 * @param sentence
+	 *            sentence to tag
+	 * @return tag posteriors of each token
+	 */
+	public TagPosteriors analyse(Sentence sentence) {
+		List<Token> tokens = sentence.getTokens();
+		int N = model.numberOfTags();
+		int T = tokens.size();
+		int[] path = new int[T];
+		double[][] alpha = new double[T][N];
+		if (T == 0) {
+			return new TagPosteriors(model, alpha, path, 0.0);
+		}
+		double[][] transition = model.getTransitionCosts();
+		ViterbiWorkspace workspace = ViterbiWorkspace.get().ensure(N, T);
+		double[] viterbi = workspace.costs();
+		int[] backtrack = workspace.backpointers();
+		double[] b = workspace.row();
+		// emission probabilities <position, tag id>, then scale factors of
+		// each position, then two rows of backward probabilities
+		double[] scratch = workspace.scratch(T * N + T + 2 * N);
+		int scales = T * N;
+		int[][] candidates = new int[T][];
+
+		// initialize first step
+		candidates[0] = emissionCost(tokens.get(0).getLiteral(), b);
+		for (int s : candidates[0]) {
+			viterbi[s] = model.startCost(s) + b[s];
+			backtrack[s] = -1;
+			scratch[s] = prob(b[s]);
+			alpha[0][s] = startProb[s] * scratch[s];
+		}
+		scratch[scales] = normalize(alpha[0], candidates[0]);
+
+		// recursive step, Viterbi and forward together
+		for (int t = 1; t < T; t++) {
+			candidates[t] = emissionCost(tokens.get(t).getLiteral(), b);
+			int[] previousStates = candidates[t - 1];
+			double[] previousAlpha = alpha[t - 1];
+			int previous = (t - 1) * N;
+			int current = t * N;
+			for (int s : candidates[t]) {
+				double argmax = Double.MAX_VALUE;
+				int backtrackArg = -1;
+				double sum = 0.0;
+				for (int s1 : previousStates) {
+					double v = viterbi[previous + s1];
+					// as in CompiledViterbi, a zero cost marks no path
+					if (v != 0.0 && v + transition[s1][s] < argmax) {
+						argmax = v + transition[s1][s];
+						backtrackArg = s1;
+					}
+					sum += previousAlpha[s1] * transitionProb[s1][s];
+				}
+				viterbi[current + s] = argmax + b[s];
+				backtrack[current + s] = backtrackArg;
+				scratch[current + s] = prob(b[s]);
+				alpha[t][s] = sum * scratch[current + s];
+			}
+			scratch[scales + t] = normalize(alpha[t], candidates[t]);
+		}
+
+		// terminate step
+		double best = Double.MAX_VALUE;
+		int tag = -1;
+		int last = (T - 1) * N;
+		double end = 0.0;
+		for (int s : candidates[T - 1]) {
+			double v = viterbi[last + s];
+			if (v != 0.0 && v + model.endCost(s) < best) {
+				best = v + model.endCost(s);
+				tag = s;
+			}
+			end += alpha[T - 1][s] * endProb[s];
+		}
+		double cost = -Math.log10(end);
+		for (int t = 0; t < T; t++) {
+			cost -= Math.log10(scratch[scales + t]);
+		}
+		// backtracking, tags are set in place
+		Arrays.fill(path, -1);
+		for (int t = T - 1; t >= 0 && tag >= 0; t--) {
+			path[t] = tag;
+			tokens.get(t).setTag(model.getTag(tag));
+			tag = backtrack[t * N + tag];
+		}
+
+		// backward step, forward probabilities become posteriors in place
+		int beta = scales + T;
+		int betaNext = beta + N;
+		for (int s : candidates[T - 1]) {
+			scratch[betaNext + s] = endProb[s];
+			alpha[T - 1][s] *= endProb[s];
+		}
+		normalize(alpha[T - 1], candidates[T - 1]);
+		for (int t = T - 2; t >= 0; t--) {
+			int following = (t + 1) * N;
+			double scale = scratch[scales + t + 1];
+			for (int s : candidates[t]) {
+				double sum = 0.0;
+				for (int s2 : candidates[t + 1]) {
+					sum += transitionProb[s][s2] * scratch[following + s2]
+							* scratch[betaNext + s2];
+				}
+				scratch[beta + s] = sum / scale;
+				alpha[t][s] *= scratch[beta + s];
+			}
+			normalize(alpha[t], candidates[t]);
+			int swap = beta;
+			beta = betaNext;
+			betaNext = swap;
+		}
+		return new TagPosteriors(model, alpha, path, cost);
+	}
+
+	/**
+	 * Look up emission costs of a word
+	 *
+	 * @return tags to consider for the word
+	 */
+	private int[] emissionCost(String word, double[] row) {
+		int wordId = model.getWordId(word);
+		model.emissionCost(wordId, word, row);
+		return model.candidates(tagDictionary ? wordId : -1);
+	}
+
+	/**
+	 * Rescale a row to sum to one over given states, unless it sums to zero
+	 *
+	 * @return sum before rescaling, 1 if it was zero
+	 */
+	private static double normalize(double[] row, int[] states) {
+		double sum = 0.0;
+		for (int s : states) {
+			sum += row[s];
+		}
+		if (sum == 0.0) {
+			return 1.0;
+		}
+		for (int s : states) {
+			row[s] /= sum;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return probability of a cost, see
+	 *         {@link edu.nyu.cs.pub.MathUtil#cost(double)}
+	 */
+	private static double prob(double cost) {
+		return Math.exp(-cost * LN10);
+	}
+}
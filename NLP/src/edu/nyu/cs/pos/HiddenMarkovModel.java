@@ -1,7 +1,16 @@
 package edu.nyu.cs.pos;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 import edu.nyu.cs.pub.AbstractModel;
 import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Metrics.Timer;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
 
 /**
  * POS Tagger using Hidden Markov Model
@@ -11,41 +20,213 @@ import edu.nyu.cs.pub.Decoder;
  */
 public class HiddenMarkovModel extends AbstractModel {
 
+	// time to train, corpus loading included
+	private static final Timer TRAIN = Metrics.instance.timer("hmm.train");
+
+	// time to load a saved model
+	private static final Timer LOAD = Metrics.instance.timer("hmm.load");
+
+	// int-indexed form of prior and likelihood matrices, used in decoding
+	protected volatile CompiledModel compiledModel = null;
+
+	// maximum number of states kept per position, 0 for no limit
+	protected int beamWidth = 0;
+
+	// maximum cost distance from best state of a position
+	protected double beamThreshold = Double.POSITIVE_INFINITY;
+
+	// consider only observed tags of known words
+	protected boolean useTagDictionary = true;
+
 	/**
 	 * Execute command: 1. Training & Test java HiddenMarkovModel -t
-	 * training.pos -d test.text
+	 * training.pos -d test.text [-b beam_width] [-p threads] [-s] [-o lag]
+	 * [-w model.bin] 2. Test with saved model java HiddenMarkovModel -m model.bin
+	 * -d test.text [options]
 	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) throws Exception {
 		if (args.length < 4) {
 			System.out
-					.println("Please specify args\n Typical usage: java -jar HMM.jar -t training.pos -d test.text\n");
+					.println("Please specify args\n Typical usage: java -jar HMM.jar -t training.pos|-m model.bin -d test.text [-b beam_width] [-p threads] [-s] [-o lag] [-w model.bin] [-l]\n");
 			return;
 		}
 		HiddenMarkovModel bigram = new HiddenMarkovModel();
-		// training
-		if ("-t".equals(args[0])) {
-			long t1 = System.currentTimeMillis();
-			bigram.train(args[1]);
-			long t2 = System.currentTimeMillis();
-			System.out.println("Training time: " + (t2 - t1));
+		try {
+			// options
+			boolean stream = false;
+			int lag = 0;
+			String modelFile = null;
+			for (int i = 4; i < args.length; i++) {
+				if ("-b".equals(args[i]) && i + 1 < args.length) {
+					bigram.setBeamWidth(Integer.parseInt(args[++i]));
+				} else if ("-p".equals(args[i]) && i + 1 < args.length) {
+					bigram.setParallelism(Integer.parseInt(args[++i]));
+				} else if ("-s".equals(args[i])) {
+					stream = true;
+				} else if ("-o".equals(args[i]) && i + 1 < args.length) {
+					lag = Integer.parseInt(args[++i]);
+				} else if ("-w".equals(args[i]) && i + 1 < args.length) {
+					modelFile = args[++i];
+				} else if ("-l".equals(args[i])) {
+					// training corpus larger than memory
+					bigram.setStreaming(true);
+				}
+			}
+			// training
+			if ("-t".equals(args[0])) {
+				bigram.train(args[1]);
+				if (modelFile != null) {
+					bigram.save(modelFile);
+				}
+			} else if ("-m".equals(args[0])) {
+				bigram.load(args[1]);
+			}
+			if ("-d".equals(args[2])) {
+				if (lag > 0) {
+					bigram.tagOnline(args[3], lag);
+				} else if (stream) {
+					bigram.tagStream(args[3]);
+				} else {
+					bigram.tag(args[3]);
+				}
+				System.out.print(Metrics.instance.dump());
+			} else {
+				System.out.println("Wrong command, Please specify args\n Typical usage: java -jar HMM.jar -t training.pos|-m model.bin -d test.text [-b beam_width] [-p threads] [-s] [-o lag] [-w model.bin] [-l]\n");
+				return;
+			}
+		} finally {
+			bigram.close();
 		}
-		if ("-d".equals(args[2])) {
-			long t2 = System.currentTimeMillis();
-			bigram.tag(args[3]);
-			long t3 = System.currentTimeMillis();
-			System.out.println("Decoding time: " + (t3 - t2));
-		} else {
-			System.out.println("Wrong command, Please specify args\n Typical usage: java -jar HMM.jar -t training.pos -d test.text\n");
-			return;
+	}
+
+	@Override
+	public void train(String filePath) throws IOException {
+		long start = TRAIN.start();
+		super.train(filePath);
+		compile();
+		TRAIN.stop(start);
+	}
+
+	/**
+	 * Absorb newly annotated sentences without training again: counts of the
+	 * sentences are added to the trained matrices, only the rows they touch
+	 * are normalized again, and the decoding model is recompiled. Decoders
+	 * handed out before keep the previous model.
+	 * 
+	 * @param sentences
+	 *            tagged sentences
+	 * @throws IllegalStateException
+	 *             if the model has been loaded instead of trained
+	 */
+	public synchronized void update(List<Sentence> sentences) {
+		if (corpus == null || priorMatrix == null || likelihoodMatrix == null) {
+			throw new IllegalStateException(
+					"Only a trained model can be updated\n");
 		}
+		corpus.addSentences(sentences);
+		priorMatrix.update(sentences);
+		likelihoodMatrix.update(sentences);
+		for (Sentence sentence : sentences) {
+			for (Token token : sentence.getTokens()) {
+				tagDictionary.add(token.getLiteral(), token.getPosTag());
+			}
+		}
+		compile();
+	}
+
+	/**
+	 * Build decoding form of trained matrices
+	 */
+	protected void compile() {
+		compiledModel = new CompiledModel(priorMatrix, likelihoodMatrix,
+				tagDictionary);
+	}
+
+	/**
+	 * Save trained model in binary format, see {@link CompiledModel#save(File)}
+	 * 
+	 * @param filePath
+	 *            model file path
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void save(String filePath) throws IOException {
+		compiledModel.save(new File(filePath));
+	}
+
+	/**
+	 * Load a saved model instead of training. The file is memory mapped, so
+	 * loading is quick and the model is shared by processes on the same host.
+	 * 
+	 * @param filePath
+	 *            model file path
+	 * @throws IOException
+	 *             if file cannot be read or is no model file
+	 */
+	public void load(String filePath) throws IOException {
+		long start = LOAD.start();
+		compiledModel = CompiledModel.load(new File(filePath));
+		LOAD.stop(start);
 	}
 
 	@Override
 	protected Decoder getDecoder() {
-		// using viterbi decoder
-		return new Viterbi(priorMatrix, likelihoodMatrix);
+		// using viterbi decoder over compiled model
+		return new CompiledViterbi(compiledModel, beamWidth, beamThreshold,
+				useTagDictionary);
+	}
+
+	@Override
+	protected LatticeScorer getScorer() {
+		return new CompiledViterbi(compiledModel, 0, Double.POSITIVE_INFINITY,
+				useTagDictionary).scorer();
+	}
+
+	/**
+	 * Forward-backward decoder over the trained model, for tag posteriors
+	 * along with the best path, see {@link ForwardBackward#analyse(Sentence)}.
+	 * Decodes the full lattice, beam settings do not apply.
+	 * 
+	 * @return forward-backward decoder
+	 */
+	public ForwardBackward getForwardBackward() {
+		return new ForwardBackward(compiledModel, useTagDictionary);
+	}
+
+	/**
+	 * Decode with beam pruning, keeping at most given number of tags per
+	 * word. Narrow beams trade a little accuracy for throughput.
+	 * 
+	 * @param beamWidth
+	 *            maximum number of tags kept per word, 0 for no limit
+	 */
+	public void setBeamWidth(int beamWidth) {
+		this.beamWidth = beamWidth;
+	}
+
+	/**
+	 * Decode with beam pruning, dropping tags whose path costs more than
+	 * given threshold above the best path at the same word.
+	 * 
+	 * @param beamThreshold
+	 *            cost threshold, in log10 units;
+	 *            {@link Double#POSITIVE_INFINITY} for no limit
+	 */
+	public void setBeamThreshold(double beamThreshold) {
+		this.beamThreshold = beamThreshold;
+	}
+
+	/**
+	 * Restrict each word seen in training corpus to the tags it has been seen
+	 * with. Unknown words always consider every tag. On by default.
+	 * 
+	 * @param useTagDictionary
+	 *            false to consider every tag for every word
+	 */
+	public void setUseTagDictionary(boolean useTagDictionary) {
+		this.useTagDictionary = useTagDictionary;
 	}
 
 }
@@ -0,0 +1,80 @@
+package edu.nyu.cs.pos;
+
+/**
+ * Min-plus product of a Viterbi column with the transition table, the inner
+ * loop of {@link CompiledViterbi}.
+ * <p>
+ * For every state <code>s</code>, finds the cheapest previous state
+ * <code>s1</code> and the cost of reaching <code>s</code> through it. Ties
+ * go to the first previous state listed, so every implementation finds the
+ * same path.
+ * <p>
+ * {@link #instance} is the fastest implementation available: a kernel on the
+ * JDK Vector API, built from the <code>vector</code> source root, if it is on
+ * the class path and the JVM runs with
+ * <code>--add-modules jdk.incubator.vector</code>; a scalar loop otherwise.
+ * Setting system property <code>edu.nyu.cs.pos.scalar</code> to true forces
+ * the scalar loop.
+ *
+ * @author Daniel Wu
+ */
+public abstract class MinPlusKernel {
+
+	// class name of the Vector API kernel, loaded if present
+	private static final String VECTOR_KERNEL = "edu.nyu.cs.pos.VectorMinPlusKernel";
+
+	public static final MinPlusKernel instance = create();
+
+	private static MinPlusKernel create() {
+		if (!Boolean.getBoolean("edu.nyu.cs.pos.scalar")) {
+			try {
+				return (MinPlusKernel) Class.forName(VECTOR_KERNEL)
+						.getDeclaredConstructor().newInstance();
+			} catch (Exception e) {
+				// not built, fall back
+			} catch (LinkageError e) {
+				// jdk.incubator.vector not available, fall back
+			}
+		}
+		return new ScalarMinPlusKernel();
+	}
+
+	/**
+	 * @return the scalar kernel
+	 */
+	static MinPlusKernel scalar() {
+		return new ScalarMinPlusKernel();
+	}
+
+	/**
+	 * Min-plus product over all N states
+	 *
+	 * @param costs
+	 *            cost lattice
+	 * @param from
+	 *            first cell of previous position
+	 * @param states
+	 *            previous states to extend, in ascending order
+	 * @param count
+	 *            number of previous states
+	 * @param transition
+	 *            flat transition table, <code>s1 * N + s</code>
+	 * @param N
+	 *            number of states
+	 * @param out
+	 *            output, cheapest cost of reaching each state, or
+	 *            {@link Double#MAX_VALUE} if there is no previous state
+	 * @param arg
+	 *            output, previous state on that path, or -1
+	 * @param to
+	 *            first cell of the outputs to write
+	 */
+	public abstract void minPlus(double[] costs, int from, int[] states,
+			int count, double[] transition, int N, double[] out, int[] arg,
+			int to);
+
+	/**
+	 * @return name of the implementation
+	 */
+	public abstract String getName();
+}
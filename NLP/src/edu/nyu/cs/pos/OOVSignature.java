@@ -0,0 +1,112 @@
+package edu.nyu.cs.pos;
+
+/**
+ * Signature of an out of vocabulary word.
+ * <p>
+ * The features {@link EmissionMatrix} uses to guess the tag of an unknown word,
+ * packed into a small int: starts with a capital, contains a digit, contains a
+ * hyphen, and its suffix class. A word is analysed once, by plain character
+ * tests, and the signature then indexes a precomputed probability table.
+ *
+ * @author Daniel Wu
+ *
+ */
+public final class OOVSignature {
+
+	// starts with A-Z
+	public static final int CAPITAL = 1;
+
+	// contains 0-9
+	public static final int NUMERIC = 2;
+
+	// contains '-'
+	public static final int HYPHEN = 4;
+
+	// suffix classes, stored above the flags
+	public static final int SUFFIX_NONE = 0;
+
+	public static final int SUFFIX_S = 1;
+
+	public static final int SUFFIX_ED = 2;
+
+	public static final int SUFFIX_LY = 3;
+
+	public static final int SUFFIX_ABLE = 4;
+
+	public static final int SUFFIX_AL = 5;
+
+	public static final int SUFFIX_ION = 6;
+
+	public static final int SUFFIX_ING = 7;
+
+	private static final int SUFFIX_SHIFT = 3;
+
+	// suffixes, indexed by suffix class; no two share a last letter
+	private static final String[] SUFFIXES = { null, "s", "ed", "ly", "able",
+			"al", "ion", "ing" };
+
+	// number of distinct signatures
+	public static final int COUNT = SUFFIXES.length << SUFFIX_SHIFT;
+
+	private OOVSignature() {
+	}
+
+	/**
+	 * Analyse a word
+	 *
+	 * @param word
+	 *            any word
+	 * @return signature, between 0 and {@link #COUNT} - 1
+	 */
+	public static int of(String word) {
+		int signature = 0;
+		int length = word.length();
+		if (length > 0) {
+			char first = word.charAt(0);
+			if (first >= 'A' && first <= 'Z') {
+				signature |= CAPITAL;
+			}
+		}
+		for (int i = 0; i < length; i++) {
+			char c = word.charAt(i);
+			if (c >= '0' && c <= '9') {
+				signature |= NUMERIC;
+			} else if (c == '-') {
+				signature |= HYPHEN;
+			}
+		}
+		for (int suffix = 1; suffix < SUFFIXES.length; suffix++) {
+			if (endsWithIgnoreCase(word, SUFFIXES[suffix])) {
+				signature |= suffix << SUFFIX_SHIFT;
+				break;
+			}
+		}
+		return signature;
+	}
+
+	private static boolean endsWithIgnoreCase(String word, String suffix) {
+		int offset = word.length() - suffix.length();
+		return offset >= 0
+				&& word.regionMatches(true, offset, suffix, 0, suffix.length());
+	}
+
+	/**
+	 * @param signature
+	 *            word signature
+	 * @param flag
+	 *            {@link #CAPITAL}, {@link #NUMERIC} or {@link #HYPHEN}
+	 * @return true if word has given feature
+	 */
+	public static boolean has(int signature, int flag) {
+		return (signature & flag) != 0;
+	}
+
+	/**
+	 * @param signature
+	 *            word signature
+	 * @return suffix class, one of the <code>SUFFIX_*</code> constants
+	 */
+	public static int suffix(int signature) {
+		return signature >>> SUFFIX_SHIFT;
+	}
+}
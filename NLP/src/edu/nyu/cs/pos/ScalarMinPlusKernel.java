@@ -0,0 +1,33 @@
+package edu.nyu.cs.pos;
+
+/**
+ * Plain loop implementation of {@link MinPlusKernel}
+ *
+ * @author Daniel Wu
+ */
+class ScalarMinPlusKernel extends MinPlusKernel {
+
+	@Override
+	public void minPlus(double[] costs, int from, int[] states, int count,
+			double[] transition, int N, double[] out, int[] arg, int to) {
+		for (int s = 0; s < N; s++) {
+			double argmax = Double.MAX_VALUE;
+			int backtrackArg = -1;
+			for (int i = 0; i < count; i++) {
+				int s1 = states[i];
+				double log = costs[from + s1] + transition[s1 * N + s];
+				if (log < argmax) {
+					argmax = log;
+					backtrackArg = s1;
+				}
+			}
+			out[to + s] = argmax;
+			arg[to + s] = backtrackArg;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,136 @@
+package edu.nyu.cs.pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Sentence;
+
+/**
+ * POS Tagger using second order Hidden Markov Model, i.e. tag trigrams
+ * 
+ * @author Daniel Wu
+ * 
+ */
+public class SecondOrderHiddenMarkovModel extends HiddenMarkovModel {
+
+	// beam width used unless set otherwise
+	public static final int DEFAULT_BEAM_WIDTH = 20;
+
+	// interpolated tag trigram transitions
+	private TrigramModel trigramModel = null;
+
+	public SecondOrderHiddenMarkovModel() {
+		beamWidth = DEFAULT_BEAM_WIDTH;
+	}
+
+	/**
+	 * Execute command: 1. Training & Test java SecondOrderHiddenMarkovModel -t
+	 * training.pos -d test.text [-b beam_width] [-p threads] [-s]
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 4) {
+			System.out
+					.println("Please specify args\n Typical usage: java -cp HMM.jar edu.nyu.cs.pos.SecondOrderHiddenMarkovModel -t training.pos -d test.text [-b beam_width] [-p threads] [-s]\n");
+			return;
+		}
+		SecondOrderHiddenMarkovModel trigram = new SecondOrderHiddenMarkovModel();
+		try {
+			// options
+			boolean stream = false;
+			for (int i = 4; i < args.length; i++) {
+				if ("-b".equals(args[i]) && i + 1 < args.length) {
+					trigram.setBeamWidth(Integer.parseInt(args[++i]));
+				} else if ("-p".equals(args[i]) && i + 1 < args.length) {
+					trigram.setParallelism(Integer.parseInt(args[++i]));
+				} else if ("-s".equals(args[i])) {
+					stream = true;
+				}
+			}
+			// training
+			if ("-t".equals(args[0])) {
+				trigram.train(args[1]);
+			}
+			if ("-d".equals(args[2])) {
+				if (stream) {
+					trigram.tagStream(args[3]);
+				} else {
+					trigram.tag(args[3]);
+				}
+				System.out.print(Metrics.instance.dump());
+			} else {
+				System.out.println("Wrong command, Please specify args\n Typical usage: java -cp HMM.jar edu.nyu.cs.pos.SecondOrderHiddenMarkovModel -t training.pos -d test.text [-b beam_width] [-p threads] [-s]\n");
+				return;
+			}
+		} finally {
+			trigram.close();
+		}
+	}
+
+	@Override
+	public void train(String filePath) throws IOException {
+		trigramModel = null;
+		super.train(filePath);
+	}
+
+	/*
+	 * Trigram transitions are counted over the corpus once, when trained;
+	 * updates add to them, see update.
+	 */
+	@Override
+	protected void compile() {
+		super.compile();
+		if (trigramModel == null) {
+			trigramModel = new TrigramModel(corpus, compiledModel);
+		}
+	}
+
+	/*
+	 * Counts of the sentences are added to the trigram transitions too.
+	 */
+	@Override
+	public synchronized void update(List<Sentence> sentences) {
+		super.update(sentences);
+		trigramModel = trigramModel.update(sentences, compiledModel);
+	}
+
+	/*
+	 * Trigram counts are saved in the same file as the compiled model.
+	 */
+	@Override
+	public void save(String filePath) throws IOException {
+		compiledModel.save(new File(filePath), trigramModel);
+	}
+
+	@Override
+	public void load(String filePath) throws IOException {
+		super.load(filePath);
+		if (compiledModel.getTrigramModel() == null) {
+			throw new IOException("Not a second order model file\n");
+		}
+		trigramModel = compiledModel.getTrigramModel();
+	}
+
+	/*
+	 * States of the second order lattice are tag pairs, which the first
+	 * order online decoder does not handle.
+	 */
+	@Override
+	protected LatticeScorer getScorer() {
+		throw new UnsupportedOperationException(
+				"Second order model cannot decode online\n");
+	}
+
+	@Override
+	protected synchronized Decoder getDecoder() {
+		// using viterbi decoder over tag pairs
+		return new TrigramViterbi(compiledModel, trigramModel, beamWidth,
+				beamThreshold, useTagDictionary);
+	}
+
+}
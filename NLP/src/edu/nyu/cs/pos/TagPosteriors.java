@@ -0,0 +1,120 @@
+package edu.nyu.cs.pos;
+
+/**
+ * Posterior tag distributions of a decoded sentence.
+ * <p>
+ * For each token, the probability of every tag given the whole sentence, as
+ * computed by {@link ForwardBackward}, together with the Viterbi path found in
+ * the same pass. The posterior of the Viterbi tag tells how confident the
+ * tagger is about a token; the lowest one over a sentence, see
+ * {@link #minConfidence()}, how confident it is about the sentence.
+ *
+ * @author Daniel Wu
+ * @see ForwardBackward
+ */
+public class TagPosteriors {
+
+	private final CompiledModel model;
+
+	// posterior <position, tag id>
+	private final double[][] posteriors;
+
+	// Viterbi tag id of each position, -1 if no path reaches it
+	private final int[] path;
+
+	// negative log10 probability of the sentence, all paths summed
+	private final double cost;
+
+	TagPosteriors(CompiledModel model, double[][] posteriors, int[] path,
+			double cost) {
+		this.model = model;
+		this.posteriors = posteriors;
+		this.path = path;
+		this.cost = cost;
+	}
+
+	/**
+	 * @return number of tokens
+	 */
+	public int length() {
+		return path.length;
+	}
+
+	/**
+	 * @param position
+	 *            token position
+	 * @param tag
+	 *            any tag
+	 * @return posterior probability of tag at position, 0 for an unknown tag
+	 */
+	public double getPosterior(int position, String tag) {
+		int id = model.getTagId(tag);
+		return (id < 0) ? 0.0 : posteriors[position][id];
+	}
+
+	/**
+	 * @param position
+	 *            token position
+	 * @return posterior probabilities at position, indexed by tag id of the
+	 *         {@link CompiledModel}
+	 */
+	public double[] getDistribution(int position) {
+		return posteriors[position].clone();
+	}
+
+	/**
+	 * @param position
+	 *            token position
+	 * @return tag on the Viterbi path, null if no path reaches the position
+	 */
+	public String getTag(int position) {
+		return (path[position] < 0) ? null : model.getTag(path[position]);
+	}
+
+	/**
+	 * @param position
+	 *            token position
+	 * @return tag with the highest posterior, which may differ from
+	 *         {@link #getTag(int)}
+	 */
+	public String getMostProbableTag(int position) {
+		double[] row = posteriors[position];
+		int best = 0;
+		for (int s = 1; s < row.length; s++) {
+			if (row[s] > row[best]) {
+				best = s;
+			}
+		}
+		return model.getTag(best);
+	}
+
+	/**
+	 * @param position
+	 *            token position
+	 * @return posterior probability of the Viterbi tag at position, 0 if no
+	 *         path reaches the position
+	 */
+	public double getConfidence(int position) {
+		int tag = path[position];
+		return (tag < 0) ? 0.0 : posteriors[position][tag];
+	}
+
+	/**
+	 * @return lowest confidence over the sentence, 1 for an empty sentence
+	 */
+	public double minConfidence() {
+		double res = 1.0;
+		for (int t = 0; t < path.length; t++) {
+			res = Math.min(res, getConfidence(t));
+		}
+		return res;
+	}
+
+	/**
+	 * @return negative log10 probability of the sentence, summed over all tag
+	 *         sequences
+	 */
+	public double getCost() {
+		return cost;
+	}
+}
@@ -1,16 +1,15 @@
 package edu.nyu.cs.pos;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import edu.nyu.cs.pub.Constant;
 import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.CountTable;
 import edu.nyu.cs.pub.Matrix;
-import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.SentenceStore;
+import edu.nyu.cs.pub.SymbolTable;
 import edu.nyu.cs.pub.TextTool;
-import edu.nyu.cs.pub.Token;
 
 /**
  * Transition Probability Matrix for Hidden Markov Model
@@ -20,87 +19,80 @@ import edu.nyu.cs.pub.Token;
  */
 public class TransitionMatrix extends Matrix {
 
-	private List<String[]> bigram = new ArrayList<String[]>();
-
-	private Map<String, Double> unigram = new HashMap<String, Double>();
-
 	public TransitionMatrix(Corpus corpus) {
+		this(corpus, null);
+	}
+
+	/**
+	 * @param corpus
+	 *            training corpus
+	 * @param executor
+	 *            executor to count on in parallel, or null
+	 */
+	public TransitionMatrix(Corpus corpus, ExecutorService executor) {
 		super(corpus);
 		// initialize transition matrix
-		initialize();
+		CountTable counts = count(executor, getCounter());
+		bigramMatrix = counts.getBigramCounts();
+		unigramMatrix = counts.getUnigramCounts();
 		// compute probability
 		normalize();
 	}
 
-	private void initialize() {
-		// initialize bigram model and unigram model
-		initializeModel();
-		// initialize matrix
-		initializeMatrix();
-	}
+	@Override
+	protected Counter getCounter() {
+		return new Counter() {
 
-	private void initializeMatrix() {
-		initializeBigramMatrix();
-		initializeUnigramMatrix();
-	}
+			// symbols of the last store counted, shared by worker threads
+			private volatile Bounds bounds = null;
 
-	private void initializeUnigramMatrix() {
-		super.unigramMatrix = this.unigram;
+			public void count(SentenceStore store, int sentence,
+					CountTable counts) {
+				Bounds b = bounds;
+				if (b == null || b.symbols != store.getSymbols()) {
+					b = new Bounds(store.getSymbols());
+					bounds = b;
+				}
+				countTags(store, sentence, b, counts);
+			}
+		};
 	}
 
-	private void initializeBigramMatrix() {
-		for (String[] biStr : bigram) {
-			// Tag
-			String n_1 = biStr[0];
-			// Following Tag
-			String n = biStr[1];
-			if (bigramMatrix.get(n_1) == null) {
-				Map<String, Double> priorMap = new HashMap<String, Double>();
-				bigramMatrix.put(n_1, priorMap);
-			}
-			if (bigramMatrix.get(n_1).get(n) == null) {
-				Double value = 0.0;
-				bigramMatrix.get(n_1).put(n, value);
-			}
-			Double value = bigramMatrix.get(n_1).get(n);
-			bigramMatrix.get(n_1).put(n, ++value);
+	/**
+	 * Ids of start and end symbols in a symbol table, interned once per table
+	 * rather than once per sentence
+	 */
+	private static final class Bounds {
+
+		private final SymbolTable symbols;
+
+		private final int start;
+
+		private final int end;
+
+		private Bounds(SymbolTable symbols) {
+			this.symbols = symbols;
+			this.start = symbols.intern(Constant.START_SYMBOL);
+			this.end = symbols.intern(Constant.END_SYMBOL);
 		}
 	}
 
 	/**
-	 * Initialize bigram model for tags
+	 * Count bigram model and unigram model of tags in a sentence
 	 */
-	private void initializeModel() {
-		List<Sentence> sentences = getCorpus().getSentences();
-		for (Sentence sentence : sentences) {
-			List<Token> tokens = sentence.getTokens();
-			for (int i = -1; i < tokens.size(); i++) {
-				String tag_n_1 = "";
-				String tag_n = "";
-				// add in a start symbol
-				if (i == -1) {
-					tag_n_1 = Constant.START_SYMBOL;
-				} else {
-					Token token_n_1 = tokens.get(i);
-					tag_n_1 = token_n_1.getPosTag();
-				}
-				// append an end symbol
-				if (i == tokens.size() - 1) {
-					tag_n = Constant.END_SYMBOL;
-				} else {
-					Token token_n = tokens.get(i + 1);
-					tag_n = token_n.getPosTag();
-				}
-				String[] biStr = new String[] { tag_n_1, tag_n };
-				bigram.add(biStr);
-				// initialize unigram
-				tag_n_1 = tag_n_1.toUpperCase();
-				Double count = 0.0;
-				if (unigram.containsKey(tag_n_1)) {
-					count = unigram.get(tag_n_1);
-				}
-				unigram.put(tag_n_1, ++count);
-			}
+	private static void countTags(SentenceStore store, int sentence,
+			Bounds bounds, CountTable counts) {
+		SymbolTable symbols = bounds.symbols;
+		int begin = store.begin(sentence);
+		int end = store.end(sentence);
+		for (int i = begin - 1; i < end; i++) {
+			// add in a start symbol
+			int tag_n_1 = (i == begin - 1) ? bounds.start : store.getTagId(i);
+			// append an end symbol
+			int tag_n = (i == end - 1) ? bounds.end : store.getTagId(i + 1);
+			counts.addBigram(tag_n_1, tag_n);
+			// initialize unigram
+			counts.addUnigram(symbols.toUpperCase(tag_n_1));
 		}
 	}
 
@@ -0,0 +1,362 @@
+package edu.nyu.cs.pos;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import edu.nyu.cs.pub.Constant;
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.MathUtil;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.SparseTable;
+import edu.nyu.cs.pub.Token;
+
+/**
+ * Tag trigram transitions for the second order Hidden Markov Model.
+ * <p>
+ * The probability of tag t3 following tags t1, t2 is interpolated from
+ * trigram, bigram and unigram relative frequencies,
+ *
+ * <pre>
+ * P(t3 | t1, t2) = l3 * f(t3 | t1, t2) + l2 * f(t3 | t2) + l1 * f(t3)
+ * </pre>
+ *
+ * with weights found by deleted interpolation (Brants, TnT). Sentences are
+ * padded with two start symbols and one end symbol. Only trigrams seen in
+ * training corpus are stored, as costs in a {@link SparseTable}; any other
+ * trigram takes the bigram and unigram part, held in a dense table.
+ * <p>
+ * Tags share ids with the {@link CompiledModel} the transitions were built
+ * for. The end symbol takes id {@link #numberOfTags()}. Counts are kept, so
+ * that new sentences are added without counting the corpus again, see
+ * {@link #update(List, CompiledModel)}, and saved along with the model they
+ * were built for.
+ *
+ * @author Daniel Wu
+ * @see TrigramViterbi
+ */
+public class TrigramModel {
+
+	// number of tags, start symbol included
+	private final int N;
+
+	// tag id of start symbol
+	private final int start;
+
+	// tag id of end symbol
+	private final int end;
+
+	// tags by id, end symbol excluded
+	private final String[] tags;
+
+	// counts, histories include the start symbol, predicted tags the end
+	private final double[] unigram;
+
+	private final double[][] bigram;
+
+	private final double[] bigramHistory;
+
+	private final double[][] trigramHistory;
+
+	private final SparseTable trigram;
+
+	private double total = 0;
+
+	// interpolation weights of unigram, bigram and trigram
+	private final double[] lambdas = new double[3];
+
+	// cost of trigrams seen in training, keyed by {@link #key(int, int, int)}
+	private SparseTable trigramCost;
+
+	// cost of unseen trigrams <t2, t3>
+	private double[][] backoffCost;
+
+	/**
+	 * Count tag trigrams of training corpus
+	 *
+	 * @param corpus
+	 *            training corpus
+	 * @param model
+	 *            compiled bigram model, defining tag ids
+	 */
+	public TrigramModel(Corpus corpus, CompiledModel model) {
+		this(model, new SparseTable());
+		for (Sentence sentence : corpus) {
+			count(sentence, model);
+		}
+		estimate();
+	}
+
+	private TrigramModel(CompiledModel model, SparseTable trigram) {
+		N = model.numberOfTags();
+		start = model.getTagId(Constant.START_SYMBOL);
+		end = N;
+		if (start < 0) {
+			throw new IllegalArgumentException("Model has no start symbol");
+		}
+		tags = new String[N];
+		for (int t = 0; t < N; t++) {
+			tags[t] = model.getTag(t);
+		}
+		unigram = new double[N + 1];
+		bigram = new double[N + 1][N + 1];
+		bigramHistory = new double[N + 1];
+		trigramHistory = new double[N + 1][N + 1];
+		this.trigram = trigram;
+	}
+
+	/**
+	 * Transitions after adding counts of new sentences, without counting the
+	 * training corpus again: counts of this model are carried over to the tag
+	 * ids of the new model, and weights and costs are estimated again. This
+	 * model is left as it is, for decoders still using it.
+	 *
+	 * @param sentences
+	 *            newly annotated sentences
+	 * @param model
+	 *            compiled bigram model of the grown corpus, defining tag ids
+	 * @return transitions over the grown corpus
+	 * @throws IllegalArgumentException
+	 *             if the new model lacks a tag of this one
+	 */
+	public TrigramModel update(List<Sentence> sentences, CompiledModel model) {
+		// old tag id -> new tag id
+		int[] ids = new int[N + 1];
+		for (int t = 0; t < N; t++) {
+			ids[t] = model.getTagId(tags[t]);
+			if (ids[t] < 0) {
+				throw new IllegalArgumentException("Model has no tag "
+						+ tags[t]);
+			}
+		}
+		ids[N] = model.numberOfTags();
+		long[] keys = trigram.keys();
+		SparseTable counts = new SparseTable(keys.length);
+		for (long k : keys) {
+			counts.put(key(ids[(int) (k >>> 42)],
+					ids[(int) (k >>> 21) & 0x1FFFFF], ids[(int) k & 0x1FFFFF]),
+					trigram.get(k, 0));
+		}
+		TrigramModel res = new TrigramModel(model, counts);
+		for (int i = 0; i <= N; i++) {
+			res.unigram[ids[i]] = unigram[i];
+			res.bigramHistory[ids[i]] = bigramHistory[i];
+			for (int j = 0; j <= N; j++) {
+				res.bigram[ids[i]][ids[j]] = bigram[i][j];
+				res.trigramHistory[ids[i]][ids[j]] = trigramHistory[i][j];
+			}
+		}
+		res.total = total;
+		for (Sentence sentence : sentences) {
+			res.count(sentence, model);
+		}
+		res.estimate();
+		return res;
+	}
+
+	/**
+	 * Add tag trigrams of a sentence to counts
+	 */
+	private void count(Sentence sentence, CompiledModel model) {
+		int[] ids = tagIds(sentence, model);
+		if (ids == null) {
+			return;
+		}
+		for (int i = 2; i < ids.length; i++) {
+			int t1 = ids[i - 2];
+			int t2 = ids[i - 1];
+			int t3 = ids[i];
+			unigram[t3]++;
+			bigram[t2][t3]++;
+			bigramHistory[t2]++;
+			trigramHistory[t1][t2]++;
+			trigram.add(key(t1, t2, t3), 1);
+			total++;
+		}
+	}
+
+	/**
+	 * Find interpolation weights and costs from counts
+	 */
+	private void estimate() {
+		// deleted interpolation
+		long[] keys = trigram.keys();
+		for (long k : keys) {
+			int t1 = (int) (k >>> 42);
+			int t2 = (int) (k >>> 21) & 0x1FFFFF;
+			int t3 = (int) k & 0x1FFFFF;
+			double count = trigram.get(k, 0);
+			double f3 = ratio(count - 1, trigramHistory[t1][t2] - 1);
+			double f2 = ratio(bigram[t2][t3] - 1, bigramHistory[t2] - 1);
+			double f1 = ratio(unigram[t3] - 1, total - 1);
+			if (f3 >= f2 && f3 >= f1) {
+				lambdas[2] += count;
+			} else if (f2 >= f1) {
+				lambdas[1] += count;
+			} else {
+				lambdas[0] += count;
+			}
+		}
+		double sum = lambdas[0] + lambdas[1] + lambdas[2];
+		for (int i = 0; i < lambdas.length; i++) {
+			lambdas[i] = (sum == 0) ? 1.0 / 3 : lambdas[i] / sum;
+		}
+		// costs
+		double[][] backoff = new double[N + 1][N + 1];
+		backoffCost = new double[N][N + 1];
+		for (int t2 = 0; t2 < N; t2++) {
+			for (int t3 = 0; t3 <= N; t3++) {
+				backoff[t2][t3] = lambdas[1]
+						* ratio(bigram[t2][t3], bigramHistory[t2]) + lambdas[0]
+						* ratio(unigram[t3], total);
+				backoffCost[t2][t3] = MathUtil.cost(backoff[t2][t3]);
+			}
+		}
+		trigramCost = new SparseTable(keys.length);
+		for (long k : keys) {
+			int t1 = (int) (k >>> 42);
+			int t2 = (int) (k >>> 21) & 0x1FFFFF;
+			double prob = lambdas[2]
+					* ratio(trigram.get(k, 0), trigramHistory[t1][t2])
+					+ backoff[t2][(int) k & 0x1FFFFF];
+			trigramCost.put(k, MathUtil.cost(prob));
+		}
+	}
+
+	/**
+	 * Write counts into a model file, see {@link CompiledModel#save(java.io.File,
+	 * TrigramModel)}
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(N);
+		out.writeDouble(total);
+		for (int i = 0; i <= N; i++) {
+			out.writeDouble(unigram[i]);
+			out.writeDouble(bigramHistory[i]);
+			for (int j = 0; j <= N; j++) {
+				out.writeDouble(bigram[i][j]);
+				out.writeDouble(trigramHistory[i][j]);
+			}
+		}
+		long[] keys = trigram.keys();
+		out.writeInt(keys.length);
+		for (long k : keys) {
+			out.writeLong(k);
+			out.writeDouble(trigram.get(k, 0));
+		}
+	}
+
+	/**
+	 * Read counts written by {@link #write(DataOutputStream)}, and estimate
+	 * weights and costs from them
+	 *
+	 * @param buffer
+	 *            model file, positioned at the counts
+	 * @param model
+	 *            model read from the same file, defining tag ids
+	 * @return trigram transitions
+	 * @throws IOException
+	 *             if counts do not fit the model
+	 */
+	static TrigramModel read(ByteBuffer buffer, CompiledModel model)
+			throws IOException {
+		if (buffer.getInt() != model.numberOfTags()) {
+			throw new IOException("Trigram counts do not match model tags\n");
+		}
+		TrigramModel res = new TrigramModel(model, new SparseTable());
+		int N = res.N;
+		res.total = buffer.getDouble();
+		for (int i = 0; i <= N; i++) {
+			res.unigram[i] = buffer.getDouble();
+			res.bigramHistory[i] = buffer.getDouble();
+			for (int j = 0; j <= N; j++) {
+				res.bigram[i][j] = buffer.getDouble();
+				res.trigramHistory[i][j] = buffer.getDouble();
+			}
+		}
+		int size = buffer.getInt();
+		if (size < 0 || size > buffer.remaining() / 16) {
+			throw new IOException("Length out of bounds: " + size + "\n");
+		}
+		for (int i = 0; i < size; i++) {
+			res.trigram.put(buffer.getLong(), buffer.getDouble());
+		}
+		res.estimate();
+		return res;
+	}
+
+	/**
+	 * @return tag ids of a sentence, padded with two start and one end symbol;
+	 *         null if a tag is unknown to the model
+	 */
+	private int[] tagIds(Sentence sentence, CompiledModel model) {
+		List<Token> tokens = sentence.getTokens();
+		int[] ids = new int[tokens.size() + 3];
+		ids[0] = start;
+		ids[1] = start;
+		for (int i = 0; i < tokens.size(); i++) {
+			ids[i + 2] = model.getTagId(tokens.get(i).getPosTag());
+			if (ids[i + 2] < 0) {
+				return null;
+			}
+		}
+		ids[ids.length - 1] = end;
+		return ids;
+	}
+
+	private static double ratio(double count, double total) {
+		return (total <= 0) ? 0.0 : count / total;
+	}
+
+	/**
+	 * Pack a tag trigram into a table key
+	 */
+	static long key(int t1, int t2, int t3) {
+		return ((long) t1 << 42) | ((long) t2 << 21) | t3;
+	}
+
+	/**
+	 * @return number of tags, start symbol included
+	 */
+	public int numberOfTags() {
+		return N;
+	}
+
+	/**
+	 * @return tag id of start symbol
+	 */
+	public int startTag() {
+		return start;
+	}
+
+	/**
+	 * @return tag id of end symbol
+	 */
+	public int endTag() {
+		return end;
+	}
+
+	/**
+	 * @return interpolation weights of unigram, bigram and trigram
+	 */
+	public double[] getLambdas() {
+		return lambdas.clone();
+	}
+
+	/**
+	 * Transition cost
+	 *
+	 * @param t1
+	 *            tag id two positions back
+	 * @param t2
+	 *            previous tag id
+	 * @param t3
+	 *            tag id, or {@link #endTag()}
+	 * @return cost of t3 following t1, t2
+	 */
+	public double transitionCost(int t1, int t2, int t3) {
+		return trigramCost.get(key(t1, t2, t3), backoffCost[t2][t3]);
+	}
+
+}
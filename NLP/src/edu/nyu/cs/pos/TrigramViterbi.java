@@ -0,0 +1,167 @@
+package edu.nyu.cs.pos;
+
+import java.util.List;
+
+import edu.nyu.cs.pub.Decoder;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.ViterbiWorkspace;
+
+/**
+ * Viterbi algorithm for the second order Hidden Markov Model.
+ * <p>
+ * States are pairs of tags (previous tag, tag), pair id
+ * <code>previous * N + tag</code>, and the back pointer of a pair is the tag
+ * two positions back. A full lattice costs O(N<sup>3</sup>T), so only reachable
+ * pairs are visited: a known word is given its observed tags only (see
+ * {@link CompiledModel#candidates(int)}), and each position is pruned to a
+ * beam of pairs before it is extended.
+ *
+ * @author Daniel Wu
+ * @see TrigramModel
+ */
+public class TrigramViterbi implements Decoder {
+
+	private CompiledModel model = null;
+
+	private TrigramModel trigram = null;
+
+	// maximum number of pairs kept per position, 0 for no limit
+	private int beamWidth = 0;
+
+	// pairs costing more than best + threshold are pruned
+	private double beamThreshold = Double.POSITIVE_INFINITY;
+
+	// restrict known words to their observed tags
+	private boolean tagDictionary = true;
+
+	/**
+	 * @param model
+	 *            compiled model, for emissions and tag dictionary
+	 * @param trigram
+	 *            tag trigram transitions
+	 * @param beamWidth
+	 *            maximum number of pairs kept per position, 0 for no limit
+	 * @param beamThreshold
+	 *            maximum cost distance from best pair of a position,
+	 *            {@link Double#POSITIVE_INFINITY} for no limit
+	 * @param tagDictionary
+	 *            true to consider only observed tags of known words
+	 */
+	public TrigramViterbi(CompiledModel model, TrigramModel trigram,
+			int beamWidth, double beamThreshold, boolean tagDictionary) {
+		this.model = model;
+		this.trigram = trigram;
+		this.beamWidth = beamWidth;
+		this.beamThreshold = beamThreshold;
+		this.tagDictionary = tagDictionary;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.Decoder#decode(edu.nyu.cs.pub.Sentence)
+	 */
+	public Sentence decode(Sentence sentence) {
+		List<Token> tokens = sentence.getTokens();
+		int N = model.numberOfTags();
+		int NN = N * N;
+		int T = tokens.size();
+		int start = trigram.startTag();
+		ViterbiWorkspace workspace = ViterbiWorkspace.get().ensure(NN, T);
+		double[] viterbi = workspace.costs();
+		int[] backtrack = workspace.backpointers();
+		double[] b = workspace.row();
+		int[] active = workspace.active();
+		int[] next = workspace.next();
+		// initialize first step, pairs (<S>, tag)
+		int[] candidates = emissionCost(tokens.get(0).getLiteral(), b);
+		int survivors = 0;
+		for (int c = 0; c < candidates.length; c++) {
+			int s = candidates[c];
+			if (s == start) {
+				continue;
+			}
+			int pair = start * N + s;
+			viterbi[pair] = trigram.transitionCost(start, start, s) + b[s];
+			backtrack[pair] = start;
+			active[survivors++] = pair;
+		}
+		survivors = CompiledViterbi.prune(viterbi, 0, active, survivors,
+				beamWidth, beamThreshold, workspace);
+
+		// recursive step
+		for (int t = 1; t < T; t++) {
+			candidates = emissionCost(tokens.get(t).getLiteral(), b);
+			int previous = (t - 1) * NN;
+			int current = t * NN;
+			// clear pairs reachable from surviving ones
+			for (int i = 0; i < survivors; i++) {
+				int p1 = active[i] % N;
+				for (int c = 0; c < candidates.length; c++) {
+					backtrack[current + p1 * N + candidates[c]] = -1;
+				}
+			}
+			int count = 0;
+			for (int i = 0; i < survivors; i++) {
+				int p2 = active[i] / N;
+				int p1 = active[i] % N;
+				double cost = viterbi[previous + active[i]];
+				for (int c = 0; c < candidates.length; c++) {
+					int s = candidates[c];
+					if (s == start) {
+						continue;
+					}
+					int pair = p1 * N + s;
+					double log = cost + trigram.transitionCost(p2, p1, s) + b[s];
+					if (backtrack[current + pair] < 0) {
+						next[count++] = pair;
+					} else if (log >= viterbi[current + pair]) {
+						continue;
+					}
+					viterbi[current + pair] = log;
+					backtrack[current + pair] = p2;
+				}
+			}
+			survivors = CompiledViterbi.prune(viterbi, current, next, count,
+					beamWidth, beamThreshold, workspace);
+			int[] swap = active;
+			active = next;
+			next = swap;
+		}
+
+		// terminate step
+		double best = Double.MAX_VALUE;
+		int pair = -1;
+		int last = (T - 1) * NN;
+		for (int i = 0; i < survivors; i++) {
+			int p1 = active[i] / N;
+			int s = active[i] % N;
+			double likelihood = viterbi[last + active[i]]
+					+ trigram.transitionCost(p1, s, trigram.endTag());
+			if (likelihood < best) {
+				best = likelihood;
+				pair = active[i];
+			}
+		}
+		// backtracking, tags are set in place
+		for (int t = T - 1; t >= 0 && pair >= 0; t--) {
+			int p1 = pair / N;
+			tokens.get(t).setTag(model.getTag(pair % N));
+			pair = backtrack[t * NN + pair] * N + p1;
+		}
+		return sentence;
+	}
+
+	/**
+	 * Look up emission costs of a word
+	 *
+	 * @return tags to consider for the word
+	 */
+	private int[] emissionCost(String word, double[] row) {
+		int wordId = model.getWordId(word);
+		model.emissionCost(wordId, word, row);
+		return model.candidates(tagDictionary ? wordId : -1);
+	}
+
+}
@@ -42,14 +42,12 @@ public class Viterbi implements Decoder {
 		String firstWord = tokens[0].getLiteral();
 		for (int s = 0; s < N; s++) {
 			String state = states[s];
-			double v = 1.0;
-			// prior probability
-			double a = priorMatrix.getItem(Constant.START_SYMBOL, state);
-			// likelihood
-			double b = likelihoodMatrix.getItem(state, firstWord);
-			// max probability
-			double log = Math
-					.abs(Math.log10(v) + Math.log10(a) + Math.log10(b));
+			// prior cost
+			double a = priorMatrix.getCost(Constant.START_SYMBOL, state);
+			// likelihood cost
+			double b = likelihoodMatrix.getCost(state, firstWord);
+			// min cost
+			double log = a + b;
 			viterbi[s][0] = log;
 			backtrack[s][0] = "";
 		}
@@ -68,17 +66,17 @@ public class Viterbi implements Decoder {
 						continue;
 					}
 					String previousState = states[s1];
-					// prior probability
-					double a = priorMatrix.getItem(previousState, state);
-					// likelihood
-					double b = likelihoodMatrix.getItem(state, word);
-					// max probability
-					double log = v + Math.abs(Math.log10(a));
+					// prior cost
+					double a = priorMatrix.getCost(previousState, state);
+					// likelihood cost
+					double b = likelihoodMatrix.getCost(state, word);
+					// min cost
+					double log = v + a;
 					if (log < argmax) {
 						argmax = log;
 						backtrackArg = previousState;
 					}
-					log = log + Math.abs(Math.log10(b));
+					log = log + b;
 					if (log < maxProb) {
 						maxProb = log;
 					}
@@ -92,10 +90,10 @@ public class Viterbi implements Decoder {
 		viterbi[N][T] = Double.MAX_VALUE;
 		for (int s = 0; s < N; s++) {
 			String state = states[s];
-			// prior probability
-			double a = priorMatrix.getItem(state, Constant.END_SYMBOL);
-			// max probability
-			double likelihood = viterbi[s][T - 1] + Math.abs(Math.log10(a));
+			// prior cost
+			double a = priorMatrix.getCost(state, Constant.END_SYMBOL);
+			// min cost
+			double likelihood = viterbi[s][T - 1] + a;
 			if (likelihood < viterbi[N][T]) {
 				viterbi[N][T] = likelihood;
 				backtrack[N][T] = state;
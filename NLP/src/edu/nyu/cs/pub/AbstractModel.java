@@ -1,20 +1,33 @@
 package edu.nyu.cs.pub;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.nyu.cs.pub.Metrics.Timer;
+import edu.nyu.cs.pub.Token.TokenDecor;
 
 import edu.nyu.cs.pos.EmissionMatrix;
 import edu.nyu.cs.pos.TransitionMatrix;
 
 /**
  * Probability Model
+ * <p>
+ * A model running on a pool of its own, see {@link #setParallelism(int)},
+ * should be closed once done with, to stop the threads of the pool.
  * 
  * @author Daniel Wu
  * 
  */
-public abstract class AbstractModel {
+public abstract class AbstractModel implements Closeable {
 
 	protected Corpus corpus = null;
 
@@ -24,9 +37,37 @@ public abstract class AbstractModel {
 	// likelihood matrix
 	protected Matrix likelihoodMatrix = null;
 
+	// tags observed with each training word
+	protected TagDictionary tagDictionary = null;
+
 	// if debug, then output pos tag
 	private boolean debug = true;
 
+	// number of sentences decoded by one parallel task
+	private static final int CHUNK_SIZE = 32;
+
+	// number of sentences held in memory when streaming in parallel
+	private static final int STREAM_BATCH_SIZE = 64 * CHUNK_SIZE;
+
+	// trains and decodes in parallel if set
+	private ExecutorService executor = null;
+
+	// true if executor was created by, and is shut down by, the model
+	private boolean ownsExecutor = false;
+
+	// reads training corpus from disk on demand if set
+	private boolean streaming = false;
+
+	// time to load a training corpus
+	private static final Timer LOAD = Metrics.instance.timer("corpus.load");
+
+	// time to decode a sentence
+	private static final Timer DECODE = Metrics.instance
+			.timer("decode.sentence");
+
+	// time to write decoded sentences, per file or batch
+	private static final Timer OUTPUT = Metrics.instance.timer("output.write");
+
 	/**
 	 * Load corpus from file system
 	 * 
@@ -36,7 +77,21 @@ public abstract class AbstractModel {
 	 * 
 	 */
 	public void loadCorpus(String filePath) throws IOException {
-		corpus = new Corpus(filePath, FileManager.instance);
+		long start = LOAD.start();
+		corpus = streaming ? new StreamingCorpus(filePath) : new Corpus(
+				filePath, new CorpusCache(MappedFileReader.instance, ""));
+		LOAD.stop(start);
+	}
+
+	/**
+	 * Train on a corpus read from disk on demand instead of held in memory,
+	 * for corpora larger than memory, see {@link StreamingCorpus}
+	 * 
+	 * @param streaming
+	 *            true to stream training corpus
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
 	}
 
 	/**
@@ -56,14 +111,16 @@ public abstract class AbstractModel {
 	public List<Sentence> tag(String filePath) throws Exception {
 		Decoder decoder = getDecoder();
 		// viterbi algorithm decoding
-		Corpus testCorpus = new Corpus(filePath, FileManager.instance);
+		Corpus testCorpus = new Corpus(filePath, MappedFileReader.instance);
 		List<Sentence> sentences = testCorpus.getSentences();
-		List<Sentence> res = new ArrayList<Sentence>();
-		for (Sentence sentence : sentences) {
-			if (!sentence.isEmpty()) {
-				sentence = decoder.decode(sentence);
+		List<Sentence> res = null;
+		if (executor == null) {
+			res = new ArrayList<Sentence>();
+			for (Sentence sentence : sentences) {
+				res.add(decode(decoder, sentence));
 			}
-			res.add(sentence);
+		} else {
+			res = decodeInParallel(decoder, sentences);
 		}
 		if (debug) {
 			output(filePath, res);
@@ -71,13 +128,230 @@ public abstract class AbstractModel {
 		return res;
 	}
 
+	/**
+	 * Streaming tagging: read one sentence from given file, decode it and
+	 * write it to <code>filePath.out</code> straight away. Memory use does not
+	 * depend on input size; with an executor set, a bounded batch of sentences
+	 * is decoded in parallel at a time. Output is the same as
+	 * {@link #tag(String)} writes.
+	 * 
+	 * @param filePath
+	 *            file to tag
+	 * @return number of sentences tagged
+	 * @throws Exception
+	 *             throws exception when file IO exception occurs
+	 */
+	public long tagStream(String filePath) throws Exception {
+		Decoder decoder = getDecoder();
+		SentenceReader reader = new SentenceReader(new File(filePath));
+		SentenceWriter writer = null;
+		long count = 0;
+		try {
+			writer = new SentenceWriter(new File(filePath + ".out"),
+					TokenDecor.BLANK);
+			int batchSize = (executor == null) ? 1 : STREAM_BATCH_SIZE;
+			List<Sentence> batch = new ArrayList<Sentence>(batchSize);
+			Sentence sentence = null;
+			while ((sentence = reader.next()) != null) {
+				batch.add(sentence);
+				if (batch.size() == batchSize) {
+					count += decodeAndWrite(decoder, batch, writer);
+				}
+			}
+			count += decodeAndWrite(decoder, batch, writer);
+		} finally {
+			reader.close();
+			if (writer != null) {
+				writer.close();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Online tagging: read tokens one at a time and write each to
+	 * <code>filePath.out</code> once its tag is final, see
+	 * {@link OnlineViterbi}. Input needs no sentence breaks; where there are
+	 * some, decoding is completed there and the break is kept in output.
+	 * Memory use depends on the lag only, never on sentence length. Output
+	 * has the layout {@link #tag(String)} writes.
+	 * 
+	 * @param filePath
+	 *            file to tag
+	 * @param maxLag
+	 *            maximum number of tokens a tag may stay undecided
+	 * @return number of tokens tagged
+	 * @throws Exception
+	 *             throws exception when file IO exception occurs
+	 */
+	public long tagOnline(String filePath, int maxLag) throws Exception {
+		OnlineViterbi decoder = new OnlineViterbi(getScorer(), maxLag);
+		SentenceReader reader = new SentenceReader(new File(filePath));
+		SentenceWriter writer = null;
+		long count = 0;
+		try {
+			writer = new SentenceWriter(new File(filePath + ".out"),
+					TokenDecor.BLANK);
+			while (!reader.isEndOfFile()) {
+				Token token = reader.nextToken();
+				List<Token> decoded = (token == null) ? decoder.flush()
+						: decoder.push(token);
+				for (Token t : decoded) {
+					writer.write(t);
+				}
+				count += decoded.size();
+				if (token == null) {
+					writer.endSentence();
+				}
+			}
+		} finally {
+			reader.close();
+			if (writer != null) {
+				writer.close();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return scorer of the decoding lattice, for {@link #tagOnline(String, int)}
+	 * @throws UnsupportedOperationException
+	 *             if the model cannot decode online
+	 */
+	protected LatticeScorer getScorer() {
+		throw new UnsupportedOperationException(getClass().getSimpleName()
+				+ " cannot decode online\n");
+	}
+
+	/**
+	 * Decode a batch of sentences, write them in order and clear the batch
+	 * 
+	 * @return number of sentences written
+	 */
+	private int decodeAndWrite(Decoder decoder, List<Sentence> batch,
+			SentenceWriter writer) throws Exception {
+		List<Sentence> res = batch;
+		if (executor == null) {
+			for (int i = 0; i < batch.size(); i++) {
+				batch.set(i, decode(decoder, batch.get(i)));
+			}
+		} else {
+			res = decodeInParallel(decoder, batch);
+		}
+		long start = OUTPUT.start();
+		for (Sentence sentence : res) {
+			sentence.sort();
+			writer.write(sentence);
+		}
+		OUTPUT.stop(start);
+		int count = batch.size();
+		batch.clear();
+		return count;
+	}
+
+	/**
+	 * Decode a sentence, timing it, see {@link Metrics}
+	 * 
+	 * @return decoded sentence, or given one if empty
+	 */
+	private static Sentence decode(Decoder decoder, Sentence sentence) {
+		if (sentence.isEmpty()) {
+			return sentence;
+		}
+		long start = DECODE.start();
+		Sentence res = decoder.decode(sentence);
+		DECODE.stop(start);
+		return res;
+	}
+
+	/**
+	 * Decode sentences in chunks on the executor, keeping their order
+	 * 
+	 * @param decoder
+	 *            thread safe decoder
+	 * @param sentences
+	 *            sentences to decode
+	 * @return decoded sentences, in input order
+	 * @throws Exception
+	 *             the first exception thrown by a decoding task
+	 */
+	private List<Sentence> decodeInParallel(final Decoder decoder,
+			final List<Sentence> sentences) throws Exception {
+		final Sentence[] res = new Sentence[sentences.size()];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int from = 0; from < res.length; from += CHUNK_SIZE) {
+			final int start = from;
+			final int end = Math.min(from + CHUNK_SIZE, res.length);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for (int i = start; i < end; i++) {
+						res[i] = decode(decoder, sentences.get(i));
+					}
+					return null;
+				}
+			});
+		}
+		for (Future<Void> future : executor.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw new RuntimeException("Parallel decoding failed!\n", cause);
+			}
+		}
+		return new ArrayList<Sentence>(Arrays.asList(res));
+	}
+
+	/**
+	 * Train and tag in parallel on given executor, e.g. a {@link ForkJoinPool}.
+	 * Tagging output keeps the order of input sentences. The executor is not
+	 * shut down by the model; a pool the model created before is.
+	 * 
+	 * @param executor
+	 *            executor to work on, or null to work in calling thread
+	 */
+	public void setExecutor(ExecutorService executor) {
+		close();
+		this.executor = executor;
+	}
+
+	/**
+	 * Train and tag in parallel on a new fork join pool, shut down when the
+	 * model is closed or given another executor
+	 * 
+	 * @param parallelism
+	 *            number of threads, 1 to work in calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		setExecutor((parallelism > 1) ? new ForkJoinPool(parallelism) : null);
+		ownsExecutor = executor != null;
+	}
+
+	/**
+	 * Shut down the pool created by {@link #setParallelism(int)}, if any; the
+	 * model then works in calling thread. An executor given to
+	 * {@link #setExecutor(ExecutorService)} is left running.
+	 */
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+			ownsExecutor = false;
+		}
+		executor = null;
+	}
+
 	private void output(String outputPath, List<Sentence> res) {
 		for (Sentence sentence : res) {
 			sentence.sort();
 		}
 		File output = new File(outputPath + ".out");
+		long start = OUTPUT.start();
 		try {
 			FileManager.instance.writeFile(output, res);
+			OUTPUT.stop(start);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.out
@@ -97,7 +371,8 @@ public abstract class AbstractModel {
 	public void train(String filePath) throws IOException {
 		// debug Load corpus into memory
 		loadCorpus(filePath);
-		priorMatrix = new TransitionMatrix(corpus);
-		likelihoodMatrix = new EmissionMatrix(corpus);
+		priorMatrix = new TransitionMatrix(corpus, executor);
+		likelihoodMatrix = new EmissionMatrix(corpus, executor);
+		tagDictionary = new TagDictionary(corpus);
 	}
 }
@@ -0,0 +1,257 @@
+package edu.nyu.cs.pub;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.nyu.cs.pub.Metrics.Gauge;
+
+/**
+ * Writes text to a file on a thread of its own.
+ * <p>
+ * Text is encoded in the default charset straight into one of a few reusable
+ * byte buffers; a full buffer is handed to the writer thread over a bounded
+ * queue and the caller goes on with the next free one. The caller waits only
+ * when every buffer is queued, that is when the disk is behind. Closing
+ * writes what is left, forces it to disk and closes the file; an error met by
+ * the writer thread is thrown by the next write or by closing. Not thread
+ * safe.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class AsyncWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// buffers per file, one filled by caller while others are written
+	private static final int BUFFERS = 4;
+
+	// true if default charset writes each ASCII character as its own byte
+	private static final boolean ASCII = isAscii(Charset.defaultCharset());
+
+	// queued to tell writer thread to stop
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	// buffers of all files waiting to be written
+	private static final AtomicInteger QUEUED = new AtomicInteger();
+
+	static {
+		Metrics.instance.gauge("output.queued", new Gauge() {
+			public long value() {
+				return QUEUED.get();
+			}
+		});
+	}
+
+	private final FileOutputStream out;
+
+	private final FileChannel channel;
+
+	private final CharsetEncoder encoder = Charset.defaultCharset()
+			.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	// buffers filled, in order, waiting to be written
+	private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(
+			BUFFERS + 1);
+
+	// buffers written, ready to be filled again
+	private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(
+			BUFFERS);
+
+	private final Thread thread;
+
+	// buffer being filled by caller
+	private ByteBuffer buffer;
+
+	// first error of writer thread
+	private volatile IOException failure = null;
+
+	private boolean closed = false;
+
+	/**
+	 * @param file
+	 *            output file, replaced if it exists
+	 * @throws IOException
+	 *             if file cannot be created
+	 */
+	public AsyncWriter(File file) throws IOException {
+		out = new FileOutputStream(file);
+		channel = out.getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		for (int i = 1; i < BUFFERS; i++) {
+			free.add(ByteBuffer.allocate(BUFFER_SIZE));
+		}
+		thread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "writer-" + file.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Write a string
+	 *
+	 * @param s
+	 *            any string
+	 * @throws IOException
+	 *             if writing has failed
+	 */
+	public void write(String s) throws IOException {
+		int length = s.length();
+		int i = 0;
+		if (ASCII) {
+			for (; i < length; i++) {
+				char c = s.charAt(i);
+				if (c >= 0x80) {
+					break;
+				}
+				if (!buffer.hasRemaining()) {
+					handOff();
+				}
+				buffer.put((byte) c);
+			}
+		}
+		if (i < length) {
+			encode(CharBuffer.wrap(s, i, length));
+		}
+	}
+
+	/**
+	 * Write a character
+	 *
+	 * @param c
+	 *            any character
+	 * @throws IOException
+	 *             if writing has failed
+	 */
+	public void write(char c) throws IOException {
+		if (ASCII && c < 0x80) {
+			if (!buffer.hasRemaining()) {
+				handOff();
+			}
+			buffer.put((byte) c);
+		} else {
+			encode(CharBuffer.wrap(new char[] { c }));
+		}
+	}
+
+	private void encode(CharBuffer in) throws IOException {
+		encoder.reset();
+		while (encoder.encode(in, buffer, true) == CoderResult.OVERFLOW) {
+			handOff();
+		}
+		while (encoder.flush(buffer) == CoderResult.OVERFLOW) {
+			handOff();
+		}
+	}
+
+	/**
+	 * Queue buffer filled and take a free one
+	 */
+	private void handOff() throws IOException {
+		checkFailure();
+		buffer.flip();
+		try {
+			QUEUED.incrementAndGet();
+			full.put(buffer);
+			buffer = free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Writing interrupted\n");
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("Writing file failed!\n", failure);
+		}
+	}
+
+	/**
+	 * Writer thread: write buffers in order until told to stop. After an
+	 * error buffers are only given back, so that the caller never waits for
+	 * good.
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				ByteBuffer next = full.take();
+				if (next == END) {
+					return;
+				}
+				if (failure == null) {
+					try {
+						while (next.hasRemaining()) {
+							channel.write(next);
+						}
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+				QUEUED.decrementAndGet();
+				next.clear();
+				free.put(next);
+			}
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Writer thread interrupted\n");
+		}
+	}
+
+	/**
+	 * Write what is left, force it to disk and close the file
+	 *
+	 * @throws IOException
+	 *             if writing, forcing or closing fails
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			buffer.flip();
+			QUEUED.incrementAndGet();
+			full.put(buffer);
+			full.put(END);
+			thread.join();
+			checkFailure();
+			channel.force(true);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Closing file interrupted\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return true if charset writes each ASCII character as a single byte of
+	 *         its own value
+	 */
+	private static boolean isAscii(Charset charset) {
+		char[] chars = new char[0x80];
+		byte[] bytes = new byte[chars.length];
+		for (int c = 0; c < chars.length; c++) {
+			chars[c] = (char) c;
+			bytes[c] = (byte) c;
+		}
+		return Arrays.equals(bytes, new String(chars).getBytes(charset));
+	}
+}
@@ -0,0 +1,228 @@
+package edu.nyu.cs.pub;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Corpus made of other corpora, e.g. the training folds of a cross
+ * validation.
+ * <p>
+ * Sentences are not copied. {@link #getSentences()} gets them from the lists
+ * of the corpora, in order, so changes made to them are changes made to the
+ * corpora, as they would be with {@link Corpus#Corpus(List)}. Iterating gives
+ * what each corpus iterates instead: copies of the sentences of a corpus that
+ * still keeps them in a store, see {@link Corpus#getSentences()}. The
+ * vocabulary is the union of those of the corpora, taken once when first
+ * asked for by or-ing their bits. Likewise, the list of sentences and
+ * {@link #size()} go by where each corpus starts, taken once when first
+ * used. Sentences cannot be added to the view itself.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class CompositeCorpus extends Corpus {
+
+	private final List<Corpus> corpora;
+
+	// sentences of all corpora, in order
+	private final List<Sentence> sentences = new AbstractList<Sentence>() {
+
+		@Override
+		public Sentence get(int index) {
+			int[] offsets = offsets();
+			if (index < 0 || index >= offsets[corpora.size()]) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			// last corpus starting at or before index, skipping empty ones
+			int low = 0;
+			int high = corpora.size();
+			while (high - low > 1) {
+				int mid = (low + high) >>> 1;
+				if (offsets[mid] <= index) {
+					low = mid;
+				} else {
+					high = mid;
+				}
+			}
+			return corpora.get(low).getSentences().get(index - offsets[low]);
+		}
+
+		@Override
+		public int size() {
+			return offsets()[corpora.size()];
+		}
+
+		@Override
+		public Iterator<Sentence> iterator() {
+			return CompositeCorpus.this.iterator();
+		}
+	};
+
+	// first index of sentences of each corpus, and total; null until indexed
+	private int[] offsets = null;
+
+	// distinct words, null until asked for
+	private Set<String> vocabulary = null;
+
+	/**
+	 * @param corpora
+	 *            corpora to concatenate
+	 */
+	public CompositeCorpus(List<Corpus> corpora) {
+		this.corpora = new ArrayList<Corpus>(corpora);
+	}
+
+	/**
+	 * @return first index of sentences of each corpus, then their total, as
+	 *         sizes were when first asked for
+	 */
+	private synchronized int[] offsets() {
+		if (offsets == null) {
+			int[] res = new int[corpora.size() + 1];
+			for (int i = 0; i < corpora.size(); i++) {
+				res[i + 1] = res[i] + corpora.get(i).size();
+			}
+			offsets = res;
+		}
+		return offsets;
+	}
+
+	/**
+	 * @return number of sentences of all corpora as they were when first
+	 *         counted, the size of {@link #getSentences()}
+	 */
+	@Override
+	public int size() {
+		return offsets()[corpora.size()];
+	}
+
+	@Override
+	public Iterator<Sentence> iterator() {
+		return new ChainIterator<Sentence>() {
+			@Override
+			protected Iterator<Sentence> iterator(Corpus corpus) {
+				return corpus.iterator();
+			}
+		};
+	}
+
+	@Override
+	Iterator<SentenceStore> batches() {
+		return new ChainIterator<SentenceStore>() {
+			@Override
+			protected Iterator<SentenceStore> iterator(Corpus corpus) {
+				return corpus.batches();
+			}
+		};
+	}
+
+	/**
+	 * Only the corpus a sentence is got from is asked for its list, so other
+	 * corpora keep their stores.
+	 * 
+	 * @return unmodifiable view of sentences of all corpora, in order,
+	 *         indexed by the sizes of the corpora when first used
+	 */
+	@Override
+	public List<Sentence> getSentences() {
+		return sentences;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, add sentences to one of the corpora instead
+	 */
+	@Override
+	public void addSentences(List<Sentence> added) {
+		throw new UnsupportedOperationException(
+				"Sentences cannot be added to a composite corpus\n");
+	}
+
+	@Override
+	public Integer vocabularySize() {
+		return getVocabulary().size();
+	}
+
+	/**
+	 * @return union of vocabularies of the corpora as they were when first
+	 *         asked for, unless set otherwise
+	 */
+	@Override
+	public synchronized Set<String> getVocabulary() {
+		if (vocabulary == null) {
+			Vocabulary words = null;
+			for (Corpus corpus : corpora) {
+				Set<String> part = corpus.getVocabulary();
+				if (words == null) {
+					// on the symbol table of the first corpus, which others
+					// may share
+					words = new Vocabulary(
+							(part instanceof Vocabulary) ? ((Vocabulary) part)
+									.getSymbols() : new SymbolTable());
+				}
+				if (part instanceof Vocabulary
+						&& ((Vocabulary) part).getSymbols() == words
+								.getSymbols()) {
+					words.union((Vocabulary) part);
+				} else {
+					words.addAll(part);
+				}
+			}
+			vocabulary = (words == null) ? new Vocabulary(new SymbolTable())
+					: words;
+		}
+		return vocabulary;
+	}
+
+	@Override
+	public synchronized void setVocabulary(Set<String> vocabulary) {
+		this.vocabulary = vocabulary;
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		if (word == null || word.trim().length() == 0)
+			return false;
+		return getVocabulary().contains(word.toLowerCase());
+	}
+
+	/**
+	 * Iterates what each corpus gives, one corpus after another
+	 */
+	private abstract class ChainIterator<T> implements Iterator<T> {
+
+		private final Iterator<Corpus> it = corpora.iterator();
+
+		private Iterator<T> current = null;
+
+		protected abstract Iterator<T> iterator(Corpus corpus);
+
+		@Override
+		public boolean hasNext() {
+			while (current == null || !current.hasNext()) {
+				if (!it.hasNext()) {
+					return false;
+				}
+				current = iterator(it.next());
+			}
+			return true;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -3,7 +3,8 @@ package edu.nyu.cs.pub;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -11,13 +12,21 @@ import java.util.Set;
 
 /**
  * Corpus Model
+ * <p>
+ * A corpus read from file keeps its sentences in a compact
+ * {@link SentenceStore}, and iterating it yields a fresh copy of each
+ * sentence. Once {@link #getSentences()} has been called, the corpus holds the
+ * returned list instead, so that changes made to its sentences are kept.
  * 
  * @author Daniel Wu
  * 
  */
 public class Corpus implements Iterable<Sentence> {
 
-	// sentences from input corpus
+	// sentences from input corpus, null once held as a list
+	private SentenceStore store = null;
+
+	// sentences from input corpus, null until asked for as a list
 	private List<Sentence> sentences = null;
 
 	// distinct words
@@ -25,8 +34,11 @@ public class Corpus implements Iterable<Sentence> {
 
 	private IFileReader fileManager = null;
 
+	// symbol table sentences and vocabulary are interned in
+	private SymbolTable symbols = null;
+
 	/**
-	 * Constructing a corpus
+	 * Constructing a corpus, on a symbol table of its own
 	 * 
 	 * @param filePath
 	 *            corpus path
@@ -35,15 +47,41 @@ public class Corpus implements Iterable<Sentence> {
 	 * @throws IOException
 	 */
 	public Corpus(String filePath, IFileReader fileManager) throws IOException {
+		this(filePath, fileManager, new SymbolTable());
+	}
+
+	/**
+	 * Constructing a corpus on given symbol table, e.g. one shared with other
+	 * corpora to be merged, see {@link CompositeCorpus}
+	 * 
+	 * @param filePath
+	 *            corpus path
+	 * @param fileManager
+	 *            file IO
+	 * @param symbols
+	 *            symbol table to intern sentences and vocabulary in
+	 * @throws IOException
+	 */
+	public Corpus(String filePath, IFileReader fileManager, SymbolTable symbols)
+			throws IOException {
 		this.fileManager = fileManager;
-		sentences = loadFile(filePath);
-		vocabulary = new HashSet<String>();
+		this.symbols = symbols;
+		store = loadFile(filePath);
+		vocabulary = new Vocabulary(symbols);
 		// preprocess
-		this.preprocess();
+		this.preprocess(0);
 	}
 
 	/**
-	 * Constructing set of corpora
+	 * Constructing a corpus that reads its sentences itself, see
+	 * {@link StreamingCorpus}
+	 */
+	protected Corpus() {
+	}
+
+	/**
+	 * Constructing set of corpora, copying their sentences; see
+	 * {@link CompositeCorpus} for a view instead
 	 * 
 	 * @param corpora
 	 *            list of corpus
@@ -53,7 +91,8 @@ public class Corpus implements Iterable<Sentence> {
 		for (Corpus corpus : corpora) {
 			this.sentences.addAll(corpus.getSentences());
 		}
-		vocabulary = new HashSet<String>();
+		symbols = new SymbolTable();
+		vocabulary = new Vocabulary(symbols);
 		// preprocess
 		this.preprocess();
 	}
@@ -65,7 +104,7 @@ public class Corpus implements Iterable<Sentence> {
 	 * @return corpus after binarization
 	 */
 	public Corpus binarization() {
-		for (Sentence sent : sentences) {
+		for (Sentence sent : getSentences()) {
 			sent.unification();
 		}
 		return this;
@@ -76,23 +115,82 @@ public class Corpus implements Iterable<Sentence> {
 	 * 
 	 * @param filePath
 	 *            corpus file path
-	 * @return content of that corpus in string format
+	 * @return content of that corpus
 	 * @throws Exception
 	 *             IOException
 	 */
-	private List<Sentence> loadFile(String filePath) throws IOException {
-		return fileManager.read(new File(filePath));
+	private SentenceStore loadFile(String filePath) throws IOException {
+		SentenceStore res = new SentenceStore(symbols);
+		File file = new File(filePath);
+		if (fileManager instanceof IStoreReader) {
+			((IStoreReader) fileManager).read(file, res);
+		} else {
+			res.addAll(fileManager.read(file));
+		}
+		return res;
+	}
+
+	/**
+	 * Append sentences to corpus, adding their words to vocabulary
+	 * 
+	 * @param added
+	 *            new sentences
+	 */
+	public void addSentences(List<Sentence> added) {
+		if (sentences == null) {
+			int from = store.numberOfTokens();
+			store.addAll(added);
+			preprocess(from);
+		} else {
+			sentences.addAll(added);
+			preprocess(added);
+		}
 	}
 
 	private void preprocess() {
+		preprocess(sentences);
+	}
+
+	/**
+	 * Add words of stored tokens from given one on to vocabulary
+	 */
+	private void preprocess(int from) {
+		addWords(store, from, vocabulary);
+	}
+
+	/**
+	 * Add lower case words of stored tokens from given one on to a set
+	 */
+	static void addWords(SentenceStore store, int from, Set<String> words) {
+		SymbolTable symbols = store.getSymbols();
+		if (words instanceof Vocabulary
+				&& ((Vocabulary) words).getSymbols() == symbols) {
+			Vocabulary vocabulary = (Vocabulary) words;
+			for (int token = from; token < store.numberOfTokens(); token++) {
+				vocabulary.add(symbols.toLowerCase(store.getLiteralId(token)));
+			}
+			return;
+		}
+		// lower case words already added
+		BitSet seen = new BitSet(symbols.size());
+		for (int token = from; token < store.numberOfTokens(); token++) {
+			int id = symbols.toLowerCase(store.getLiteralId(token));
+			if (!seen.get(id)) {
+				seen.set(id);
+				words.add(symbols.getSymbol(id));
+			}
+		}
+	}
+
+	private void preprocess(List<Sentence> sentences) {
 		for (Sentence sentence : sentences) {
 			// traversing the words in the current sentence
 			// a CoreLabel is a CoreMap with additional token-specific methods
 			for (Token token : sentence.getTokens()) {
 				// this is the text of the token
-				String word = token.getLiteral();
+				int id = symbols.intern(token.getLiteral());
 				// calculate vocabulary size
-				vocabulary.add(word.toLowerCase());
+				vocabulary.add(symbols.getSymbol(symbols.toLowerCase(id)));
 			}
 		}
 	}
@@ -105,12 +203,44 @@ public class Corpus implements Iterable<Sentence> {
 	}
 
 	/**
-	 * @return sentences from input corpus
+	 * @return number of sentences, counted without holding them as a list
+	 */
+	public int size() {
+		return (sentences == null) ? store.size() : sentences.size();
+	}
+
+	/**
+	 * Sentences as a list, whose changes are kept. The corpus switches for
+	 * good from its store to the returned list, which takes a {@link Token}
+	 * and its strings per token; iterate the corpus instead where sentences
+	 * are only read.
+	 * 
+	 * @return sentences from input corpus, which the corpus holds from now on
 	 */
 	public List<Sentence> getSentences() {
+		if (sentences == null) {
+			sentences = new ArrayList<Sentence>(store.size());
+			for (int i = 0; i < store.size(); i++) {
+				sentences.add(store.get(i));
+			}
+			store = null;
+		}
 		return sentences;
 	}
 
+	/**
+	 * @return sentences from input corpus as stores, in order; a new one, on
+	 *         the symbol table of the corpus, if they are held as a list
+	 */
+	Iterator<SentenceStore> batches() {
+		SentenceStore res = store;
+		if (res == null) {
+			res = new SentenceStore(symbols);
+			res.addAll(sentences);
+		}
+		return Collections.singletonList(res).iterator();
+	}
+
 	public Set<String> getVocabulary() {
 		return vocabulary;
 	}
@@ -134,7 +264,8 @@ public class Corpus implements Iterable<Sentence> {
 
 	@Override
 	public Iterator<Sentence> iterator() {
-		return new CorpusIterator(sentences);
+		return (sentences == null) ? new CorpusIterator(store)
+				: new CorpusIterator(sentences);
 	}
 
 	/**
@@ -149,13 +280,19 @@ public class Corpus implements Iterable<Sentence> {
 
 		private List<Sentence> sentences = null;
 
+		private SentenceStore store = null;
+
 		private CorpusIterator(List<Sentence> sentences) {
 			this.sentences = sentences;
 		}
 
+		CorpusIterator(SentenceStore store) {
+			this.store = store;
+		}
+
 		@Override
 		public boolean hasNext() {
-			return index < sentences.size();
+			return index < ((store == null) ? sentences.size() : store.size());
 		}
 
 		@Override
@@ -163,7 +300,8 @@ public class Corpus implements Iterable<Sentence> {
 			if (!hasNext()) {
 				throw new NoSuchElementException();
 			}
-			Sentence res = sentences.get(index);
+			Sentence res = (store == null) ? sentences.get(index) : store
+					.get(index);
 			index++;
 			return res;
 		}
@@ -183,7 +321,7 @@ public class Corpus implements Iterable<Sentence> {
 	 * @return corpus after filtering
 	 */
 	public Corpus filter(Set<String> res) {
-		for (Sentence sent : sentences) {
+		for (Sentence sent : getSentences()) {
 			sent.filter(res);
 		}
 		return this;
@@ -0,0 +1,284 @@
+package edu.nyu.cs.pub;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary cache of corpora read by another reader.
+ * <p>
+ * The first time a corpus is read, its sentences are written to a cache file
+ * as in {@link SentenceStore}: symbols, token columns of ids, sentence offsets,
+ * polarities and labels. Later reads load that file instead of parsing the corpus
+ * again, as long as it is valid. There is one cache file per reader class,
+ * preprocessing options and corpus path; its header records the path, length
+ * and last modified time of every corpus file, and a cache file whose header
+ * does not match the corpus any more is overwritten, so the cache holds one
+ * file per corpus however often it changes. A missing, stale or broken cache
+ * file is written again; failing to write one does not fail the read.
+ * <p>
+ * Caching is off unless system property {@value #DIRECTORY_PROPERTY} names
+ * the directory of cache files, or one is given to the constructor; without
+ * it, corpora are read by the other reader every time. Cache files are
+ * replaced atomically, so processes may share them.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class CorpusCache implements IStoreReader {
+
+	// system property naming cache directory
+	public static final String DIRECTORY_PROPERTY = "nlp.corpus.cache";
+
+	// "CRP1", first int of a cache file
+	private static final int MAGIC = 0x43525031;
+
+	// cache file format version, 2 adds sentence labels
+	private static final int VERSION = 2;
+
+	private final IFileReader reader;
+
+	private final String options;
+
+	// null if caching is off
+	private final File directory;
+
+	/**
+	 * Cache in the directory of system property {@value #DIRECTORY_PROPERTY},
+	 * if set
+	 * 
+	 * @param reader
+	 *            reader parsing corpora not cached yet
+	 * @param options
+	 *            preprocessing options of reader, any change of which makes
+	 *            cached corpora stale
+	 */
+	public CorpusCache(IFileReader reader, String options) {
+		this(reader, options, directory());
+	}
+
+	/**
+	 * @param reader
+	 *            reader parsing corpora not cached yet
+	 * @param options
+	 *            preprocessing options of reader
+	 * @param directory
+	 *            directory of cache files, created if missing; null not to
+	 *            cache
+	 */
+	public CorpusCache(IFileReader reader, String options, File directory) {
+		this.reader = reader;
+		this.options = options;
+		this.directory = directory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.IFileReader#read(java.io.File)
+	 */
+	public List<Sentence> read(File file) throws IOException {
+		SentenceStore store = new SentenceStore();
+		read(file, store);
+		List<Sentence> res = new ArrayList<Sentence>(store.size());
+		for (int i = 0; i < store.size(); i++) {
+			res.add(store.get(i));
+		}
+		return res;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.IStoreReader#read(java.io.File,
+	 * edu.nyu.cs.pub.SentenceStore)
+	 */
+	public void read(File file, SentenceStore store) throws IOException {
+		if (directory == null) {
+			readThrough(file, store);
+			return;
+		}
+		String name = name(file);
+		String key = name + stamp(file);
+		File cacheFile = new File(directory, digest(name) + ".corpus");
+		if (load(cacheFile, key, store)) {
+			return;
+		}
+		SentenceStore res = new SentenceStore(store.getSymbols());
+		readThrough(file, res);
+		save(cacheFile, key, res);
+		store.addAll(res);
+	}
+
+	/**
+	 * @return directory of system property {@value #DIRECTORY_PROPERTY}, null
+	 *         if not set
+	 */
+	private static File directory() {
+		String path = System.getProperty(DIRECTORY_PROPERTY);
+		return (path == null || path.length() == 0) ? null : new File(path);
+	}
+
+	/**
+	 * Read corpus with the other reader
+	 */
+	private void readThrough(File file, SentenceStore store) throws IOException {
+		if (reader instanceof IStoreReader) {
+			((IStoreReader) reader).read(file, store);
+		} else {
+			store.addAll(reader.read(file));
+		}
+	}
+
+	/**
+	 * Options of a reader that preprocesses with word lists, naming every word
+	 * rather than a hash of the lists, so that no change to them can go
+	 * unnoticed
+	 * 
+	 * @param prefix
+	 *            other options
+	 * @param lists
+	 *            word lists of the reader
+	 * @return options to cache with
+	 */
+	public static String options(String prefix, List<?>... lists) {
+		StringBuilder res = new StringBuilder(prefix);
+		for (List<?> words : lists) {
+			// lengths first, so that words may hold any separator
+			res.append('\n').append(words.size());
+			for (Object word : words) {
+				String str = String.valueOf(word);
+				res.append(' ').append(str.length()).append(':').append(str);
+			}
+		}
+		return res.toString();
+	}
+
+	/**
+	 * @return what a cache file is named after: reader, options and corpus
+	 *         path
+	 */
+	private String name(File file) throws IOException {
+		StringBuilder res = new StringBuilder();
+		res.append(reader.getClass().getName()).append('\n');
+		res.append(options).append('\n');
+		res.append(file.getCanonicalPath()).append('\n');
+		return res.toString();
+	}
+
+	/**
+	 * @return state of every corpus file, changing whenever any of them does
+	 */
+	private static String stamp(File file) throws IOException {
+		StringBuilder res = new StringBuilder();
+		for (File sub : DirectoryLoader.listFiles(file)) {
+			res.append(sub.getPath()).append('\t').append(sub.length())
+					.append('\t').append(sub.lastModified()).append('\n');
+		}
+		return res.toString();
+	}
+
+	private static String digest(String key) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			StringBuilder res = new StringBuilder();
+			for (byte b : md.digest(key.getBytes("UTF-8"))) {
+				res.append(Character.forDigit((b >> 4) & 0xF, 16));
+				res.append(Character.forDigit(b & 0xF, 16));
+			}
+			return res.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("Hashing corpus key failed!\n", e);
+		} catch (IOException e) {
+			throw new RuntimeException("Hashing corpus key failed!\n", e);
+		}
+	}
+
+	/**
+	 * Append cached sentences to store
+	 *
+	 * @return false if there is no valid cache file
+	 */
+	private boolean load(File cacheFile, String key, SentenceStore store) {
+		if (!cacheFile.isFile()) {
+			return false;
+		}
+		// read into a store of its own, so that a broken file adds nothing
+		SentenceStore res = new SentenceStore(store.getSymbols());
+		try {
+			RandomAccessFile raf = new RandomAccessFile(cacheFile, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+						0, channel.size());
+				if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+					return false;
+				}
+				int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					return false;
+				}
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				if (!key.equals(new String(bytes, "UTF-8"))) {
+					return false;
+				}
+				res.read(buffer);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			return false;
+		} catch (BufferUnderflowException e) {
+			return false;
+		} catch (IndexOutOfBoundsException e) {
+			return false;
+		}
+		store.addAll(res);
+		return true;
+	}
+
+	/**
+	 * Write cache file, replacing it, stale or not, at once
+	 */
+	private void save(File cacheFile, String key, SentenceStore store) {
+		File tmp = null;
+		try {
+			directory.mkdirs();
+			tmp = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				byte[] bytes = key.getBytes("UTF-8");
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				store.write(out);
+			} finally {
+				out.close();
+			}
+			// replaces an existing file at once, except on some platforms
+			if (!tmp.renameTo(cacheFile)) {
+				cacheFile.delete();
+				tmp.renameTo(cacheFile);
+			}
+		} catch (IOException e) {
+			// corpus is read anyway, cache is written next time
+		} finally {
+			if (tmp != null && tmp.exists()) {
+				tmp.delete();
+			}
+		}
+	}
+}
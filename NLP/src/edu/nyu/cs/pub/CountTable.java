@@ -0,0 +1,144 @@
+package edu.nyu.cs.pub;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Primitive count tables for training matrices.
+ * <p>
+ * Counts unigrams and bigrams of symbols interned in a shared
+ * {@link SymbolTable}, in {@link SparseTable}s keyed by id. Each training
+ * worker fills a table of its own; tables are then merged and turned into the
+ * maps a {@link Matrix} normalizes.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class CountTable {
+
+	private final SymbolTable symbols;
+
+	// <row id, column id> -> count
+	private final SparseTable bigram = new SparseTable();
+
+	// id -> count
+	private final SparseTable unigram = new SparseTable();
+
+	/**
+	 * @param symbols
+	 *            symbol table shared by all tables to be merged
+	 */
+	public CountTable(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Count a bigram once
+	 *
+	 * @param row
+	 *            first symbol
+	 * @param col
+	 *            second symbol
+	 */
+	public void addBigram(String row, String col) {
+		bigram.add(key(symbols.intern(row), symbols.intern(col)), 1);
+	}
+
+	/**
+	 * Count a bigram of interned symbols once
+	 *
+	 * @param row
+	 *            id of first symbol
+	 * @param col
+	 *            id of second symbol
+	 */
+	public void addBigram(int row, int col) {
+		bigram.add(key(row, col), 1);
+	}
+
+	/**
+	 * Count a unigram once
+	 *
+	 * @param symbol
+	 *            any symbol
+	 */
+	public void addUnigram(String symbol) {
+		unigram.add(symbols.intern(symbol), 1);
+	}
+
+	/**
+	 * Count a unigram of an interned symbol once
+	 *
+	 * @param symbol
+	 *            id of symbol
+	 */
+	public void addUnigram(int symbol) {
+		unigram.add(symbol, 1);
+	}
+
+	/**
+	 * Add counts of another table. Ids of a table on another symbol table are
+	 * translated by their symbols, e.g. for batches of a
+	 * {@link StreamingCorpus}.
+	 *
+	 * @param other
+	 *            counts to add
+	 */
+	public void merge(CountTable other) {
+		if (other.symbols == symbols) {
+			for (long k : other.bigram.keys()) {
+				bigram.add(k, other.bigram.get(k, 0));
+			}
+			for (long k : other.unigram.keys()) {
+				unigram.add(k, other.unigram.get(k, 0));
+			}
+			return;
+		}
+		for (long k : other.bigram.keys()) {
+			bigram.add(key(translate(other, (int) (k >>> 32)), translate(
+					other, (int) k)), other.bigram.get(k, 0));
+		}
+		for (long k : other.unigram.keys()) {
+			unigram.add(translate(other, (int) k), other.unigram.get(k, 0));
+		}
+	}
+
+	/**
+	 * @return id in this table of a symbol of another one
+	 */
+	private int translate(CountTable other, int id) {
+		return symbols.intern(other.symbols.getSymbol(id));
+	}
+
+	/**
+	 * @return bigram counts, <K,V> = <Row,<Column,Count>>
+	 */
+	public Map<String, Map<String, Double>> getBigramCounts() {
+		Map<String, Map<String, Double>> res = new HashMap<String, Map<String, Double>>();
+		for (long k : bigram.keys()) {
+			String row = symbols.getSymbol((int) (k >>> 32));
+			Map<String, Double> rowMap = res.get(row);
+			if (rowMap == null) {
+				rowMap = new HashMap<String, Double>();
+				res.put(row, rowMap);
+			}
+			rowMap.put(symbols.getSymbol((int) k), bigram.get(k, 0));
+		}
+		return res;
+	}
+
+	/**
+	 * @return unigram counts, <K,V> = <Symbol,Count>
+	 */
+	public Map<String, Double> getUnigramCounts() {
+		Map<String, Double> res = new HashMap<String, Double>();
+		for (long k : unigram.keys()) {
+			res.put(symbols.getSymbol((int) k), unigram.get(k, 0));
+		}
+		return res;
+	}
+
+	private static long key(int row, int col) {
+		return ((long) row << 32) | col;
+	}
+}
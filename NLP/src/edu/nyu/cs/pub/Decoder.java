@@ -2,6 +2,10 @@ package edu.nyu.cs.pub;
 
 /**
  * Decoder interface
+ * <p>
+ * A decoder may be shared by several threads when a model tags in parallel
+ * (see {@link AbstractModel#setExecutor(java.util.concurrent.ExecutorService)}),
+ * so implementations must be thread safe.
  * 
  * @author Daniel Wu
  * 
@@ -0,0 +1,159 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads files of a directory on a bounded pool of threads.
+ * <p>
+ * Directories are listed in order of file names, so that files, and results
+ * of loading them, come in the same order on every file system, whichever
+ * file is loaded first. A load started from a thread of the pool, e.g. a file
+ * that is itself a directory, runs in that thread, so loads may nest without
+ * waiting on each other.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class DirectoryLoader {
+
+	// threads loading files; small files are latency bound, so at least a few
+	private static final int THREADS = Math.max(4, Runtime.getRuntime()
+			.availableProcessors());
+
+	// shared pool, created on first parallel load
+	private static ExecutorService pool = null;
+
+	/**
+	 * Loads one file
+	 *
+	 * @param <T>
+	 *            what a file is loaded as
+	 */
+	public interface Loader<T> {
+
+		T load(File file) throws IOException;
+	}
+
+	private DirectoryLoader() {
+	}
+
+	/**
+	 * @param dir
+	 *            any directory
+	 * @return files and directories in given directory, in order of names
+	 */
+	public static File[] children(File dir) {
+		File[] res = dir.listFiles();
+		if (res == null) {
+			return new File[0];
+		}
+		Arrays.sort(res);
+		return res;
+	}
+
+	/**
+	 * @param file
+	 *            file or directory
+	 * @return given file, or files within given directory and its
+	 *         subdirectories, depth first in order of names
+	 * @throws IOException
+	 *             if a path is not a file or directory
+	 */
+	public static List<File> listFiles(File file) throws IOException {
+		List<File> res = new ArrayList<File>();
+		listFiles(file, res);
+		return res;
+	}
+
+	private static void listFiles(File file, List<File> res)
+			throws IOException {
+		if (file.isDirectory()) {
+			for (File sub : children(file)) {
+				listFiles(sub, res);
+			}
+		} else if (file.isFile()) {
+			res.add(file);
+		} else {
+			throw new IOException(
+					"Cannot read files, not valid file or directory path\n");
+		}
+	}
+
+	/**
+	 * Load files in parallel
+	 *
+	 * @param files
+	 *            files to load
+	 * @param loader
+	 *            loads one file, from any thread
+	 * @return what each file is loaded as, in order of files
+	 * @throws IOException
+	 *             first error of loading a file, in order of files
+	 */
+	public static <T> List<T> load(List<File> files, final Loader<T> loader)
+			throws IOException {
+		List<T> res = new ArrayList<T>(files.size());
+		if (files.size() < 2 || Thread.currentThread() instanceof Worker) {
+			for (File file : files) {
+				res.add(loader.load(file));
+			}
+			return res;
+		}
+		List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+		for (final File file : files) {
+			tasks.add(new Callable<T>() {
+				public T call() throws IOException {
+					return loader.load(file);
+				}
+			});
+		}
+		try {
+			for (Future<T> future : getPool().invokeAll(tasks)) {
+				res.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Loading files interrupted\n");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RuntimeException("Loading files failed!\n", cause);
+		}
+		return res;
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					return new Worker(r);
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Pool thread, not keeping the virtual machine alive
+	 */
+	private static class Worker extends Thread {
+
+		private Worker(Runnable r) {
+			super(r, "directory-loader");
+			setDaemon(true);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package edu.nyu.cs.pub;
+
+import java.util.List;
+
+/**
+ * Feature indices of a vocabulary, e.g. for libsvm.
+ * <p>
+ * Words are numbered from 1 in the order of the vocabulary. Words are interned
+ * in a symbol table of the index alone, in that order, so the index of a word
+ * is its id plus one, found without searching the vocabulary, and the index
+ * takes memory in proportion to its own vocabulary.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class FeatureIndex {
+
+	// word -> feature index - 1
+	private final SymbolTable symbols = new SymbolTable();
+
+	private final int size;
+
+	/**
+	 * @param vocabulary
+	 *            distinct words, in feature order
+	 */
+	public FeatureIndex(List<String> vocabulary) {
+		for (String word : vocabulary) {
+			symbols.intern(word);
+		}
+		size = vocabulary.size();
+	}
+
+	/**
+	 * @param word
+	 *            any word
+	 * @return feature index of word, 0 if not in vocabulary
+	 */
+	public int get(String word) {
+		return symbols.getId(word) + 1;
+	}
+
+	/**
+	 * @return number of words
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,75 @@
+package edu.nyu.cs.pub;
+
+/**
+ * Named feature, as the string "name=value" a maximum entropy model reads.
+ * <p>
+ * The string of each value is made once and kept by the id of the value in a
+ * symbol table of the feature, so features of seen values are neither
+ * concatenated nor allocated again. Only the first {@value #CAPACITY}
+ * distinct values are kept, typically those of training; strings of later
+ * ones, e.g. rare words of a long tagging run, are made on each call, so
+ * memory stays bounded. Thread safe.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class FeatureName {
+
+	// most values whose feature strings are kept
+	private static final int CAPACITY = 1 << 16;
+
+	private final SymbolTable symbols = new SymbolTable();
+
+	// name followed by '='
+	private final String prefix;
+
+	// value id -> feature string, null if not made yet
+	private volatile String[] features = new String[16];
+
+	/**
+	 * @param name
+	 *            feature name
+	 */
+	public FeatureName(String name) {
+		this.prefix = name + "=";
+	}
+
+	/**
+	 * @param value
+	 *            feature value
+	 * @return "name=value"
+	 */
+	public String get(String value) {
+		// as concatenation does, null is "null"
+		int id = symbols.intern(String.valueOf(value), CAPACITY);
+		if (id < 0) {
+			return prefix + value;
+		}
+		String[] cache = features;
+		if (id < cache.length && cache[id] != null) {
+			return cache[id];
+		}
+		String res = prefix + value;
+		synchronized (this) {
+			cache = features;
+			if (id >= cache.length) {
+				String[] grown = new String[Math.max(cache.length << 1,
+						id + 1)];
+				System.arraycopy(cache, 0, grown, 0, cache.length);
+				cache = grown;
+			}
+			cache[id] = res;
+			features = cache;
+		}
+		return res;
+	}
+
+	/**
+	 * @param value
+	 *            feature value
+	 * @return "name=value"
+	 */
+	public String get(boolean value) {
+		return get(String.valueOf(value));
+	}
+}
@@ -1,21 +1,12 @@
 package edu.nyu.cs.pub;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.Closeable;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
-import edu.nyu.cs.pub.Token.TokenBuilder;
+import edu.nyu.cs.pub.DirectoryLoader.Loader;
 import edu.nyu.cs.pub.Token.TokenDecor;
 
 /**
@@ -24,7 +15,7 @@ import edu.nyu.cs.pub.Token.TokenDecor;
  * @author Daniel
  * 
  */
-public class FileManager implements IFileReader {
+public class FileManager implements IStoreReader {
 
 	// singleton
 	public static FileManager instance = new FileManager();
@@ -53,11 +44,18 @@ public class FileManager implements IFileReader {
 		}
 	}
 
+	/**
+	 * Read files of a directory in parallel, in order of names
+	 */
 	private List<Sentence> getFromDir(File file) throws IOException {
 		List<Sentence> res = new ArrayList<Sentence>();
-		File[] files = file.listFiles();
-		for (File sub : files) {
-			res.addAll(read(sub));
+		for (List<Sentence> sentences : DirectoryLoader.load(DirectoryLoader
+				.listFiles(file), new Loader<List<Sentence>>() {
+			public List<Sentence> load(File file) throws IOException {
+				return getFromFile(file);
+			}
+		})) {
+			res.addAll(sentences);
 		}
 		return res;
 	}
@@ -65,41 +63,84 @@ public class FileManager implements IFileReader {
 	private List<Sentence> getFromFile(File file) throws IOException {
 		List<Sentence> res = new ArrayList<Sentence>();
 		// parse Processs from input file
-		FileInputStream fstream = new FileInputStream(file);
-		// Get the object of DataInputStream
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-		String strLine = "";
+		SentenceReader reader = new SentenceReader(file);
 		Sentence sentence = null;
-		int index = 0;
-		int count = -1;
-		do {
-			count++;
-			if (strLine.trim().equals("")) {
-				sentence = new Sentence();
-				res.add(sentence);
-				index = 0;
-			} else {
-				String[] strs = strLine.split("[\t\n ]");
-				TokenBuilder builder = new TokenBuilder(strs);
-				builder.setIndex(index++);
-				sentence.addToken(builder.build());
-			}
-		} while ((strLine = br.readLine()) != null);
-		System.out.println("File " + file.getPath() + " has " + count
-				+ " lines\n");
+		while ((sentence = reader.next()) != null) {
+			res.add(sentence);
+		}
 		int totalSent = 0;
 		for (Sentence sentence2 : res) {
 			totalSent += sentence2.length();
 		}
-		System.out.println("File " + file.getPath() + " has " + res.size()
-				+ " sentences\n");
-		System.out.println("File " + file.getPath() + " has " + totalSent
-				+ " tokens\n");
-		closeBuffer(br);
+		count(reader.getLineCount(), res.size(), totalSent);
+		closeBuffer(reader);
 		return res;
 	}
 
+	/**
+	 * Read in sentences from input corpus, straight into a store
+	 * 
+	 * @param file
+	 *            Input corpus. If input file is directory, then recursively
+	 *            read files within directory
+	 * @param store
+	 *            store to append sentences to
+	 * @throws IOException
+	 *             throws exception if error occurs when opening input corpus
+	 * @see #read(File)
+	 */
+	public void read(File file, SentenceStore store) throws IOException {
+		if (file.isDirectory()) {
+			getFromDir(file, store);
+		} else if (file.isFile()) {
+			getFromFile(file, store);
+		} else {
+			throw new IOException(
+					"Cannot read files, not valid file or directory path\n");
+		}
+	}
+
+	/**
+	 * Read files of a directory in parallel, each into a store of its own,
+	 * and append them in order of names
+	 */
+	private void getFromDir(File file, final SentenceStore store)
+			throws IOException {
+		for (SentenceStore read : DirectoryLoader.load(DirectoryLoader
+				.listFiles(file), new Loader<SentenceStore>() {
+			public SentenceStore load(File file) throws IOException {
+				SentenceStore res = new SentenceStore(store.getSymbols());
+				getFromFile(file, res);
+				return res;
+			}
+		})) {
+			store.addAll(read);
+		}
+	}
+
+	private void getFromFile(File file, SentenceStore store)
+			throws IOException {
+		int sentences = store.size();
+		int tokens = store.numberOfTokens();
+		SentenceReader reader = new SentenceReader(file);
+		while (reader.next(store)) {
+			// one sentence per call
+		}
+		count(reader.getLineCount(), store.size() - sentences,
+				store.numberOfTokens() - tokens);
+		closeBuffer(reader);
+	}
+
+	/**
+	 * Count a file read, see {@link Metrics}
+	 */
+	private void count(int lines, int sentences, int tokens) {
+		Metrics.instance.counter("corpus.files").inc();
+		Metrics.instance.counter("corpus.lines").add(lines);
+		Metrics.instance.counter("corpus.sentences").add(sentences);
+		Metrics.instance.counter("corpus.tokens").add(tokens);
+	}
+
 	private void closeBuffer(Closeable br) {
 		if (br != null) {
 			try {
@@ -122,20 +163,14 @@ public class FileManager implements IFileReader {
 	 */
 	public void writeFileForTest(File file, List<Sentence> sentences)
 			throws IOException {
-		FileOutputStream fstream = new FileOutputStream(file);
-		// Get the object of DataInputStream
-		DataOutputStream in = new DataOutputStream(fstream);
-		BufferedWriter br = new BufferedWriter(new OutputStreamWriter(in));
-		for (Sentence sentence : sentences) {
-			List<Token> tokens = sentence.getTokens();
-			for (Token token : tokens) {
-				br.append(new TokenDecor(token, TokenDecor.TAB).toString());
-				br.append("\n");
+		SentenceWriter writer = new SentenceWriter(file, TokenDecor.TAB);
+		try {
+			for (Sentence sentence : sentences) {
+				writer.write(sentence);
 			}
-			br.append("\n");
+		} finally {
+			writer.close();
 		}
-		br.flush();
-		closeBuffer(br);
 	}
 
 	/**
@@ -150,20 +185,14 @@ public class FileManager implements IFileReader {
 	 */
 	public void writeFile(File file, List<Sentence> sentences)
 			throws IOException {
-		FileOutputStream fstream = new FileOutputStream(file);
-		// Get the object of DataInputStream
-		DataOutputStream in = new DataOutputStream(fstream);
-		BufferedWriter br = new BufferedWriter(new OutputStreamWriter(in));
-		for (Sentence sentence : sentences) {
-			List<Token> tokens = sentence.getTokens();
-			for (Token token : tokens) {
-				br.append(new TokenDecor(token, TokenDecor.BLANK).toString());
-				br.append("\n");
+		SentenceWriter writer = new SentenceWriter(file, TokenDecor.BLANK);
+		try {
+			for (Sentence sentence : sentences) {
+				writer.write(sentence);
 			}
-			br.append("\n");
+		} finally {
+			writer.close();
 		}
-		br.flush();
-		closeBuffer(br);
 	}
 
 	/**
@@ -177,14 +206,15 @@ public class FileManager implements IFileReader {
 	 * @throws IOException
 	 */
 	public static <T> void writeFeatures(String modelFile,
-			Collection<T> features) throws IOException {
-		FileOutputStream fstream = new FileOutputStream(modelFile);
-		// Get the object of DataInputStream
-		DataOutputStream in = new DataOutputStream(fstream);
-		BufferedWriter br = new BufferedWriter(new OutputStreamWriter(in));
-		for (T feature : features) {
-			br.append(feature + "\n");
+			Iterable<T> features) throws IOException {
+		AsyncWriter writer = new AsyncWriter(new File(modelFile));
+		try {
+			for (T feature : features) {
+				writer.write(String.valueOf(feature));
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
 		}
-		br.flush();
 	}
 }
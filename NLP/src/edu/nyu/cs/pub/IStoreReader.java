@@ -0,0 +1,24 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * File reader able to read sentences straight into a {@link SentenceStore}
+ * 
+ * @author Daniel Wu
+ * 
+ */
+public interface IStoreReader extends IFileReader {
+
+	/**
+	 * Read file into a store
+	 * 
+	 * @param file
+	 * @param store
+	 *            store to append sentences to
+	 * @throws IOException
+	 */
+	void read(File file, SentenceStore store) throws IOException;
+
+}
@@ -0,0 +1,66 @@
+package edu.nyu.cs.pub;
+
+/**
+ * Scores the lattice of a first order sequence model, for
+ * {@link OnlineViterbi}.
+ * <p>
+ * States are ints from 0 to {@link #numberOfStates()} - 1. The costs of a
+ * position may depend on a few tokens before and after it, see
+ * {@link #history()} and {@link #lookahead()}, and on the state of the
+ * previous position. Costs are negative log probabilities, as in
+ * {@link MathUtil#cost(double)}; {@link Double#POSITIVE_INFINITY} rules a
+ * state out.
+ *
+ * @author Daniel Wu
+ * @see OnlineViterbi
+ */
+public interface LatticeScorer {
+
+	/**
+	 * @return number of states
+	 */
+	public int numberOfStates();
+
+	/**
+	 * @return number of tokens before a position its costs depend on
+	 */
+	public int history();
+
+	/**
+	 * @return number of tokens after a position its costs depend on
+	 */
+	public int lookahead();
+
+	/**
+	 * Costs of entering each state at a position
+	 *
+	 * @param window
+	 *            {@link #history()} tokens, current token, then
+	 *            {@link #lookahead()} tokens; null where the stream has no
+	 *            token
+	 * @param first
+	 *            true at first position of a stream
+	 * @param costs
+	 *            output; at first position, cost of state s is
+	 *            <code>costs[s]</code>, else cost of s following s1 is
+	 *            <code>costs[s1 * N + s]</code>
+	 */
+	public void costs(Token[] window, boolean first, double[] costs);
+
+	/**
+	 * @param state
+	 *            state of last position
+	 * @return cost of ending a stream in given state
+	 */
+	public double endCost(int state);
+
+	/**
+	 * Set decoded state on a token, e.g. as its tag
+	 *
+	 * @param token
+	 *            decoded token
+	 * @param state
+	 *            its state
+	 */
+	public void assign(Token token, int state);
+}
@@ -0,0 +1,428 @@
+package edu.nyu.cs.pub;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.pub.DirectoryLoader.Loader;
+
+/**
+ * Memory-mapped reader of column-format corpora.
+ * <p>
+ * Reads what {@link SentenceReader} reads, into the same sentences: one token
+ * per line, columns separated by a tab or a space, sentences separated by
+ * blank lines. The file is mapped and scanned byte by byte for line and
+ * column boundaries, and column values go straight into a
+ * {@link SentenceStore} as ids. Values are looked up by their bytes, so a
+ * value seen before is neither decoded nor allocated again; only new values
+ * become strings, in the platform default encoding, which must be ASCII
+ * compatible. Files of a directory are read in parallel, as
+ * {@link FileManager} reads them, and their sentences appended in order of
+ * names.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class MappedFileReader implements IStoreReader {
+
+	// singleton
+	public static MappedFileReader instance = new MappedFileReader();
+
+	// columns a token is built from, see Token.TokenBuilder
+	private static final int COLUMNS = 6;
+
+	// largest part of a file mapped at once
+	private static final long REGION = Integer.MAX_VALUE;
+
+	private MappedFileReader() {
+	}
+
+	/**
+	 * Read in sentences from input corpus
+	 *
+	 * @param file
+	 *            Input corpus. If input file is directory, then recursively
+	 *            read files within directory
+	 * @return List of sentences
+	 * @throws IOException
+	 *             if error occurs when reading input corpus
+	 */
+	public List<Sentence> read(File file) throws IOException {
+		SentenceStore store = new SentenceStore();
+		read(file, store);
+		List<Sentence> res = new ArrayList<Sentence>(store.size());
+		for (int i = 0; i < store.size(); i++) {
+			res.add(store.get(i));
+		}
+		return res;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see edu.nyu.cs.pub.IStoreReader#read(java.io.File,
+	 * edu.nyu.cs.pub.SentenceStore)
+	 */
+	public void read(File file, SentenceStore store) throws IOException {
+		List<File> files = DirectoryLoader.listFiles(file);
+		if (files.size() < 2) {
+			read(files, store);
+			return;
+		}
+		// files of a directory in parallel, each into a store of its own, and
+		// appended in order of names
+		final SymbolTable symbols = store.getSymbols();
+		for (SentenceStore read : DirectoryLoader.load(files,
+				new Loader<SentenceStore>() {
+					public SentenceStore load(File file) throws IOException {
+						SentenceStore res = new SentenceStore(symbols);
+						read(Collections.singletonList(file), res);
+						return res;
+					}
+				})) {
+			store.addAll(read);
+		}
+	}
+
+	private void read(List<File> files, SentenceStore store)
+			throws IOException {
+		Scanner scanner = new Scanner(files, store.getSymbols());
+		try {
+			while (scanner.next(store)) {
+				// one sentence per call
+			}
+		} finally {
+			scanner.close();
+		}
+	}
+
+	/**
+	 * Open a corpus to read one sentence at a time, e.g. to stream a corpus
+	 * larger than memory. Unlike {@link #read(File, SentenceStore)}, files of
+	 * a directory are scanned one after another.
+	 *
+	 * @param file
+	 *            Input corpus. If input file is directory, then recursively
+	 *            read files within directory, in order of names
+	 * @param symbols
+	 *            symbol table of the stores sentences will be read into
+	 * @return scanner before first sentence
+	 * @throws IOException
+	 *             if input corpus is not a file or directory
+	 */
+	public Scanner open(File file, SymbolTable symbols) throws IOException {
+		return new Scanner(DirectoryLoader.listFiles(file), symbols);
+	}
+
+	/**
+	 * Reads sentences of a list of files, one at a time. Keeps the bytes of
+	 * every column value seen, in an open addressing table over primitive
+	 * arrays, as long as sentences go to stores on the same symbol table.
+	 * Not thread safe; a file left half read is closed by {@link #close()}.
+	 */
+	public static class Scanner implements Closeable {
+
+		private SymbolTable symbols;
+
+		private final Charset charset = Charset.defaultCharset();
+
+		// files to read, and next one
+		private final List<File> files;
+
+		private int nextFile = 0;
+
+		// file being read, null between files
+		private RandomAccessFile raf = null;
+
+		private FileChannel channel = null;
+
+		private long size = 0;
+
+		// mapped region of file, its position in file, next byte to scan and
+		// end of its last whole line
+		private ByteBuffer buffer = null;
+
+		private long regionStart = 0;
+
+		private int offset = 0;
+
+		private int limit = 0;
+
+		// ids of columns of current line
+		private final int[] fields = new int[COLUMNS];
+
+		// slot -> 1 + id of value, 0 if slot is empty
+		private int[] ids = new int[1024];
+
+		// slot -> hash, offset in pool and length of bytes of value
+		private int[] hashes = new int[1024];
+
+		private int[] starts = new int[1024];
+
+		private int[] lengths = new int[1024];
+
+		// bytes of values
+		private byte[] pool = new byte[1 << 16];
+
+		private int poolSize = 0;
+
+		private int entries = 0;
+
+		private Scanner(List<File> files, SymbolTable symbols) {
+			this.files = files;
+			this.symbols = symbols;
+		}
+
+		/**
+		 * Read next sentence, as {@link SentenceReader#next(SentenceStore)}
+		 * does; the end of each file ends a sentence
+		 *
+		 * @param store
+		 *            store to append the sentence to; if it is not on the
+		 *            symbol table of the last one, values seen so far are
+		 *            forgotten
+		 * @return false once every file has been read
+		 * @throws IOException
+		 *             if reading fails
+		 */
+		public boolean next(SentenceStore store) throws IOException {
+			if (store.getSymbols() != symbols) {
+				reset(store.getSymbols());
+			}
+			if (raf == null) {
+				if (nextFile == files.size()) {
+					return false;
+				}
+				openFile(files.get(nextFile++));
+			}
+			if (!scanSentence(store)) {
+				// end of file ends last sentence, as in SentenceReader
+				store.endSentence();
+				close();
+			}
+			return true;
+		}
+
+		public void close() throws IOException {
+			buffer = null;
+			if (raf != null) {
+				RandomAccessFile file = raf;
+				raf = null;
+				channel = null;
+				file.close();
+			}
+		}
+
+		private void openFile(File file) throws IOException {
+			raf = new RandomAccessFile(file, "r");
+			channel = raf.getChannel();
+			size = channel.size();
+			regionStart = 0;
+			offset = 0;
+			limit = 0;
+		}
+
+		/**
+		 * Map region of file from given position
+		 */
+		private void map(long position) throws IOException {
+			long length = Math.min(size - position, REGION);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					length);
+			regionStart = position;
+			offset = 0;
+			// a region other than the last ends after a whole line
+			limit = (position + length == size) ? (int) length : lastLineEnd(
+					buffer, (int) length);
+		}
+
+		/**
+		 * @return position after last line break of a region
+		 */
+		private int lastLineEnd(ByteBuffer buffer, int length)
+				throws IOException {
+			for (int i = length - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					return i + 1;
+				}
+			}
+			// a carriage return may be followed by a line feed in next region
+			for (int i = length - 2; i >= 0; i--) {
+				if (buffer.get(i) == '\r') {
+					return i + 1;
+				}
+			}
+			throw new IOException("Line too long to map\n");
+		}
+
+		/**
+		 * Scan lines up to end of a sentence. Lines are split as
+		 * BufferedReader does: at a line feed, a carriage return, or both
+		 *
+		 * @return false if file ended first
+		 */
+		private boolean scanSentence(SentenceStore store) throws IOException {
+			while (true) {
+				if (offset == limit) {
+					long next = regionStart + limit;
+					if (next >= size) {
+						return false;
+					}
+					map(next);
+				}
+				int lineStart = offset;
+				int i = offset;
+				byte b = 0;
+				while (i < limit && (b = buffer.get(i)) != '\n' && b != '\r') {
+					i++;
+				}
+				int lineEnd = i;
+				if (i < limit) {
+					i++;
+					if (b == '\r' && i < limit && buffer.get(i) == '\n') {
+						i++;
+					}
+				}
+				offset = i;
+				if (line(store, lineStart, lineEnd)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * A blank line ends a sentence, any other is a token whose columns
+		 * are split as String.split("[\t\n ]") does
+		 *
+		 * @return true if line is blank
+		 */
+		private boolean line(SentenceStore store, int from, int to) {
+			boolean blank = true;
+			for (int i = from; i < to && blank; i++) {
+				// as String.trim() does
+				blank = (buffer.get(i) & 0xFF) <= ' ';
+			}
+			if (blank) {
+				store.endSentence();
+				return true;
+			}
+			int count = 0;
+			int fieldStart = from;
+			for (int i = from; i < to && count < COLUMNS; i++) {
+				byte b = buffer.get(i);
+				if (b == '\t' || b == ' ') {
+					fields[count++] = intern(fieldStart, i);
+					fieldStart = i + 1;
+				}
+			}
+			if (count < COLUMNS) {
+				fields[count++] = intern(fieldStart, to);
+			}
+			// trailing empty columns, which split drops, read as empty anyway
+			store.addToken(fields, count);
+			return false;
+		}
+
+		/**
+		 * @return id of value of given bytes
+		 */
+		private int intern(int from, int to) {
+			int length = to - from;
+			int hash = 0;
+			for (int i = from; i < to; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			int mask = ids.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (ids[slot] != 0) {
+				if (hashes[slot] == hash && lengths[slot] == length
+						&& equal(from, starts[slot], length)) {
+					return ids[slot] - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			// new value
+			if (poolSize + length > pool.length) {
+				byte[] grown = new byte[Math.max(pool.length << 1, poolSize
+						+ length)];
+				System.arraycopy(pool, 0, grown, 0, poolSize);
+				pool = grown;
+			}
+			for (int i = 0; i < length; i++) {
+				pool[poolSize + i] = buffer.get(from + i);
+			}
+			int id = symbols.intern(new String(pool, poolSize, length,
+					charset));
+			ids[slot] = id + 1;
+			hashes[slot] = hash;
+			starts[slot] = poolSize;
+			lengths[slot] = length;
+			poolSize += length;
+			entries++;
+			if (entries * 2 > ids.length) {
+				rehash();
+			}
+			return id;
+		}
+
+		/**
+		 * Forget values seen, whose ids are of the old symbol table
+		 */
+		private void reset(SymbolTable symbols) {
+			this.symbols = symbols;
+			ids = new int[1024];
+			hashes = new int[1024];
+			starts = new int[1024];
+			lengths = new int[1024];
+			pool = new byte[1 << 16];
+			poolSize = 0;
+			entries = 0;
+		}
+
+		private boolean equal(int from, int start, int length) {
+			for (int i = 0; i < length; i++) {
+				if (buffer.get(from + i) != pool[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Double table size
+		 */
+		private void rehash() {
+			int[] oldIds = ids;
+			int[] oldHashes = hashes;
+			int[] oldStarts = starts;
+			int[] oldLengths = lengths;
+			int capacity = oldIds.length << 1;
+			ids = new int[capacity];
+			hashes = new int[capacity];
+			starts = new int[capacity];
+			lengths = new int[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < oldIds.length; i++) {
+				if (oldIds[i] == 0) {
+					continue;
+				}
+				int hash = oldHashes[i];
+				int slot = (hash ^ (hash >>> 16)) & mask;
+				while (ids[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				ids[slot] = oldIds[i];
+				hashes[slot] = hash;
+				starts[slot] = oldStarts[i];
+				lengths[slot] = oldLengths[i];
+			}
+		}
+	}
+}
@@ -24,4 +24,61 @@ public class MathUtil {
 		}
 		return maxval;
 	}
+
+	/**
+	 * Cost of a probability, i.e. its negative log. Decoders add costs
+	 * instead of multiplying probabilities, and prefer the lowest total.
+	 * 
+	 * @param prob
+	 *            probability, within (0, 1]
+	 * @return negative log10 of given probability
+	 */
+	public static double cost(double prob) {
+		return Math.abs(Math.log10(prob));
+	}
+
+	/**
+	 * Find the k-th smallest value, by quick select. The first
+	 * <code>length</code> elements of given array are reordered.
+	 * 
+	 * @param vals
+	 *            list of numbers
+	 * @param length
+	 *            number of elements to select from
+	 * @param k
+	 *            rank, starting from 0
+	 * @return k-th smallest value
+	 */
+	public static double select(double[] vals, int length, int k) {
+		int left = 0;
+		int right = length - 1;
+		while (left < right) {
+			double pivot = vals[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (vals[i] < pivot) {
+					i++;
+				}
+				while (vals[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					double tmp = vals[i];
+					vals[i] = vals[j];
+					vals[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+		return vals[k];
+	}
 }
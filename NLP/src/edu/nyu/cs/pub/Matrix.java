@@ -1,9 +1,18 @@
 package edu.nyu.cs.pub;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Base matrix, for transmission matrix and emission matrix
@@ -13,17 +22,99 @@ import java.util.Map.Entry;
  */
 public abstract class Matrix {
 
-	// transition probability matrix <K,V> = <Tag,<Following Tag,Probability>>
+	// transition counts <K,V> = <Tag,<Following Tag,Count>>, filled in by
+	// subclasses before normalize; probabilities are derived on lookup
 	protected Map<String, Map<String, Double>> bigramMatrix = new HashMap<String, Map<String, Double>>();
 
+	// unigram counts, filled in by subclasses before normalize
 	protected Map<String, Double> unigramMatrix = new HashMap<String, Double>();
 
+	// normalizer and log counts of each bigram row, filled in by normalize
+	private Map<String, Row> rows = new HashMap<String, Row>();
+
+	// normalizer and log counts of unigrams
+	private Row unigram = new Row(unigramMatrix);
+
+	// vocabulary size the matrix was last normalized with
+	private int vocabularySize = 0;
+
 	private final Corpus corpus;
 
 	private Double oovForUnigram = 0.0;
 
 	private Double oovForBigram = 0.0;
 
+	private double oovCostForUnigram = 0.0;
+
+	private double oovCostForBigram = 0.0;
+
+	/**
+	 * Counts of a row, with add-one smoothing. The cost of a cell is split
+	 * into the log of its count, kept per cell, and the log of the row total
+	 * plus vocabulary size, kept per row; so a grown vocabulary changes one
+	 * normalizer per row, and new counts change only their own cells.
+	 */
+	private static class Row {
+
+		// raw counts by column, shared with the count matrix
+		private final Map<String, Double> counts;
+
+		// log10 of count + 1 by column
+		private final Map<String, Double> logCounts = new HashMap<String, Double>();
+
+		private double total = 0;
+
+		private double highest = 0;
+
+		private double lowest = Double.MAX_VALUE;
+
+		// set if the lowest count was raised, so that it is searched again
+		private boolean lowestStale = false;
+
+		// log10 of total + vocabulary size
+		private double normalizer = 0;
+
+		Row(Map<String, Double> counts) {
+			this.counts = counts;
+			for (Entry<String, Double> ent : counts.entrySet()) {
+				double count = ent.getValue();
+				logCounts.put(ent.getKey(), Math.log10(count + 1));
+				total += count;
+				highest = Math.max(highest, count);
+				lowest = Math.min(lowest, count);
+			}
+		}
+
+		void add(String col, double delta) {
+			Double old = counts.get(col);
+			double count = (old == null) ? delta : old + delta;
+			counts.put(col, count);
+			logCounts.put(col, Math.log10(count + 1));
+			total += delta;
+			highest = Math.max(highest, count);
+			if (old == null) {
+				lowest = Math.min(lowest, count);
+			} else if (old == lowest) {
+				lowestStale = true;
+			}
+		}
+
+		void normalize(int vocabularySize) {
+			normalizer = Math.log10(total + vocabularySize);
+		}
+
+		double lowest() {
+			if (lowestStale) {
+				lowest = Double.MAX_VALUE;
+				for (Double count : counts.values()) {
+					lowest = Math.min(lowest, count);
+				}
+				lowestStale = false;
+			}
+			return lowest;
+		}
+	}
+
 	public Matrix(Corpus corpus) {
 		this.corpus = corpus;
 	}
@@ -33,64 +124,220 @@ public abstract class Matrix {
 	}
 
 	/**
-	 * normalize matrix cells, counting probability
+	 * Counts what a matrix needs from one sentence of a store; count tables
+	 * share the symbol table of the store
+	 */
+	protected interface Counter {
+
+		void count(SentenceStore store, int sentence, CountTable counts);
+	}
+
+	/**
+	 * Count corpus as a map-reduce over chunks of sentences: one chunk per
+	 * worker thread, each filling a count table of its own, and tables are
+	 * merged at the end. A corpus read in batches, see {@link StreamingCorpus},
+	 * is counted one batch at a time, and the counts of each batch are merged
+	 * into those of the first.
+	 * 
+	 * @param executor
+	 *            executor to count on, or null to count in calling thread
+	 * @param counter
+	 *            counts one sentence
+	 * @return counts of whole corpus
+	 */
+	protected CountTable count(ExecutorService executor, Counter counter) {
+		CountTable res = null;
+		Iterator<SentenceStore> batches = corpus.batches();
+		while (batches.hasNext()) {
+			SentenceStore store = batches.next();
+			// batches may come on symbol tables of their own
+			CountTable counts = new CountTable(store.getSymbols());
+			count(executor, counter, store, counts);
+			if (res == null) {
+				res = counts;
+			} else {
+				res.merge(counts);
+			}
+		}
+		return (res == null) ? new CountTable(new SymbolTable()) : res;
+	}
+
+	private void count(ExecutorService executor, final Counter counter,
+			final SentenceStore store, CountTable res) {
+		final SymbolTable symbols = store.getSymbols();
+		int size = store.size();
+		if (executor == null) {
+			for (int i = 0; i < size; i++) {
+				counter.count(store, i, res);
+			}
+			return;
+		}
+		int workers = (executor instanceof ForkJoinPool) ? ((ForkJoinPool) executor)
+				.getParallelism() : Runtime.getRuntime().availableProcessors();
+		int chunkSize = Math.max(1, (size + workers - 1) / workers);
+		List<Callable<CountTable>> tasks = new ArrayList<Callable<CountTable>>();
+		for (int from = 0; from < size; from += chunkSize) {
+			final int start = from;
+			final int end = Math.min(from + chunkSize, size);
+			tasks.add(new Callable<CountTable>() {
+				public CountTable call() {
+					CountTable counts = new CountTable(symbols);
+					for (int i = start; i < end; i++) {
+						counter.count(store, i, counts);
+					}
+					return counts;
+				}
+			});
+		}
+		try {
+			for (Future<CountTable> future : executor.invokeAll(tasks)) {
+				res.merge(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Training interrupted!\n", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Training failed!\n", e.getCause());
+		}
+	}
+
+	/**
+	 * normalize matrix cells, counting probability and its negative log.
+	 * <p>
+	 * Subclasses fill {@link #bigramMatrix} and {@link #unigramMatrix} with
+	 * counts before calling this; both fields keep the counts, and
+	 * probabilities are derived from them on lookup.
 	 */
 	protected void normalize() {
+		rows = new HashMap<String, Row>();
+		for (Entry<String, Map<String, Double>> entry : bigramMatrix
+				.entrySet()) {
+			rows.put(entry.getKey(), new Row(entry.getValue()));
+		}
+		unigram = new Row(unigramMatrix);
+		vocabularySize = corpus.vocabularySize();
+		for (Row row : rows.values()) {
+			row.normalize(vocabularySize);
+		}
 		normalizeUnigram();
-		normalizeBigram();
+		normalizeOOV();
 	}
 
-	private void normalizeUnigram() {
-		// total number of words
-		Iterator<Map.Entry<String, Double>> it = unigramMatrix.entrySet()
-				.iterator();
-		double count = 0;
-		while (it.hasNext()) {
-			Map.Entry<String, Double> entry = it.next();
-			count += entry.getValue();
-		}
-		oovForUnigram = 1.0 / (count + corpus.vocabularySize());
+	/**
+	 * @return counter this matrix is trained with, or null if the matrix
+	 *         cannot be updated
+	 * @see #update(List)
+	 */
+	protected Counter getCounter() {
+		return null;
+	}
 
-		// normalize
-		it = unigramMatrix.entrySet().iterator();
-		while (it.hasNext()) {
-			Map.Entry<String, Double> entry = it.next();
-			Double numberOfword = entry.getValue();
-			// add one smoothing
-			Double prob = (numberOfword + 1)
-					/ (count + corpus.vocabularySize());
-			entry.setValue(prob);
+	/**
+	 * Add counts of new sentences. Only the cells they count and the
+	 * normalizers of their rows change; if the vocabulary has grown, which
+	 * smoothing depends on, the normalizer of every row changes too, but no
+	 * other cell.
+	 * <p>
+	 * The sentences must already be part of the corpus, see
+	 * {@link Corpus#addSentences(List)}.
+	 * 
+	 * @param sentences
+	 *            newly annotated sentences
+	 * @throws UnsupportedOperationException
+	 *             if the matrix has no counter
+	 */
+	public void update(List<Sentence> sentences) {
+		Counter counter = getCounter();
+		if (counter == null) {
+			throw new UnsupportedOperationException(getClass().getName()
+					+ " cannot be updated\n");
 		}
+		SentenceStore added = new SentenceStore();
+		added.addAll(sentences);
+		CountTable delta = new CountTable(added.getSymbols());
+		for (int i = 0; i < added.size(); i++) {
+			counter.count(added, i, delta);
+		}
+		// add counts
+		Set<Row> touched = new HashSet<Row>();
+		for (Entry<String, Map<String, Double>> entry : delta
+				.getBigramCounts().entrySet()) {
+			Row row = rows.get(entry.getKey());
+			if (row == null) {
+				Map<String, Double> colList = new HashMap<String, Double>();
+				bigramMatrix.put(entry.getKey(), colList);
+				row = new Row(colList);
+				rows.put(entry.getKey(), row);
+			}
+			for (Entry<String, Double> ent : entry.getValue().entrySet()) {
+				row.add(ent.getKey(), ent.getValue());
+			}
+			touched.add(row);
+		}
+		Map<String, Double> unigramDelta = delta.getUnigramCounts();
+		for (Entry<String, Double> ent : unigramDelta.entrySet()) {
+			unigram.add(ent.getKey(), ent.getValue());
+		}
+		// normalizers
+		boolean grown = corpus.vocabularySize() != vocabularySize;
+		vocabularySize = corpus.vocabularySize();
+		for (Row row : grown ? rows.values() : touched) {
+			row.normalize(vocabularySize);
+		}
+		if (grown || !unigramDelta.isEmpty()) {
+			normalizeUnigram();
+		}
+		normalizeOOV();
 	}
 
+	private void normalizeUnigram() {
+		unigram.normalize(vocabularySize);
+		// add one smoothing
+		oovForUnigram = 1.0 / (unigram.total + vocabularySize);
+		oovCostForUnigram = MathUtil.cost(oovForUnigram);
+	}
+
+	/**
+	 * unigram probability, with add-one smoothing
+	 * 
+	 * @param word
+	 * @return probability
+	 */
 	public Double getItem(String word) {
-		Double prob = this.unigramMatrix.get(word);
-		if (prob == null) {
+		Double count = unigram.counts.get(word);
+		if (count == null) {
 			return oovForUnigram;
 		}
-		return prob;
+		return (count + 1) / (unigram.total + vocabularySize);
 	}
 
-	private void normalizeBigram() {
-		Iterator<Map.Entry<String, Map<String, Double>>> it = bigramMatrix
-				.entrySet().iterator();
-		while (it.hasNext()) {
-			Map.Entry<String, Map<String, Double>> entry = it.next();
-			Map<String, Double> colList = entry.getValue();
-			double count = 0;
-			for (Entry<String, Double> ent : colList.entrySet()) {
-				count += ent.getValue();
-			}
-			oovForBigram = 1.0 / (count + corpus.vocabularySize());
-			// normalize
-			for (Entry<String, Double> ent : colList.entrySet()) {
-				// add 1 smoothing
-				Double prob = (ent.getValue() + 1)
-						/ (count + corpus.vocabularySize());
-				// Double prob = (ent.getValue() / count);
-				ent.setValue(prob);
-			}
+	/**
+	 * Unigram cost, i.e. negative log probability of a word
+	 * 
+	 * @param word
+	 * @return cost
+	 * @see MathUtil#cost(double)
+	 */
+	public double getCost(String word) {
+		Double logCount = unigram.logCounts.get(word);
+		if (logCount == null) {
+			return oovCostForUnigram;
+		}
+		return unigram.normalizer - logCount;
+	}
+
+	/**
+	 * Probability of an unseen bigram, as smoothed by the last row
+	 */
+	private void normalizeOOV() {
+		String last = null;
+		for (String row : bigramMatrix.keySet()) {
+			last = row;
 		}
+		if (last != null) {
+			oovForBigram = 1.0 / (rows.get(last).total + vocabularySize);
+		}
+		oovCostForBigram = MathUtil.cost(oovForBigram);
 	}
 
 	/**
@@ -101,12 +348,67 @@ public abstract class Matrix {
 	 * @return
 	 */
 	public double getItem(String row, String col) {
-		Map<String, Double> rowMap = this.getRow(row);
-		if (rowMap == null) {
+		Row rowCounts = rows.get(row);
+		if (rowCounts == null) {
 			return oovForBigram;
 		}
-		Double value = rowMap.get(col);
-		return (value == null) ? oovForBigram : value;
+		Double count = rowCounts.counts.get(col);
+		return (count == null) ? oovForBigram : (count + 1)
+				/ (rowCounts.total + vocabularySize);
+	}
+
+	/**
+	 * @return bigram probability of an unseen cell
+	 */
+	public double getOOVItem() {
+		return oovForBigram;
+	}
+
+	/**
+	 * bigram cost, i.e. negative log of {@link #getItem(String, String)}
+	 * 
+	 * @param row
+	 * @param col
+	 * @return cost
+	 * @see MathUtil#cost(double)
+	 */
+	public double getCost(String row, String col) {
+		Row rowCounts = rows.get(row);
+		if (rowCounts == null) {
+			return oovCostForBigram;
+		}
+		Double logCount = rowCounts.logCounts.get(col);
+		return (logCount == null) ? oovCostForBigram : rowCounts.normalizer
+				- logCount;
+	}
+
+	/**
+	 * @return highest probability in given row, 0 if there is no such row
+	 */
+	protected double getHighestItem(String row) {
+		Row rowCounts = rows.get(row);
+		if (rowCounts == null || rowCounts.counts.isEmpty()) {
+			return 0.0;
+		}
+		return (rowCounts.highest + 1) / (rowCounts.total + vocabularySize);
+	}
+
+	/**
+	 * @return lowest probability in given row, 1 if there is no such row
+	 */
+	protected double getLowestItem(String row) {
+		Row rowCounts = rows.get(row);
+		if (rowCounts == null || rowCounts.counts.isEmpty()) {
+			return 1.0;
+		}
+		return (rowCounts.lowest() + 1) / (rowCounts.total + vocabularySize);
+	}
+
+	/**
+	 * @return bigram cost of an unseen cell
+	 */
+	public double getOOVCost() {
+		return oovCostForBigram;
 	}
 
 	@Override
@@ -114,23 +416,34 @@ public abstract class Matrix {
 		StringBuffer sb = new StringBuffer();
 		sb.append(getClass().getName());
 		sb.append("\n------------------\n");
-		Iterator<Map.Entry<String, Map<String, Double>>> it = bigramMatrix
-				.entrySet().iterator();
-		while (it.hasNext()) {
-			Map.Entry<String, Map<String, Double>> entry = it.next();
-			sb.append("[" + entry.getKey() + "=");
-			sb.append(entry.getValue());
+		for (String row : rows.keySet()) {
+			sb.append("[" + row + "=");
+			sb.append(getRow(row));
 			sb.append("]\n");
 		}
 
 		return sb.toString();
 	}
 
+	/**
+	 * @param row
+	 * @return bigram probabilities of a row, as a new map, or null if there
+	 *         is no such row
+	 */
 	public Map<String, Double> getRow(String row) {
-		return bigramMatrix.get(row);
+		Row rowCounts = rows.get(row);
+		if (rowCounts == null) {
+			return null;
+		}
+		Map<String, Double> res = new HashMap<String, Double>();
+		for (Entry<String, Double> ent : rowCounts.counts.entrySet()) {
+			res.put(ent.getKey(), (ent.getValue() + 1)
+					/ (rowCounts.total + vocabularySize));
+		}
+		return res;
 	}
 
 	public String[] getKeys() {
-		return bigramMatrix.keySet().toArray(new String[0]);
+		return rows.keySet().toArray(new String[0]);
 	}
 }
@@ -0,0 +1,375 @@
+package edu.nyu.cs.pub;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Counters, gauges and latency timers of corpus loading, feature extraction,
+ * training, decoding and output, by name.
+ * <p>
+ * Metrics are registered the first time they are asked for and kept for the
+ * life of the registry. Each one is an MBean of the platform server, named
+ * <code>edu.nyu.cs:type=Metrics,name=...</code>, unless system property
+ * <code>nlp.metrics.jmx</code> is <code>false</code>. With system property
+ * <code>nlp.metrics.dump</code> set to a number of seconds, all metrics are
+ * printed to standard error that often, see {@link #dump()}. Recording is
+ * lock free and may be done from any thread.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class Metrics {
+
+	// singleton
+	public static Metrics instance = new Metrics(Boolean.parseBoolean(System
+			.getProperty("nlp.metrics.jmx", "true")) ? ManagementFactory
+			.getPlatformMBeanServer() : null);
+
+	private static final String DOMAIN = "edu.nyu.cs";
+
+	private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+
+	// server metrics are registered with, null if none
+	private final MBeanServer server;
+
+	private ScheduledExecutorService dumper = null;
+
+	/**
+	 * @param server
+	 *            server to register metrics with, or null
+	 */
+	Metrics(MBeanServer server) {
+		this.server = server;
+		long seconds = Long.getLong("nlp.metrics.dump", 0);
+		if (seconds > 0) {
+			dumpEvery(seconds, System.err);
+		}
+	}
+
+	/**
+	 * @param name
+	 *            metric name, e.g. <code>corpus.tokens</code>
+	 * @return counter of given name, registered if new
+	 * @throws IllegalArgumentException
+	 *             if a metric of another kind has that name
+	 */
+	public Counter counter(String name) {
+		Object metric = metrics.get(name);
+		return cast(name, (metric == null) ? register(name, new Counter())
+				: metric, Counter.class);
+	}
+
+	/**
+	 * @param name
+	 *            metric name, e.g. <code>decode.sentence</code>
+	 * @return timer of given name, registered if new
+	 * @throws IllegalArgumentException
+	 *             if a metric of another kind has that name
+	 */
+	public Timer timer(String name) {
+		Object metric = metrics.get(name);
+		return cast(name, (metric == null) ? register(name, new Timer())
+				: metric, Timer.class);
+	}
+
+	/**
+	 * Register a gauge, unless a metric of given name is registered already
+	 *
+	 * @param name
+	 *            metric name
+	 * @param gauge
+	 *            value to read when asked for
+	 */
+	public void gauge(String name, Gauge gauge) {
+		register(name, gauge);
+	}
+
+	/**
+	 * @return metric registered under given name, given one if none was
+	 */
+	private Object register(String name, Object metric) {
+		Object old = metrics.putIfAbsent(name, metric);
+		if (old != null) {
+			return old;
+		}
+		if (server != null) {
+			try {
+				StandardMBean bean;
+				if (metric instanceof Counter) {
+					bean = new StandardMBean((Counter) metric,
+							CounterMBean.class);
+				} else if (metric instanceof Timer) {
+					bean = new StandardMBean((Timer) metric, TimerMBean.class);
+				} else {
+					bean = new StandardMBean(new GaugeBean((Gauge) metric),
+							GaugeMBean.class);
+				}
+				server.registerMBean(bean, new ObjectName(DOMAIN
+						+ ":type=Metrics,name=" + ObjectName.quote(name)));
+			} catch (JMException e) {
+				// still recorded, only not seen over JMX
+				e.printStackTrace();
+			}
+		}
+		return metric;
+	}
+
+	private static <T> T cast(String name, Object metric, Class<T> type) {
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException("Metric " + name + " is no "
+					+ type.getSimpleName() + "\n");
+		}
+		return type.cast(metric);
+	}
+
+	/**
+	 * @return all metrics, one per line in order of names, e.g.
+	 *         <code>decode.sentence count=2011 mean=0.031ms p50=0.027ms p99=0.118ms max=0.902ms</code>
+	 */
+	public String dump() {
+		StringBuilder res = new StringBuilder();
+		for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(
+				metrics).entrySet()) {
+			res.append(entry.getKey()).append(' ');
+			Object metric = entry.getValue();
+			if (metric instanceof Counter) {
+				res.append("count=").append(((Counter) metric).getCount());
+			} else if (metric instanceof Gauge) {
+				res.append("value=").append(((Gauge) metric).value());
+			} else {
+				Timer timer = (Timer) metric;
+				res.append("count=").append(timer.getCount());
+				res.append(String.format(" mean=%.3fms p50=%.3fms"
+						+ " p99=%.3fms max=%.3fms", timer.getMeanMillis(),
+						timer.get50thPercentileMillis(), timer
+								.get99thPercentileMillis(), timer
+								.getMaxMillis()));
+			}
+			res.append('\n');
+		}
+		return res.toString();
+	}
+
+	/**
+	 * Print {@link #dump()} periodically, on a daemon thread, until the
+	 * virtual machine exits
+	 *
+	 * @param seconds
+	 *            period
+	 * @param out
+	 *            where to print
+	 */
+	public synchronized void dumpEvery(long seconds, final PrintStream out) {
+		if (dumper == null) {
+			dumper = Executors
+					.newSingleThreadScheduledExecutor(new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread res = new Thread(r, "metrics-dump");
+							res.setDaemon(true);
+							return res;
+						}
+					});
+		}
+		dumper.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				out.print(dump());
+				out.flush();
+			}
+		}, seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Value read when asked for, e.g. length of a queue
+	 */
+	public interface Gauge {
+		long value();
+	}
+
+	public interface GaugeMBean {
+		long getValue();
+	}
+
+	public interface CounterMBean {
+		long getCount();
+	}
+
+	public interface TimerMBean {
+		long getCount();
+
+		double getMeanMillis();
+
+		double get50thPercentileMillis();
+
+		double get99thPercentileMillis();
+
+		double getMaxMillis();
+	}
+
+	private static class GaugeBean implements GaugeMBean {
+
+		private final Gauge gauge;
+
+		private GaugeBean(Gauge gauge) {
+			this.gauge = gauge;
+		}
+
+		public long getValue() {
+			return gauge.value();
+		}
+	}
+
+	/**
+	 * Count of events
+	 */
+	public static class Counter implements CounterMBean {
+
+		private final AtomicLong count = new AtomicLong();
+
+		public void inc() {
+			count.incrementAndGet();
+		}
+
+		public void add(long n) {
+			count.addAndGet(n);
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+	}
+
+	/**
+	 * Histogram of durations in nanoseconds.
+	 * <p>
+	 * Buckets are log-linear: eight to each power of two, so a percentile is
+	 * off by at most a sixteenth of its value, whatever the range.
+	 */
+	public static class Timer implements TimerMBean {
+
+		// sub-buckets to each power of two, as bits
+		private static final int SUB_BITS = 3;
+
+		private static final int SUB = 1 << SUB_BITS;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(
+				(64 - SUB_BITS) * SUB);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong total = new AtomicLong();
+
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * @return start time, to hand to {@link #stop(long)}
+		 */
+		public long start() {
+			return System.nanoTime();
+		}
+
+		/**
+		 * Record time passed since given start
+		 *
+		 * @param start
+		 *            time returned by {@link #start()}
+		 */
+		public void stop(long start) {
+			record(System.nanoTime() - start);
+		}
+
+		/**
+		 * @param nanos
+		 *            duration in nanoseconds
+		 */
+		public void record(long nanos) {
+			long value = Math.max(0, nanos);
+			buckets.incrementAndGet(bucket(value));
+			count.incrementAndGet();
+			total.addAndGet(value);
+			long old;
+			while (value > (old = max.get()) && !max.compareAndSet(old, value)) {
+				// lost to another thread, try again
+			}
+		}
+
+		private static int bucket(long value) {
+			if (value < SUB) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+			return (exponent - SUB_BITS + 1) * SUB + sub;
+		}
+
+		/**
+		 * @return middle of values falling into bucket
+		 */
+		private static double middle(int bucket) {
+			if (bucket < SUB) {
+				return bucket;
+			}
+			int exponent = bucket / SUB + SUB_BITS - 1;
+			long width = 1L << (exponent - SUB_BITS);
+			long low = (long) (SUB + bucket % SUB) * width;
+			return low + (width - 1) / 2.0;
+		}
+
+		/**
+		 * @param fraction
+		 *            between 0 and 1, e.g. 0.99
+		 * @return duration in nanoseconds not exceeded by given fraction of
+		 *         those recorded, or 0 if none is
+		 */
+		public double percentile(double fraction) {
+			long n = count.get();
+			if (n == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(fraction * n));
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= rank) {
+					return Math.min(middle(i), max.get());
+				}
+			}
+			return max.get();
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public double getMeanMillis() {
+			long n = count.get();
+			return (n == 0) ? 0 : total.get() / 1e6 / n;
+		}
+
+		public double get50thPercentileMillis() {
+			return percentile(0.5) / 1e6;
+		}
+
+		public double get99thPercentileMillis() {
+			return percentile(0.99) / 1e6;
+		}
+
+		public double getMaxMillis() {
+			return max.get() / 1e6;
+		}
+	}
+}
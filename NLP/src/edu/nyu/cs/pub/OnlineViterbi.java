@@ -0,0 +1,338 @@
+package edu.nyu.cs.pub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-lag Viterbi algorithm over a stream of tokens.
+ * <p>
+ * Tokens are pushed one at a time, with no need for sentence breaks. Only the
+ * best path cost of each state at the last position is kept, with back
+ * pointers of the positions not yet committed. A position is committed as
+ * soon as every surviving path passes through the same state there; all paths
+ * then agree on it and every earlier position, so those tags are final and
+ * equal to what {@link Decoder#decode(Sentence)} would find. If paths still
+ * disagree <code>maxLag</code> positions back, the oldest position is
+ * committed to the state on the currently best path, and paths through any
+ * other state are dropped.
+ * <p>
+ * Memory is bounded by the lag, O(N * maxLag) for N states, whatever the
+ * length of the stream. A decoder serves one stream at a time and is not
+ * thread safe.
+ *
+ * @author Daniel Wu
+ * @see LatticeScorer
+ */
+public class OnlineViterbi {
+
+	private final LatticeScorer scorer;
+
+	// number of states
+	private final int N;
+
+	// number of tokens before and after a position its costs depend on
+	private final int history;
+
+	private final int lookahead;
+
+	// maximum number of scored positions not yet committed
+	private final int maxLag;
+
+	// tokens still needed as history or not yet committed, from stream
+	// position base on
+	private final List<Token> window = new ArrayList<Token>();
+
+	private long base = 0;
+
+	// number of tokens received, positions scored and positions committed
+	private long received = 0;
+
+	private long scored = 0;
+
+	private long committed = 0;
+
+	// cost of best path ending in each state at last scored position
+	private double[] cost;
+
+	private double[] next;
+
+	// back pointers of uncommitted positions, a ring of maxLag + 1 rows
+	private final int[] backpointers;
+
+	// scorer input and output
+	private final Token[] context;
+
+	private final double[] scores;
+
+	// states reachable at last scored position
+	private final int[] active;
+
+	// states on surviving paths, when tracing them back
+	private boolean[] alive;
+
+	private boolean[] previousAlive;
+
+	// states of positions being committed
+	private final int[] path;
+
+	/**
+	 * @param scorer
+	 *            lattice scorer
+	 * @param maxLag
+	 *            maximum number of positions a tag may stay undecided, at
+	 *            least 1
+	 */
+	public OnlineViterbi(LatticeScorer scorer, int maxLag) {
+		if (maxLag < 1) {
+			throw new IllegalArgumentException("Lag must be positive: "
+					+ maxLag);
+		}
+		this.scorer = scorer;
+		this.N = scorer.numberOfStates();
+		this.history = scorer.history();
+		this.lookahead = scorer.lookahead();
+		this.maxLag = maxLag;
+		cost = new double[N];
+		next = new double[N];
+		backpointers = new int[(maxLag + 1) * N];
+		context = new Token[history + 1 + lookahead];
+		scores = new double[N * N];
+		active = new int[N];
+		alive = new boolean[N];
+		previousAlive = new boolean[N];
+		path = new int[maxLag + 1];
+	}
+
+	/**
+	 * Add next token of the stream
+	 *
+	 * @param token
+	 *            next token
+	 * @return tokens whose tags became final, in stream order; possibly
+	 *         empty
+	 */
+	public List<Token> push(Token token) {
+		List<Token> res = new ArrayList<Token>();
+		window.add(token);
+		received++;
+		while (scored + lookahead < received) {
+			advance(res);
+		}
+		return res;
+	}
+
+	/**
+	 * End the stream, e.g. at a sentence break: every remaining token is
+	 * decoded, including the cost of ending in its state. The decoder is then
+	 * ready for a new stream.
+	 *
+	 * @return tokens whose tags became final, in stream order
+	 */
+	public List<Token> flush() {
+		List<Token> res = new ArrayList<Token>();
+		while (scored < received) {
+			advance(res);
+		}
+		if (scored > committed) {
+			double best = Double.POSITIVE_INFINITY;
+			int state = -1;
+			for (int s = 0; s < N; s++) {
+				double c = cost[s] + scorer.endCost(s);
+				if (c < best) {
+					best = c;
+					state = s;
+				}
+			}
+			commit(scored - 1, state, res);
+		}
+		window.clear();
+		base = 0;
+		received = 0;
+		scored = 0;
+		committed = 0;
+		return res;
+	}
+
+	/**
+	 * @return number of tokens received but not yet committed
+	 */
+	public int pending() {
+		return (int) (received - committed);
+	}
+
+	/**
+	 * Score next position, then commit what can be committed
+	 */
+	private void advance(List<Token> res) {
+		extend();
+		commitConverged(res);
+		if (scored - committed > maxLag) {
+			commitOldest(res);
+		}
+		// drop tokens neither needed as history nor waiting for a tag
+		long keep = Math.min(committed, scored - history);
+		while (base < keep) {
+			window.remove(0);
+			base++;
+		}
+	}
+
+	/**
+	 * Extend best paths to next position
+	 */
+	private void extend() {
+		long position = scored;
+		for (int i = 0; i < context.length; i++) {
+			long p = position - history + i;
+			context[i] = (p < base || p >= received) ? null : window
+					.get((int) (p - base));
+		}
+		int row = row(position);
+		if (position == 0) {
+			scorer.costs(context, true, scores);
+			for (int s = 0; s < N; s++) {
+				cost[s] = scores[s];
+				backpointers[row + s] = -1;
+			}
+		} else {
+			scorer.costs(context, false, scores);
+			// previous states on some path
+			int count = 0;
+			for (int s1 = 0; s1 < N; s1++) {
+				if (cost[s1] != Double.POSITIVE_INFINITY) {
+					active[count++] = s1;
+				}
+			}
+			for (int s = 0; s < N; s++) {
+				double argmax = Double.POSITIVE_INFINITY;
+				int backtrackArg = -1;
+				for (int i = 0; i < count; i++) {
+					int s1 = active[i];
+					double log = cost[s1] + scores[s1 * N + s];
+					if (log < argmax) {
+						argmax = log;
+						backtrackArg = s1;
+					}
+				}
+				next[s] = argmax;
+				backpointers[row + s] = backtrackArg;
+			}
+			double[] swap = cost;
+			cost = next;
+			next = swap;
+		}
+		// costs only matter relative to each other; keep them small on long
+		// streams
+		double min = Double.POSITIVE_INFINITY;
+		for (int s = 0; s < N; s++) {
+			min = Math.min(min, cost[s]);
+		}
+		if (min != Double.POSITIVE_INFINITY) {
+			for (int s = 0; s < N; s++) {
+				cost[s] -= min;
+			}
+		}
+		scored++;
+	}
+
+	/**
+	 * Commit up to the last position where all surviving paths meet
+	 */
+	private void commitConverged(List<Token> res) {
+		for (int s = 0; s < N; s++) {
+			alive[s] = cost[s] != Double.POSITIVE_INFINITY;
+		}
+		for (long p = scored - 1; p >= committed; p--) {
+			int count = 0;
+			int state = -1;
+			for (int s = 0; s < N; s++) {
+				if (alive[s]) {
+					count++;
+					state = s;
+				}
+			}
+			if (count == 1) {
+				commit(p, state, res);
+				return;
+			}
+			if (count == 0) {
+				return;
+			}
+			// states of previous position on surviving paths
+			int row = row(p);
+			Arrays.fill(previousAlive, false);
+			for (int s = 0; s < N; s++) {
+				if (alive[s] && backpointers[row + s] >= 0) {
+					previousAlive[backpointers[row + s]] = true;
+				}
+			}
+			boolean[] swap = alive;
+			alive = previousAlive;
+			previousAlive = swap;
+		}
+	}
+
+	/**
+	 * Commit oldest uncommitted position to the state on the best path, and
+	 * drop paths through other states
+	 */
+	private void commitOldest(List<Token> res) {
+		int best = -1;
+		for (int s = 0; s < N; s++) {
+			if (cost[s] != Double.POSITIVE_INFINITY
+					&& (best < 0 || cost[s] < cost[best])) {
+				best = s;
+			}
+		}
+		long oldest = committed;
+		int state = (best < 0) ? -1 : ancestor(best, oldest);
+		commit(oldest, state, res);
+		for (int s = 0; s < N; s++) {
+			if (cost[s] != Double.POSITIVE_INFINITY
+					&& ancestor(s, oldest) != state) {
+				cost[s] = Double.POSITIVE_INFINITY;
+			}
+		}
+	}
+
+	/**
+	 * @return state at given position on best path to state s at last scored
+	 *         position
+	 */
+	private int ancestor(int s, long position) {
+		for (long p = scored - 1; p > position && s >= 0; p--) {
+			s = backpointers[row(p) + s];
+		}
+		return s;
+	}
+
+	/**
+	 * Assign states of uncommitted positions up to given one, following back
+	 * pointers from given state
+	 */
+	private void commit(long position, int state, List<Token> res) {
+		int count = (int) (position - committed + 1);
+		for (int i = count - 1; i >= 0; i--) {
+			path[i] = state;
+			if (state >= 0) {
+				state = backpointers[row(committed + i) + state];
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			Token token = window.get((int) (committed + i - base));
+			if (path[i] >= 0) {
+				scorer.assign(token, path[i]);
+			}
+			res.add(token);
+		}
+		committed = position + 1;
+	}
+
+	/**
+	 * @return first back pointer cell of given position
+	 */
+	private int row(long position) {
+		return (int) (position % (maxLag + 1)) * N;
+	}
+}
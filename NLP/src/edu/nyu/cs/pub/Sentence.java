@@ -20,8 +20,17 @@ public class Sentence implements Cloneable {
 	// constant indicating negative attitude
 	public static final int NEGATIVE = 211;
 
+	// most symbols kept, literals and their upper case
+	private static final int CASES_CAPACITY = 1 << 16;
+
+	// literals and their upper case, folded once per literal
+	private static final SymbolTable CASES = new SymbolTable();
+
 	private int polarity = -1;
 
+	// labels of the sentence, e.g. id and ratings of a review; null if none
+	private String[] labels = null;
+
 	// tokens which form the sentence
 	private List<Token> tokens = null;
 
@@ -41,14 +50,21 @@ public class Sentence implements Cloneable {
 	}
 
 	/**
-	 * @return tokens as an array
+	 * Upper case of literals is looked up by id, see
+	 * {@link SymbolTable#toUpperCase(int)}; once {@value #CASES_CAPACITY}
+	 * symbols are kept, new literals are folded on each call instead.
+	 * 
+	 * @return tokens as an array, in upper case
 	 */
 	public String[] getTokenArray() {
-		List<String> res = new ArrayList<String>();
-		for (Token token : tokens) {
-			res.add(token.getLiteral().toUpperCase());
+		String[] res = new String[tokens.size()];
+		for (int i = 0; i < res.length; i++) {
+			String literal = tokens.get(i).getLiteral();
+			int id = CASES.intern(literal, CASES_CAPACITY);
+			res[i] = (id < 0) ? literal.toUpperCase() : CASES.getSymbol(CASES
+					.toUpperCase(id));
 		}
-		return res.toArray(new String[0]);
+		return res;
 	}
 
 	/**
@@ -153,6 +169,21 @@ public class Sentence implements Cloneable {
 		this.polarity = polarity;
 	}
 
+	/**
+	 * @return labels of the sentence, null if none are set
+	 */
+	public String[] getLabels() {
+		return labels;
+	}
+
+	/**
+	 * @param labels
+	 *            labels of the sentence, e.g. id and ratings of a review
+	 */
+	public void setLabels(String... labels) {
+		this.labels = labels;
+	}
+
 	public void setTokens(List<Token> tokens) {
 		this.tokens = tokens;
 	}
@@ -178,10 +209,11 @@ public class Sentence implements Cloneable {
 	 *            stopping words
 	 */
 	public void filter(Set<String> filter) {
+		String[] words = getTokenArray();
 		List<Token> res = new ArrayList<Token>();
-		for (Token token : tokens) {
-			if (filter.contains(token.getLiteral().toUpperCase())) {
-				res.add(token);
+		for (int i = 0; i < words.length; i++) {
+			if (filter.contains(words[i])) {
+				res.add(tokens.get(i));
 			}
 		}
 		this.tokens = res;
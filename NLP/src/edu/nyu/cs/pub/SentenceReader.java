@@ -0,0 +1,156 @@
+package edu.nyu.cs.pub;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import edu.nyu.cs.pub.Token.TokenBuilder;
+
+/**
+ * Reads a corpus file one sentence at a time.
+ * <p>
+ * One token per line, sentences separated by blank lines. Sentences come out
+ * exactly as {@link FileManager#read(File)} would list them, empty ones
+ * included, but only the current sentence is held in memory.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class SentenceReader implements Closeable {
+
+	private final BufferedReader reader;
+
+	// sentence being read, null after end of file
+	private Sentence current = new Sentence();
+
+	// index of next token in current sentence
+	private int index = 0;
+
+	// number of lines read so far
+	private int lineCount = 0;
+
+	/**
+	 * @param file
+	 *            corpus file
+	 * @throws IOException
+	 *             if file cannot be opened
+	 */
+	public SentenceReader(File file) throws IOException {
+		this(new InputStreamReader(new FileInputStream(file)));
+	}
+
+	/**
+	 * @param reader
+	 *            corpus content
+	 */
+	public SentenceReader(Reader reader) {
+		this.reader = new BufferedReader(reader);
+	}
+
+	/**
+	 * @return next sentence, or null at end of file
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public Sentence next() throws IOException {
+		if (current == null) {
+			return null;
+		}
+		String strLine = null;
+		while ((strLine = reader.readLine()) != null) {
+			lineCount++;
+			if (strLine.trim().equals("")) {
+				Sentence res = current;
+				current = new Sentence();
+				index = 0;
+				return res;
+			}
+			current.addToken(parse(strLine));
+		}
+		Sentence res = current;
+		current = null;
+		return res;
+	}
+
+	/**
+	 * Read next sentence straight into a store, without building its tokens
+	 *
+	 * @param store
+	 *            store to append the sentence to
+	 * @return false at end of file, when no sentence was read
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public boolean next(SentenceStore store) throws IOException {
+		if (current == null) {
+			return false;
+		}
+		String strLine = null;
+		while ((strLine = reader.readLine()) != null) {
+			lineCount++;
+			if (strLine.trim().equals("")) {
+				store.endSentence();
+				return true;
+			}
+			store.addToken(strLine.split("[\t\n ]"));
+		}
+		store.endSentence();
+		current = null;
+		return true;
+	}
+
+	/**
+	 * Read token by token instead, for input whose sentences may be too long
+	 * to hold, see {@link OnlineViterbi}
+	 * 
+	 * @return next token, or null at a sentence break or end of file
+	 * @throws IOException
+	 *             if reading fails
+	 * @see #isEndOfFile()
+	 */
+	public Token nextToken() throws IOException {
+		if (current == null) {
+			return null;
+		}
+		String strLine = reader.readLine();
+		if (strLine == null) {
+			current = null;
+			return null;
+		}
+		lineCount++;
+		if (strLine.trim().equals("")) {
+			index = 0;
+			return null;
+		}
+		return parse(strLine);
+	}
+
+	/**
+	 * @return true once end of file has been reached
+	 */
+	public boolean isEndOfFile() {
+		return current == null;
+	}
+
+	private Token parse(String line) {
+		String[] strs = line.split("[\t\n ]");
+		TokenBuilder builder = new TokenBuilder(strs);
+		builder.setIndex(index++);
+		return builder.build();
+	}
+
+	/**
+	 * @return number of lines read so far
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,672 @@
+package edu.nyu.cs.pub;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact columnar store of sentences.
+ * <p>
+ * Every token field is interned in a {@link SymbolTable} and kept as an int
+ * id, one column per field over all tokens of all sentences, so a token costs
+ * a few ints instead of a {@link Token} and its strings. Columns of fields no
+ * token has set yet are not allocated at all. Sentences and tokens are built
+ * on demand by {@link #get(int)}, as views: changing them does not change the
+ * store.
+ * <p>
+ * Tokens are appended to the last sentence, which is closed by
+ * {@link #endSentence()}. Reading is thread safe once writing is done.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class SentenceStore {
+
+	// token fields, i.e. columns
+	private static final int WORD = 0;
+
+	private static final int LITERAL = 1;
+
+	private static final int TAG = 2;
+
+	private static final int CHUNK = 3;
+
+	private static final int PREDICT_CHUNK = 4;
+
+	private static final int SEQ_NO = 5;
+
+	private static final int SENT_INDEX = 6;
+
+	private static final int REL_TYPE = 7;
+
+	private static final int PREDICT_REL_TYPE = 8;
+
+	private static final int INDEX = 9;
+
+	private static final int FIELDS = 10;
+
+	// id of a null field
+	private static final int NULL = -1;
+
+	private final SymbolTable symbols;
+
+	// id of empty string
+	private final int empty;
+
+	// <field, token> -> id; null column if every token has default value
+	private final int[][] columns = new int[FIELDS][];
+
+	// id of default value of each field, literal defaults to word and index
+	// to position in sentence
+	private final int[] defaults = new int[FIELDS];
+
+	// first token of each sentence, and end of last one
+	private int[] offsets = new int[16];
+
+	// polarity of each sentence, null if none is set
+	private int[] polarities = null;
+
+	// ids of labels of each sentence, null if none is set
+	private int[][] labels = null;
+
+	private int size = 0;
+
+	private int tokens = 0;
+
+	// token capacity of columns
+	private int capacity = 16;
+
+	/**
+	 * Store on a symbol table of its own
+	 */
+	public SentenceStore() {
+		this(new SymbolTable());
+	}
+
+	/**
+	 * @param symbols
+	 *            symbol table to intern fields in, may be shared
+	 */
+	public SentenceStore(SymbolTable symbols) {
+		this.symbols = symbols;
+		this.empty = symbols.intern("");
+		defaults[WORD] = empty;
+		defaults[TAG] = empty;
+		defaults[CHUNK] = empty;
+		defaults[PREDICT_CHUNK] = NULL;
+		defaults[SEQ_NO] = empty;
+		defaults[SENT_INDEX] = empty;
+		defaults[REL_TYPE] = empty;
+		defaults[PREDICT_REL_TYPE] = NULL;
+		columns[WORD] = new int[capacity];
+		columns[TAG] = new int[capacity];
+	}
+
+	/**
+	 * Append a token parsed from a corpus line, as
+	 * {@link Token.TokenBuilder#TokenBuilder(String[])} builds it
+	 *
+	 * @param fields
+	 *            word, tag, name group tag, sequence number, sentence index
+	 *            and relation type; trailing ones may be missing
+	 */
+	public void addToken(String[] fields) {
+		int token = newToken();
+		String tag = (fields.length > 1) ? fields[1] : "";
+		set(WORD, token, (fields.length > 0) ? fields[0] : "");
+		set(TAG, token, (tag == null) ? "" : tag.trim().toUpperCase());
+		set(CHUNK, token, (fields.length > 2) ? fields[2] : "");
+		set(SEQ_NO, token, (fields.length > 3) ? fields[3] : "");
+		set(SENT_INDEX, token, (fields.length > 4) ? fields[4] : "");
+		set(REL_TYPE, token, (fields.length > 5) ? fields[5] : "");
+		int begin = offsets[size];
+		fill(LITERAL, token, begin);
+		fill(PREDICT_CHUNK, token, begin);
+		fill(PREDICT_REL_TYPE, token, begin);
+		fill(INDEX, token, begin);
+	}
+
+	/**
+	 * Append a token whose fields are already interned, as
+	 * {@link #addToken(String[])} does
+	 *
+	 * @param fields
+	 *            ids of fields in symbol table of this store, in the order of
+	 *            {@link #addToken(String[])}
+	 * @param count
+	 *            number of fields given, the others being empty
+	 */
+	public void addToken(int[] fields, int count) {
+		int token = newToken();
+		setId(WORD, token, (count > 0) ? fields[0] : empty);
+		setId(TAG, token, (count > 1) ? normalizeTag(fields[1]) : empty);
+		setId(CHUNK, token, (count > 2) ? fields[2] : empty);
+		setId(SEQ_NO, token, (count > 3) ? fields[3] : empty);
+		setId(SENT_INDEX, token, (count > 4) ? fields[4] : empty);
+		setId(REL_TYPE, token, (count > 5) ? fields[5] : empty);
+		int begin = offsets[size];
+		fill(LITERAL, token, begin);
+		fill(PREDICT_CHUNK, token, begin);
+		fill(PREDICT_REL_TYPE, token, begin);
+		fill(INDEX, token, begin);
+	}
+
+	/**
+	 * @return id of tag trimmed and in upper case, as
+	 *         {@link Token.TokenBuilder#build()} makes it
+	 */
+	private int normalizeTag(int id) {
+		String tag = symbols.getSymbol(id);
+		String trimmed = tag.trim();
+		return (trimmed == tag) ? symbols.toUpperCase(id) : symbols
+				.intern(trimmed.toUpperCase());
+	}
+
+	/**
+	 * Append a token with all its fields
+	 *
+	 * @param t
+	 *            any token
+	 */
+	public void addToken(Token t) {
+		int token = newToken();
+		set(WORD, token, t.getOriginWord());
+		set(LITERAL, token, t.getLiteral());
+		set(TAG, token, t.getPosTag());
+		set(CHUNK, token, t.getBIOChunk());
+		set(PREDICT_CHUNK, token, t.getPredictBIOChunk());
+		set(SEQ_NO, token, t.getSeqNo());
+		set(SENT_INDEX, token, t.getSentIndex());
+		set(REL_TYPE, token, t.getOriginalRelType());
+		set(PREDICT_REL_TYPE, token, t.getPredictRelType());
+		int index = t.getIndex();
+		int position = token - offsets[size];
+		if (columns[INDEX] == null && index != position) {
+			allocate(INDEX);
+		}
+		if (columns[INDEX] != null) {
+			columns[INDEX][token] = index;
+		}
+	}
+
+	/**
+	 * Close last sentence; a new one starts with next token
+	 */
+	public void endSentence() {
+		if (size + 2 > offsets.length) {
+			offsets = grow(offsets, offsets.length << 1);
+		}
+		size++;
+		offsets[size] = tokens;
+	}
+
+	/**
+	 * Append a whole sentence
+	 *
+	 * @param sentence
+	 *            any sentence
+	 */
+	public void add(Sentence sentence) {
+		for (Token token : sentence.getTokens()) {
+			addToken(token);
+		}
+		setPolarity(sentence.getPolarity());
+		String[] sentenceLabels = sentence.getLabels();
+		if (sentenceLabels != null) {
+			int[] ids = new int[sentenceLabels.length];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = (sentenceLabels[i] == null) ? NULL : symbols
+						.intern(sentenceLabels[i]);
+			}
+			setLabels(ids);
+		}
+		endSentence();
+	}
+
+	/**
+	 * Set polarity of last sentence, allocating polarities unless it is none
+	 */
+	private void setPolarity(int polarity) {
+		if (polarity != -1 || polarities != null) {
+			if (polarities == null || polarities.length <= size) {
+				int length = (polarities == null) ? 0 : polarities.length;
+				polarities = (polarities == null) ? new int[offsets.length]
+						: grow(polarities, offsets.length);
+				Arrays.fill(polarities, length, polarities.length, -1);
+			}
+			polarities[size] = polarity;
+		}
+	}
+
+	/**
+	 * Set ids of labels of last sentence, allocating labels unless they are
+	 * none
+	 */
+	private void setLabels(int[] ids) {
+		if (ids != null || labels != null) {
+			if (labels == null || labels.length <= size) {
+				labels = (labels == null) ? new int[offsets.length][] : Arrays
+						.copyOf(labels, offsets.length);
+			}
+			labels[size] = ids;
+		}
+	}
+
+	/**
+	 * Append sentences
+	 *
+	 * @param sentences
+	 *            any sentences
+	 */
+	public void addAll(List<Sentence> sentences) {
+		for (Sentence sentence : sentences) {
+			add(sentence);
+		}
+	}
+
+	/**
+	 * Append all sentences of another store, without building their tokens
+	 * 
+	 * @param other
+	 *            store on the same symbol table
+	 */
+	public void addAll(SentenceStore other) {
+		if (other.symbols != symbols) {
+			throw new IllegalArgumentException(
+					"Stores must share a symbol table\n");
+		}
+		append(other.columns, other.offsets, other.size, other.polarities,
+				other.labels);
+	}
+
+	/**
+	 * Append sentences given as columns of ids in symbol table of this store
+	 */
+	private void append(int[][] from, int[] fromOffsets, int count,
+			int[] fromPolarities, int[][] fromLabels) {
+		int[] index = from[INDEX];
+		for (int i = 0; i < count; i++) {
+			int begin = fromOffsets[i];
+			int end = fromOffsets[i + 1];
+			for (int t = begin; t < end; t++) {
+				int token = newToken();
+				// word before literal, which defaults to it
+				for (int field = 0; field < INDEX; field++) {
+					int[] column = from[field];
+					setId(field, token, (column != null) ? column[t]
+							: (field == LITERAL) ? from[WORD][t]
+									: defaults[field]);
+				}
+				int position = token - offsets[size];
+				int value = (index == null) ? t - begin : index[t];
+				if (columns[INDEX] == null && value != position) {
+					allocate(INDEX);
+				}
+				if (columns[INDEX] != null) {
+					columns[INDEX][token] = value;
+				}
+			}
+			if (fromPolarities != null && i < fromPolarities.length) {
+				setPolarity(fromPolarities[i]);
+			}
+			if (fromLabels != null && i < fromLabels.length) {
+				setLabels(fromLabels[i]);
+			}
+			endSentence();
+		}
+	}
+
+	/**
+	 * Write closed sentences in binary format, with symbols of their own, see
+	 * {@link #read(ByteBuffer)}
+	 * 
+	 * @param out
+	 *            output
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	void write(DataOutputStream out) throws IOException {
+		int end = offsets[size];
+		out.writeInt(size);
+		for (int i = 0; i <= size; i++) {
+			out.writeInt(offsets[i]);
+		}
+		out.writeInt((polarities == null) ? 0 : 1);
+		if (polarities != null) {
+			for (int i = 0; i < size; i++) {
+				out.writeInt((i < polarities.length) ? polarities[i] : -1);
+			}
+		}
+		// symbols used, numbered in order of first use
+		int[] local = new int[symbols.size()];
+		Arrays.fill(local, NULL);
+		List<String> used = new ArrayList<String>();
+		int mask = 0;
+		for (int field = 0; field < FIELDS; field++) {
+			int[] column = columns[field];
+			if (column == null) {
+				continue;
+			}
+			mask |= 1 << field;
+			for (int token = 0; field != INDEX && token < end; token++) {
+				int id = column[token];
+				if (id != NULL && local[id] == NULL) {
+					local[id] = used.size();
+					used.add(symbols.getSymbol(id));
+				}
+			}
+		}
+		for (int i = 0; labels != null && i < size && i < labels.length; i++) {
+			for (int j = 0; labels[i] != null && j < labels[i].length; j++) {
+				int id = labels[i][j];
+				if (id != NULL && local[id] == NULL) {
+					local[id] = used.size();
+					used.add(symbols.getSymbol(id));
+				}
+			}
+		}
+		out.writeInt(used.size());
+		for (String symbol : used) {
+			byte[] bytes = symbol.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		out.writeInt(mask);
+		for (int field = 0; field < FIELDS; field++) {
+			int[] column = columns[field];
+			for (int token = 0; column != null && token < end; token++) {
+				int id = column[token];
+				out.writeInt((field == INDEX || id == NULL) ? id : local[id]);
+			}
+		}
+		out.writeInt((labels == null) ? 0 : 1);
+		for (int i = 0; labels != null && i < size; i++) {
+			int[] ids = (i < labels.length) ? labels[i] : null;
+			out.writeInt((ids == null) ? NULL : ids.length);
+			for (int j = 0; ids != null && j < ids.length; j++) {
+				out.writeInt((ids[j] == NULL) ? NULL : local[ids[j]]);
+			}
+		}
+	}
+
+	/**
+	 * Append sentences written by {@link #write(DataOutputStream)}, interning
+	 * their symbols in symbol table of this store
+	 * 
+	 * @param buffer
+	 *            input, positioned at sentences
+	 * @throws IOException
+	 *             if input is not well formed
+	 */
+	void read(ByteBuffer buffer) throws IOException {
+		int count = buffer.getInt();
+		int[] fromOffsets = readInts(buffer, count + 1);
+		int end = fromOffsets[count];
+		int[] fromPolarities = (buffer.getInt() != 0) ? readInts(buffer, count)
+				: null;
+		// each symbol takes at least its length
+		int[] global = new int[checkLength(buffer, buffer.getInt(), 4)];
+		for (int i = 0; i < global.length; i++) {
+			byte[] bytes = new byte[checkLength(buffer, buffer.getInt(), 1)];
+			buffer.get(bytes);
+			global[i] = symbols.intern(new String(bytes, "UTF-8"));
+		}
+		int mask = buffer.getInt();
+		if ((mask & (1 << WORD)) == 0 || (mask & (1 << TAG)) == 0) {
+			throw new IOException("Not a sentence store\n");
+		}
+		int[][] from = new int[FIELDS][];
+		for (int field = 0; field < FIELDS; field++) {
+			if ((mask & (1 << field)) == 0) {
+				continue;
+			}
+			int[] column = readInts(buffer, end);
+			for (int token = 0; field != INDEX && token < end; token++) {
+				int id = column[token];
+				column[token] = (id == NULL) ? NULL : global[id];
+			}
+			from[field] = column;
+		}
+		int[][] fromLabels = (buffer.getInt() != 0) ? new int[count][] : null;
+		for (int i = 0; fromLabels != null && i < count; i++) {
+			int length = buffer.getInt();
+			if (length != NULL) {
+				int[] ids = readInts(buffer, length);
+				for (int j = 0; j < length; j++) {
+					ids[j] = (ids[j] == NULL) ? NULL : global[ids[j]];
+				}
+				fromLabels[i] = ids;
+			}
+		}
+		append(from, fromOffsets, count, fromPolarities, fromLabels);
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int length)
+			throws IOException {
+		int[] res = new int[checkLength(buffer, length, 4)];
+		buffer.asIntBuffer().get(res);
+		buffer.position(buffer.position() + length * 4);
+		return res;
+	}
+
+	/**
+	 * Check a length read from input against what is left of it, so that a
+	 * broken input fails instead of allocating a huge array
+	 * 
+	 * @param size
+	 *            bytes each element takes at least
+	 * @return length
+	 * @throws IOException
+	 *             if fewer elements are left
+	 */
+	private static int checkLength(ByteBuffer buffer, int length, int size)
+			throws IOException {
+		if (length < 0 || length > buffer.remaining() / size) {
+			throw new IOException("Length out of bounds: " + length + "\n");
+		}
+		return length;
+	}
+
+	/**
+	 * @param i
+	 *            sentence number
+	 * @return a new sentence holding a copy of the stored one
+	 */
+	public Sentence get(int i) {
+		Sentence res = new Sentence();
+		int begin = offsets[i];
+		int end = offsets[i + 1];
+		int[] index = columns[INDEX];
+		for (int token = begin; token < end; token++) {
+			res.addToken(new Token((index == null) ? token - begin
+					: index[token], symbol(WORD, token), getLiteral(token),
+					symbol(TAG, token), symbol(CHUNK, token), symbol(
+							PREDICT_CHUNK, token), symbol(SEQ_NO, token),
+					symbol(SENT_INDEX, token), symbol(REL_TYPE, token),
+					symbol(PREDICT_REL_TYPE, token)));
+		}
+		if (polarities != null && i < polarities.length) {
+			res.setPolarity(polarities[i]);
+		}
+		if (labels != null && i < labels.length && labels[i] != null) {
+			String[] strings = new String[labels[i].length];
+			for (int j = 0; j < strings.length; j++) {
+				int id = labels[i][j];
+				strings[j] = (id == NULL) ? null : symbols.getSymbol(id);
+			}
+			res.setLabels(strings);
+		}
+		return res;
+	}
+
+	/**
+	 * @return number of closed sentences
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of tokens
+	 */
+	public int numberOfTokens() {
+		return tokens;
+	}
+
+	/**
+	 * @param i
+	 *            sentence number
+	 * @return number of first token of sentence
+	 */
+	public int begin(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * @param i
+	 *            sentence number
+	 * @return number of token after last one of sentence
+	 */
+	public int end(int i) {
+		return offsets[i + 1];
+	}
+
+	/**
+	 * @return symbol table of ids
+	 */
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	/**
+	 * @param token
+	 *            token number
+	 * @return id of original word
+	 */
+	public int getWordId(int token) {
+		return columns[WORD][token];
+	}
+
+	/**
+	 * @param token
+	 *            token number
+	 * @return id of literal, see {@link Token#getLiteral()}
+	 */
+	public int getLiteralId(int token) {
+		int[] column = columns[LITERAL];
+		return (column == null) ? columns[WORD][token] : column[token];
+	}
+
+	/**
+	 * @param token
+	 *            token number
+	 * @return id of part of speech tag, -1 if null
+	 */
+	public int getTagId(int token) {
+		return columns[TAG][token];
+	}
+
+	/**
+	 * @param token
+	 *            token number
+	 * @return literal, see {@link Token#getLiteral()}
+	 */
+	public String getLiteral(int token) {
+		int id = getLiteralId(token);
+		return (id == NULL) ? null : symbols.getSymbol(id);
+	}
+
+	/**
+	 * @param token
+	 *            token number
+	 * @return part of speech tag
+	 */
+	public String getTag(int token) {
+		return symbol(TAG, token);
+	}
+
+	private String symbol(int field, int token) {
+		int[] column = columns[field];
+		int id = (column == null) ? defaults[field] : column[token];
+		return (id == NULL) ? null : symbols.getSymbol(id);
+	}
+
+	/**
+	 * @return number of a new token of last sentence
+	 */
+	private int newToken() {
+		if (tokens == capacity) {
+			capacity <<= 1;
+			for (int field = 0; field < FIELDS; field++) {
+				if (columns[field] != null) {
+					columns[field] = grow(columns[field], capacity);
+				}
+			}
+		}
+		return tokens++;
+	}
+
+	/**
+	 * Set a field of a token, allocating its column unless value is default
+	 */
+	private void set(int field, int token, String value) {
+		setId(field, token, (value == null) ? NULL : symbols.intern(value));
+	}
+
+	/**
+	 * Set a field of a token to an id, allocating its column unless id is
+	 * default
+	 */
+	private void setId(int field, int token, int id) {
+		if (columns[field] == null) {
+			if (field == LITERAL ? id == columns[WORD][token]
+					: id == defaults[field]) {
+				return;
+			}
+			allocate(field);
+		}
+		columns[field][token] = id;
+	}
+
+	/**
+	 * Give a token the default value of a field, if that field has a column;
+	 * begin is first token of its sentence
+	 */
+	private void fill(int field, int token, int begin) {
+		int[] column = columns[field];
+		if (column == null) {
+			return;
+		}
+		if (field == LITERAL) {
+			column[token] = columns[WORD][token];
+		} else if (field == INDEX) {
+			column[token] = token - begin;
+		} else {
+			column[token] = defaults[field];
+		}
+	}
+
+	/**
+	 * Allocate column of a field, holding its default value for every
+	 * previous token
+	 */
+	private void allocate(int field) {
+		int[] column = new int[capacity];
+		columns[field] = column;
+		for (int i = 0; i <= size; i++) {
+			int end = (i < size) ? offsets[i + 1] : tokens;
+			for (int token = offsets[i]; token < end; token++) {
+				fill(field, token, offsets[i]);
+			}
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] res = new int[length];
+		System.arraycopy(array, 0, res, 0, array.length);
+		return res;
+	}
+}
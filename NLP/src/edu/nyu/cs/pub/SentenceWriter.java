@@ -0,0 +1,103 @@
+package edu.nyu.cs.pub;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import edu.nyu.cs.pub.Token.TokenDecor;
+
+/**
+ * Writes sentences one at a time.
+ * <p>
+ * One token per line, fields separated by given delimiter as
+ * {@link TokenDecor} lays them out, each sentence followed by a blank line.
+ * Tokens are encoded straight into the buffers of an {@link AsyncWriter}, so
+ * the caller does not wait for the disk.
+ *
+ * @author Daniel Wu
+ * @see SentenceReader
+ */
+public class SentenceWriter implements Closeable {
+
+	private final AsyncWriter writer;
+
+	// field delimiter, see TokenDecor
+	private final String delimiter;
+
+	/**
+	 * @param file
+	 *            output file
+	 * @param delimiter
+	 *            {@link TokenDecor#BLANK} or {@link TokenDecor#TAB}
+	 * @throws IOException
+	 *             if file cannot be created
+	 */
+	public SentenceWriter(File file, String delimiter) throws IOException {
+		this.writer = new AsyncWriter(file);
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Write a sentence
+	 *
+	 * @param sentence
+	 *            any sentence
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(Sentence sentence) throws IOException {
+		List<Token> tokens = sentence.getTokens();
+		for (Token token : tokens) {
+			write(token);
+		}
+		endSentence();
+	}
+
+	/**
+	 * Write a single token, for output produced token by token
+	 *
+	 * @param token
+	 *            any token
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(Token token) throws IOException {
+		writer.write(String.valueOf(token.getOriginWord()));
+		writeField(token.getPosTag());
+		writeField(token.getBIOChunk());
+		writeField(token.getPredictBIOChunk());
+		writeField(token.getSeqNo());
+		writeField(token.getSentIndex());
+		writeField(token.getOriginalRelType());
+		writeField(token.getPredictRelType());
+		writer.write('\n');
+	}
+
+	/**
+	 * Write delimiter and field, unless field is empty
+	 */
+	private void writeField(String field) throws IOException {
+		if (!TextTool.isEmpty(field)) {
+			writer.write(delimiter);
+			writer.write(field);
+		}
+	}
+
+	/**
+	 * Write a sentence break
+	 *
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void endSentence() throws IOException {
+		writer.write('\n');
+	}
+
+	/**
+	 * Write what is left, force it to disk and close the file
+	 */
+	public void close() throws IOException {
+		writer.close();
+	}
+}
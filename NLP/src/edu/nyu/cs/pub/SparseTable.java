@@ -0,0 +1,174 @@
+package edu.nyu.cs.pub;
+
+import java.util.Arrays;
+
+/**
+ * Sparse table of doubles keyed by long.
+ * <p>
+ * Open addressing with linear probing over primitive arrays, so neither keys
+ * nor values are boxed. Meant for large, sparse tables indexed by packed ids,
+ * e.g. tag trigrams. Negative keys are reserved.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class SparseTable {
+
+	// marks an empty slot
+	private static final long EMPTY = -1L;
+
+	// maximum ratio of used slots before growing
+	private static final double LOAD_FACTOR = 0.5;
+
+	private long[] keys;
+
+	private double[] values;
+
+	private int size = 0;
+
+	public SparseTable() {
+		this(16);
+	}
+
+	/**
+	 * @param expected
+	 *            expected number of entries
+	 */
+	public SparseTable(int expected) {
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expected) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new double[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * @param key
+	 *            non-negative key
+	 * @param missing
+	 *            value of an absent key
+	 * @return value stored under key, or <code>missing</code>
+	 */
+	public double get(long key, double missing) {
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return values[i];
+			}
+			if (k == EMPTY) {
+				return missing;
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 *            non-negative key
+	 * @return true if a value is stored under key
+	 */
+	public boolean contains(long key) {
+		return keys[slot(key)] == key;
+	}
+
+	/**
+	 * Store a value, replacing any previous one
+	 *
+	 * @param key
+	 *            non-negative key
+	 * @param value
+	 *            any value
+	 */
+	public void put(long key, double value) {
+		int i = insert(key);
+		values[i] = value;
+	}
+
+	/**
+	 * Add to the value stored under key, starting from 0 for an absent key
+	 *
+	 * @param key
+	 *            non-negative key
+	 * @param delta
+	 *            amount to add
+	 */
+	public void add(long key, double delta) {
+		int i = insert(key);
+		values[i] += delta;
+	}
+
+	/**
+	 * @return number of stored keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return stored keys, in no particular order
+	 */
+	public long[] keys() {
+		long[] res = new long[size];
+		int n = 0;
+		for (long k : keys) {
+			if (k != EMPTY) {
+				res[n++] = k;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return slot of key, or the empty slot where it would go
+	 */
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != key && keys[i] != EMPTY) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private int insert(long key) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Negative key: " + key);
+		}
+		int i = slot(key);
+		if (keys[i] == EMPTY) {
+			if (size + 1 > keys.length * LOAD_FACTOR) {
+				rehash();
+				i = slot(key);
+			}
+			keys[i] = key;
+			values[i] = 0.0;
+			size++;
+		}
+		return i;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(oldKeys.length << 1);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = slot(oldKeys[j]);
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		// spread bits of packed ids
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
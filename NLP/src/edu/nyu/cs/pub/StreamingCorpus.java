@@ -0,0 +1,248 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.nyu.cs.pub.MappedFileReader.Scanner;
+
+/**
+ * Corpus read from disk on demand, for corpora larger than memory.
+ * <p>
+ * Each iteration reads the corpus again, a batch of sentences at a time, so
+ * only one batch is held in memory. Each batch interns its column values in a
+ * symbol table of its own, dropped with the batch, so memory stays flat
+ * whatever the number of distinct values in the corpus, e.g. sentence indices.
+ * Vocabulary is counted in a pass of its
+ * own, the first time it is asked for. Sentences added by
+ * {@link #addSentences(List)} are held in memory and come after the ones on
+ * disk. The sentences cannot be had as a list, so neither can the corpus be
+ * binarized or filtered in place.
+ * <p>
+ * An iteration left unfinished keeps its file open until it is garbage
+ * collected.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class StreamingCorpus extends Corpus {
+
+	// tokens read into a batch before it is handed out
+	private static final int BATCH_TOKENS = 1 << 18;
+
+	private final File file;
+
+	private final int batchTokens;
+
+	// sentences added after reading, held in memory
+	private final SentenceStore added = new SentenceStore(new SymbolTable());
+
+	// distinct words, null until asked for
+	private Set<String> vocabulary = null;
+
+	/**
+	 * @param filePath
+	 *            corpus path, file or directory
+	 * @throws IOException
+	 *             if corpus path is not a file or directory
+	 */
+	public StreamingCorpus(String filePath) throws IOException {
+		this(filePath, BATCH_TOKENS);
+	}
+
+	/**
+	 * @param filePath
+	 *            corpus path, file or directory
+	 * @param batchTokens
+	 *            tokens read into a batch before it is handed out
+	 * @throws IOException
+	 *             if corpus path is not a file or directory
+	 */
+	StreamingCorpus(String filePath, int batchTokens) throws IOException {
+		this.file = new File(filePath);
+		this.batchTokens = batchTokens;
+		// fail now rather than on first iteration
+		MappedFileReader.instance.open(file, new SymbolTable()).close();
+	}
+
+	@Override
+	public Iterator<Sentence> iterator() {
+		final Iterator<SentenceStore> batches = batches();
+		return new Iterator<Sentence>() {
+
+			private Iterator<Sentence> batch = null;
+
+			@Override
+			public boolean hasNext() {
+				while (batch == null || !batch.hasNext()) {
+					if (!batches.hasNext()) {
+						return false;
+					}
+					batch = new CorpusIterator(batches.next());
+				}
+				return true;
+			}
+
+			@Override
+			public Sentence next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return batch.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * @return batches read from disk, each on a symbol table of its own, then
+	 *         sentences added
+	 */
+	@Override
+	Iterator<SentenceStore> batches() {
+		final Scanner scanner;
+		try {
+			scanner = MappedFileReader.instance.open(file, new SymbolTable());
+		} catch (IOException e) {
+			throw new RuntimeException("Reading corpus failed!\n", e);
+		}
+		return new Iterator<SentenceStore>() {
+
+			private SentenceStore next = null;
+
+			// true once all files are read
+			private boolean read = false;
+
+			// true once sentences added have been handed out
+			private boolean done = false;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null && !read) {
+					next = readBatch();
+				}
+				if (next == null && !done) {
+					done = true;
+					if (added.size() > 0) {
+						next = added;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public SentenceStore next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				SentenceStore res = next;
+				next = null;
+				return res;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			/**
+			 * @return next batch, or null if there is none
+			 */
+			private SentenceStore readBatch() {
+				SentenceStore res = new SentenceStore(new SymbolTable());
+				try {
+					while (res.numberOfTokens() < batchTokens) {
+						if (!scanner.next(res)) {
+							read = true;
+							scanner.close();
+							break;
+						}
+					}
+				} catch (IOException e) {
+					read = true;
+					throw new RuntimeException("Reading corpus failed!\n", e);
+				}
+				return (res.size() == 0) ? null : res;
+			}
+		};
+	}
+
+	/**
+	 * Append sentences to corpus, adding their words to vocabulary if it has
+	 * been counted
+	 *
+	 * @param sentences
+	 *            new sentences
+	 */
+	@Override
+	public synchronized void addSentences(List<Sentence> sentences) {
+		int from = added.numberOfTokens();
+		added.addAll(sentences);
+		if (vocabulary != null) {
+			addWords(added, from, vocabulary);
+		}
+	}
+
+	/**
+	 * @return number of sentences, counted by reading the corpus
+	 */
+	@Override
+	public int size() {
+		int res = 0;
+		Iterator<SentenceStore> it = batches();
+		while (it.hasNext()) {
+			res += it.next().size();
+		}
+		return res;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, sentences are not held in memory
+	 */
+	@Override
+	public List<Sentence> getSentences() {
+		throw new UnsupportedOperationException(
+				"Streaming corpus cannot be held as a list\n");
+	}
+
+	@Override
+	public Integer vocabularySize() {
+		return getVocabulary().size();
+	}
+
+	/**
+	 * @return distinct words, counted by reading the corpus if not yet done
+	 */
+	@Override
+	public synchronized Set<String> getVocabulary() {
+		if (vocabulary == null) {
+			Vocabulary words = new Vocabulary(new SymbolTable());
+			Iterator<SentenceStore> it = batches();
+			while (it.hasNext()) {
+				addWords(it.next(), 0, words);
+			}
+			vocabulary = words;
+		}
+		return vocabulary;
+	}
+
+	@Override
+	public synchronized void setVocabulary(Set<String> vocabulary) {
+		this.vocabulary = vocabulary;
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		if (word == null || word.trim().length() == 0)
+			return false;
+		return getVocabulary().contains(word.toLowerCase());
+	}
+}
@@ -0,0 +1,161 @@
+package edu.nyu.cs.pub;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings to dense int ids.
+ * <p>
+ * Ids are given out from 0 in order of first interning. Thread safe: lookups
+ * do not lock, only adding a new symbol does.
+ * <p>
+ * Ids are the currency between a corpus and what is counted from it: its
+ * {@link SentenceStore}, {@link Vocabulary} and the {@link CountTable}s of
+ * models trained on it all work on the table of the corpus. There is no
+ * table for the whole toolkit on purpose: a table is append-only, so one
+ * shared by everything would keep every token ever seen for the life of the
+ * process. Instead each corpus, feature index and feature name interns into
+ * one of its own, released with it; corpora share one only on purpose, e.g.
+ * the folds of a cross validation, so that their vocabularies merge by ids.
+ * Compiled models are keyed by strings again, since they are saved and loaded
+ * apart from any table. Tables that live as long as a class, e.g. for case
+ * folding in {@link Sentence#getTokenArray()}, are bounded by
+ * {@link #intern(String, int)}. Case folding is done once per symbol, see
+ * {@link #toUpperCase(int)}.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class SymbolTable {
+
+	// symbol -> id
+	private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+	// id -> symbol
+	private volatile String[] symbols = new String[16];
+
+	private int size = 0;
+
+	// id -> 1 + id of upper and lower case symbol, 0 until folded
+	private volatile int[] upper = new int[16];
+
+	private volatile int[] lower = new int[16];
+
+	/**
+	 * @param symbol
+	 *            any string
+	 * @return id of symbol, added if new
+	 */
+	public int intern(String symbol) {
+		Integer id = ids.get(symbol);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(symbol);
+			if (id != null) {
+				return id;
+			}
+			if (size == symbols.length) {
+				String[] grown = new String[size << 1];
+				System.arraycopy(symbols, 0, grown, 0, size);
+				symbols = grown;
+			}
+			symbols[size] = symbol;
+			// publishes the symbol to threads looking up its id
+			ids.put(symbol, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Intern a symbol while the table holds fewer than given number of
+	 * symbols, so that a table that is never released stays bounded
+	 * 
+	 * @param symbol
+	 *            any string
+	 * @param capacity
+	 *            most symbols to hold
+	 * @return id of symbol, or -1 if it is new and the table is full
+	 */
+	public int intern(String symbol, int capacity) {
+		int id = getId(symbol);
+		if (id >= 0 || size() >= capacity) {
+			return id;
+		}
+		return intern(symbol);
+	}
+
+	/**
+	 * @param symbol
+	 *            any string
+	 * @return id of symbol, or -1 if it has not been interned
+	 */
+	public int getId(String symbol) {
+		Integer id = ids.get(symbol);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * @param id
+	 *            id given out by this table
+	 * @return symbol of id
+	 */
+	public String getSymbol(int id) {
+		return symbols[id];
+	}
+
+	/**
+	 * @param id
+	 *            id given out by this table
+	 * @return id of upper case symbol, added if new
+	 */
+	public int toUpperCase(int id) {
+		int[] folded = upper;
+		if (id < folded.length && folded[id] != 0) {
+			return folded[id] - 1;
+		}
+		int res = intern(symbols[id].toUpperCase());
+		synchronized (this) {
+			upper = record(upper, id, res);
+		}
+		return res;
+	}
+
+	/**
+	 * @param id
+	 *            id given out by this table
+	 * @return id of lower case symbol, added if new
+	 */
+	public int toLowerCase(int id) {
+		int[] folded = lower;
+		if (id < folded.length && folded[id] != 0) {
+			return folded[id] - 1;
+		}
+		int res = intern(symbols[id].toLowerCase());
+		synchronized (this) {
+			lower = record(lower, id, res);
+		}
+		return res;
+	}
+
+	/**
+	 * Record folded id of a symbol, growing table as needed
+	 */
+	private int[] record(int[] folded, int id, int res) {
+		if (id >= folded.length) {
+			int[] grown = new int[Math.max(folded.length << 1, id + 1)];
+			System.arraycopy(folded, 0, grown, 0, folded.length);
+			folded = grown;
+		}
+		folded[id] = res + 1;
+		return folded;
+	}
+
+	/**
+	 * @return number of symbols
+	 */
+	public int size() {
+		return ids.size();
+	}
+}
@@ -0,0 +1,81 @@
+package edu.nyu.cs.pub;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tag dictionary.
+ * <p>
+ * Records the tags each word has been seen with in training corpus. Decoders
+ * use it to consider only the observed tags of a known word, and the full tag
+ * set for an unknown one. Words are case sensitive.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class TagDictionary {
+
+	// <K,V> = <Word,Observed Tags>
+	private Map<String, Set<String>> dictionary = new HashMap<String, Set<String>>();
+
+	/**
+	 * Build tag dictionary from training corpus
+	 *
+	 * @param corpus
+	 *            tagged corpus
+	 */
+	public TagDictionary(Corpus corpus) {
+		for (Sentence sentence : corpus) {
+			for (Token token : sentence.getTokens()) {
+				add(token.getLiteral(), token.getPosTag());
+			}
+		}
+	}
+
+	/**
+	 * Record a word seen with given tag
+	 *
+	 * @param word
+	 *            any word
+	 * @param tag
+	 *            its tag
+	 */
+	public void add(String word, String tag) {
+		if (TextTool.isEmpty(tag)) {
+			return;
+		}
+		Set<String> tags = dictionary.get(word);
+		if (tags == null) {
+			tags = new HashSet<String>();
+			dictionary.put(word, tags);
+		}
+		tags.add(tag);
+	}
+
+	/**
+	 * @param word
+	 *            any word
+	 * @return tags given word has been seen with, or null if word is unknown
+	 */
+	public Set<String> getTags(String word) {
+		return dictionary.get(word);
+	}
+
+	/**
+	 * @param word
+	 *            any word
+	 * @return true if given word has been seen in training corpus
+	 */
+	public boolean contains(String word) {
+		return dictionary.containsKey(word);
+	}
+
+	/**
+	 * @return number of known words
+	 */
+	public int size() {
+		return dictionary.size();
+	}
+}
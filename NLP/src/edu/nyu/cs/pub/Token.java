@@ -52,6 +52,28 @@ public class Token implements Comparable<Token>, Cloneable {
 		this.sentIndex = sentIndex;
 	}
 
+	/**
+	 * Token with every field as given, see {@link SentenceStore}
+	 */
+	Token(int index, String originWord, String literal, String posTag,
+			String BIOChunk, String predictBIOChunk, String seqNo,
+			String sentIndex, String originalRelType, String predictRelType) {
+		this.index = index;
+		this.originWord = originWord;
+		this.literal = literal;
+		this.posTag = posTag;
+		this.BIOChunk = BIOChunk;
+		this.predictBIOChunk = predictBIOChunk;
+		this.seqNo = seqNo;
+		this.sentIndex = sentIndex;
+		this.originalRelType = originalRelType;
+		this.predictRelType = predictRelType;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
 	public String getSentIndex() {
 		return sentIndex;
 	}
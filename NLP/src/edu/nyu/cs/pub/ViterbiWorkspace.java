@@ -0,0 +1,137 @@
+package edu.nyu.cs.pub;
+
+/**
+ * Reusable lattice for Viterbi decoders.
+ * <p>
+ * Each thread owns one workspace, see {@link #get()}. Arrays only grow, so once
+ * the longest sentence has been seen, decoding allocates no lattice memory.
+ * Cells are laid out by position: cell of state <code>s</code> at position
+ * <code>t</code> is <code>t * N + s</code>.
+ *
+ * @author Daniel Wu
+ *
+ */
+public class ViterbiWorkspace {
+
+	private static final ThreadLocal<ViterbiWorkspace> workspaces = new ThreadLocal<ViterbiWorkspace>() {
+		@Override
+		protected ViterbiWorkspace initialValue() {
+			return new ViterbiWorkspace();
+		}
+	};
+
+	// lowest cost of a path ending in each cell
+	private double[] costs = new double[0];
+
+	// previous state on that path, -1 at first position
+	private int[] backpointers = new int[0];
+
+	// per-position scratch row, e.g. emission costs
+	private double[] row = new double[0];
+
+	// states surviving at current position
+	private int[] active = new int[0];
+
+	// states being built at next position
+	private int[] next = new int[0];
+
+	// best surviving state at each position, -1 if none
+	private int[] best = new int[0];
+
+	// decoder specific scratch space
+	private double[] scratch = new double[0];
+
+	private ViterbiWorkspace() {
+	}
+
+	/**
+	 * @return workspace of current thread
+	 */
+	public static ViterbiWorkspace get() {
+		return workspaces.get();
+	}
+
+	/**
+	 * Make sure the lattice can hold given number of states and positions
+	 *
+	 * @param N
+	 *            number of states
+	 * @param T
+	 *            number of positions
+	 * @return current workspace
+	 */
+	public ViterbiWorkspace ensure(int N, int T) {
+		int cells = N * T;
+		if (costs.length < cells) {
+			costs = new double[grow(costs.length, cells)];
+			backpointers = new int[costs.length];
+		}
+		if (best.length < T) {
+			best = new int[grow(best.length, T)];
+		}
+		if (row.length < N) {
+			row = new double[N];
+			active = new int[N];
+			next = new int[N];
+		}
+		return this;
+	}
+
+	/**
+	 * @param size
+	 *            minimum size
+	 * @return scratch array of at least given size
+	 */
+	public double[] scratch(int size) {
+		if (scratch.length < size) {
+			scratch = new double[grow(scratch.length, size)];
+		}
+		return scratch;
+	}
+
+	private static int grow(int current, int needed) {
+		return Math.max(needed, current + (current >> 1));
+	}
+
+	/**
+	 * @return cost lattice
+	 */
+	public double[] costs() {
+		return costs;
+	}
+
+	/**
+	 * @return back pointer lattice
+	 */
+	public int[] backpointers() {
+		return backpointers;
+	}
+
+	/**
+	 * @return best surviving state of each position, one cell per position
+	 */
+	public int[] best() {
+		return best;
+	}
+
+	/**
+	 * @return scratch row with at least one cell per state
+	 */
+	public double[] row() {
+		return row;
+	}
+
+	/**
+	 * @return list of state ids with room for every state
+	 */
+	public int[] active() {
+		return active;
+	}
+
+	/**
+	 * @return second list of state ids, the same size as {@link #active()}
+	 */
+	public int[] next() {
+		return next;
+	}
+}
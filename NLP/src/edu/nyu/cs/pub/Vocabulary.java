@@ -0,0 +1,129 @@
+package edu.nyu.cs.pub;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of words kept as a bit per id in a symbol table, so that vocabularies of
+ * corpora sharing a table are merged by or-ing their bits.
+ *
+ * @author Daniel Wu
+ *
+ */
+class Vocabulary extends AbstractSet<String> {
+
+	private final SymbolTable symbols;
+
+	private final BitSet ids = new BitSet();
+
+	private int size = 0;
+
+	/**
+	 * @param symbols
+	 *            symbol table words are interned in
+	 */
+	Vocabulary(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+	/**
+	 * @return symbol table words are interned in
+	 */
+	SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	/**
+	 * @param id
+	 *            id of word in symbol table
+	 * @return true if word is new
+	 */
+	boolean add(int id) {
+		if (ids.get(id)) {
+			return false;
+		}
+		ids.set(id);
+		size++;
+		return true;
+	}
+
+	@Override
+	public boolean add(String word) {
+		return add(symbols.intern(word));
+	}
+
+	/**
+	 * Add all words of another vocabulary on the same symbol table
+	 */
+	void union(Vocabulary other) {
+		ids.or(other.ids);
+		size = ids.cardinality();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+		int id = symbols.getId((String) o);
+		return id >= 0 && ids.get(id);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		ids.clear(symbols.getId((String) o));
+		size--;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		ids.clear();
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			private int next = ids.nextSetBit(0);
+
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public String next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = ids.nextSetBit(next + 1);
+				return symbols.getSymbol(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				ids.clear(last);
+				size--;
+				last = -1;
+			}
+		};
+	}
+}
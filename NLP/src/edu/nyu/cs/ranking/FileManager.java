@@ -18,7 +18,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import edu.nyu.cs.pub.CorpusCache;
+import edu.nyu.cs.pub.IFileReader;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.SentenceStore;
 import edu.nyu.cs.pub.TextTool;
+import edu.nyu.cs.pub.Token;
+import edu.nyu.cs.pub.Token.TokenBuilder;
 
 /**
  * Manage file resources, including input and output
@@ -39,20 +45,51 @@ public class FileManager {
 	private List<String> punctuations = Arrays.asList(new String[] { ".", ",",
 			"!", "?", ";", ":", "(", ")", "\"", "\'","--" });
 
+	// parses reviews of each author as sentences, see #toSentence
+	private final IFileReader reviewReader = new IFileReader() {
+		public List<Sentence> read(File file) throws IOException {
+			List<Sentence> res = new ArrayList<Sentence>();
+			File[] subdirs = file.listFiles();
+			for (File subdir : subdirs) {
+				res.addAll(getFromFile(subdir));
+			}
+			return res;
+		}
+	};
+
 	public FileManager() {
 	}
 
+	/**
+	 * Read reviews of each author directory, reusing a binary cache of them
+	 * if corpus has not changed, see {@link CorpusCache}
+	 * 
+	 * @param file
+	 *            corpus directory
+	 * @return reviews
+	 * @throws Exception
+	 *             if reading fails
+	 */
 	public List<ReviewMetric> read(File file) throws Exception {
 		List<ReviewMetric> res = new ArrayList<ReviewMetric>();
-		File[] subdirs = file.listFiles();
-		for (File subdir : subdirs) {
-			res.addAll(getFromFile(subdir));
+		CorpusCache cache = new CorpusCache(reviewReader, getOptions());
+		SentenceStore store = new SentenceStore();
+		cache.read(file, store);
+		for (int i = 0; i < store.size(); i++) {
+			res.add(toReviewMetric(store.get(i)));
 		}
 		return res;
 	}
 
-	private List<ReviewMetric> getFromFile(File file) throws Exception {
-		List<ReviewMetric> res = new ArrayList<ReviewMetric>();
+	/**
+	 * @return preprocessing options, i.e. word lists and prefix
+	 */
+	private String getOptions() {
+		return CorpusCache.options(ReviewMetric.negPrefix, negwords, punctuations, stopList);
+	}
+
+	private List<Sentence> getFromFile(File file) throws IOException {
+		List<Sentence> res = new ArrayList<Sentence>();
 		File id = getId(file);
 		File label3 = getLabel3(file);
 		File label4 = getLabel4(file);
@@ -67,10 +104,7 @@ public class FileManager {
 				&& ((strLabel3 = label3Reader.readLine()) != null)
 				&& ((strLabel4 = label4Reader.readLine()) != null)
 				&& ((strSubj = subjReader.readLine()) != null)) {
-			Map<String, Integer> matrix = createWordMatrix(strSubj);
-			ReviewMetric rm = new ReviewMetric(strId, strLabel3, strLabel4,
-					matrix);
-			res.add(rm);
+			res.add(toSentence(strId, strLabel3, strLabel4, strSubj));
 		}
 		idReader.close();
 		label3Reader.close();
@@ -79,22 +113,49 @@ public class FileManager {
 		return res;
 	}
 
-	private Map<String, Integer> createWordMatrix(String subj) {
+	/**
+	 * A review as a sentence: the words counted in its matrix, labelled with
+	 * id and ratings of the review
+	 */
+	private Sentence toSentence(String id, String label3, String label4,
+			String subj) {
+		Sentence res = new Sentence();
+		res.setLabels(id, label3, label4);
+		for (String str : createWords(subj)) {
+			res.addToken(new TokenBuilder(new String[] { str }).build());
+		}
+		return res;
+	}
+
+	private ReviewMetric toReviewMetric(Sentence sentence) {
+		String[] labels = sentence.getLabels();
 		Map<String, Integer> matrix = new HashMap<String, Integer>();
+		for (Token token : sentence.getTokens()) {
+			String str = token.getOriginWord();
+			Integer count = matrix.get(str);
+			if (count == null) {
+				count = 0;
+			}
+			matrix.put(str, ++count);
+		}
+		return new ReviewMetric(labels[0], labels[1], labels[2], matrix);
+	}
+
+	/**
+	 * @return words of a review to count, in order
+	 */
+	private List<String> createWords(String subj) {
+		List<String> res = new ArrayList<String>();
 		String[] strs = negativeWords(subj);
 		for (String str : strs) {
 			str = str.toUpperCase();
 			if (!filterStopWord(str)) {
-				Integer count = matrix.get(str);
-				if (count == null) {
-					count = 0;
-				}
-				matrix.put(str, ++count);
+				res.add(str);
 			}
 		}
-		return matrix;
+		return res;
 	}
-	
+
 	private String[] negativeWords(String strLine) {
 		String[] strs = strLine.split("\\s");
 		boolean addPrefix = false;
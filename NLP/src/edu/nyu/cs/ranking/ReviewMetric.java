@@ -9,6 +9,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import edu.nyu.cs.pub.FeatureIndex;
+
 /**
  * Movie review model
  * 
@@ -79,7 +81,7 @@ public class ReviewMetric {
 		return label4;
 	}
 
-	public void buildIndexAndValuePair(List<String> vocabulary) {
+	public void buildIndexAndValuePair(FeatureIndex vocabulary) {
 		// process negation words, which have prefix "NOT_"
 		matrix = preprocessNegation(this.matrix);
 		indexAndValue = new ArrayList<Integer[]>();
@@ -87,9 +89,9 @@ public class ReviewMetric {
 		while (it.hasNext()) {
 			Entry<String, Integer> entry = it.next();
 			Integer count = entry.getValue();
-			int index = Collections.binarySearch(vocabulary, entry.getKey());
-			if (index >= 0) {
-				Integer[] pair = new Integer[] { index + 1, count };
+			int index = vocabulary.get(entry.getKey());
+			if (index > 0) {
+				Integer[] pair = new Integer[] { index, count };
 				indexAndValue.add(pair);
 			}
 		}
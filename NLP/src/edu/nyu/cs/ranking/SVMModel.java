@@ -13,6 +13,9 @@ import libsvm.svm_model;
 import libsvm.svm_node;
 import libsvm.svm_parameter;
 import libsvm.svm_problem;
+import edu.nyu.cs.pub.FeatureIndex;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Metrics.Timer;
 
 /**
  * SVM Model for star rating based on movie comments.
@@ -52,7 +55,8 @@ public class SVMModel {
 		}
 		if ("-t".equals(args[0])) {
 			SVMModel model = createModel(args);
-			long t1 = System.currentTimeMillis();
+			Timer load = Metrics.instance.timer("corpus.load");
+			long start = load.start();
 			List<ReviewMetric> data = null;
 			try {
 				data = model.loadCorpus(args[1]);
@@ -60,8 +64,9 @@ public class SVMModel {
 				System.out.println("Loading corpus exception!");
 				throw e;
 			}
-			long t2 = System.currentTimeMillis();
-			System.out.println("Loading corpus time: " + (t2 - t1));
+			load.stop(start);
+			Timer train = Metrics.instance.timer("svm.train");
+			start = train.start();
 			int[] predict;
 			try {
 				// training
@@ -70,15 +75,13 @@ public class SVMModel {
 				System.out.println("Training exception!");
 				throw e;
 			}
-			long t3 = System.currentTimeMillis();
-			System.out.println("Training time: " + (t3 - t2));
+			train.stop(start);
 			// int[] predict = model.test(data);
 			double accuracy = calcAccuracy(predict[0], predict[1]);
 			System.out.println("Correct predict: " + predict[0]
 					+ " Incorrect predict: " + predict[1] + " Accuracy: "
 					+ accuracy);
-			long t4 = System.currentTimeMillis();
-			System.out.println("Testing time: " + (t4 - t3));
+			System.out.print(Metrics.instance.dump());
 		} else {
 			System.out.println("Wrong command!");
 			System.out.println(msg());
@@ -239,7 +242,7 @@ public class SVMModel {
 		return param;
 	}
 
-	private List<String> buildVocabulary(List<ReviewMetric> rm) {
+	private FeatureIndex buildVocabulary(List<ReviewMetric> rm) {
 		List<String> voc = new ArrayList<String>();
 		Map<String, Integer> tmp = new HashMap<String, Integer>();
 		for (ReviewMetric matrix : rm) {
@@ -269,7 +272,7 @@ public class SVMModel {
 				+ " times...");
 		System.out.println("After cutting off, vocabulary size " + voc.size());
 		Collections.sort(voc);
-		return voc;
+		return new FeatureIndex(voc);
 	}
 
 	private String cutoffNegation(String word) {
@@ -282,7 +285,7 @@ public class SVMModel {
 	private List<ReviewMetric> loadCorpus(String filePath) throws Exception {
 		FileManager fileManager = new FileManager();
 		List<ReviewMetric> rmList = fileManager.read(new File(filePath));
-		List<String> vocabulary = buildVocabulary(rmList);
+		FeatureIndex vocabulary = buildVocabulary(rmList);
 		for (ReviewMetric metric : rmList) {
 			metric.buildIndexAndValuePair(vocabulary);
 		}
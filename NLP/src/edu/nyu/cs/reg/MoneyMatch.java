@@ -123,6 +123,14 @@ public class MoneyMatch {
 		return sb.toString();
 	}
 
+	/**
+	 * Forget matches recorded so far, which otherwise pile up in memory when
+	 * matching goes on for long, e.g. when benchmarked
+	 */
+	static void resetStatistics() {
+		stat.setLength(0);
+	}
+
 	/**
 	 * Read in corpus; <br/>
 	 * If corpus is given as a directory, then recursively read in all files
@@ -1,8 +1,6 @@
 package edu.nyu.cs.rel;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import edu.nyu.cs.pub.FeatureName;
 import edu.nyu.cs.pub.TextTool;
 import edu.nyu.cs.pub.Token;
 
@@ -31,6 +29,24 @@ public class Context {
 	 *
 	 */
 	public static class Builder {
+
+		// context features
+		private static final FeatureName TAG = new FeatureName("tag");
+
+		private static final FeatureName PRE_TAG = new FeatureName("preTag");
+
+		private static final FeatureName NEXT_TAG = new FeatureName("nextTag");
+
+		private static final FeatureName PRE_PRE_TAG = new FeatureName(
+				"prePreTag");
+
+		private static final FeatureName PRE_TYPE = new FeatureName("preType");
+
+		private static final FeatureName FIRST_WORD = new FeatureName(
+				"firstWord");
+
+		private static final FeatureName IS_CAPITAL = new FeatureName(
+				"isCapital");
 		
 		//current token
 		private Token currentToken;
@@ -75,16 +91,13 @@ public class Context {
 		}
 
 		public String[] build() {
-			List<String> context = new ArrayList<String>();
-			// tag
-			context.add("tag=" + currentToken.getPosTag());
-			context.add("preTag=" + getPreTag());
-			context.add("nextTag=" + getNextTag());
-			context.add("prePreTag=" + getPrePreTag());
-			context.add("preType=" + getPreType());
-			context.add("firstWord=" + firstWord);
-			context.add("isCapital=" + isCapital());
-			return context.toArray(new String[0]);
+			return new String[] {
+					// tag
+					TAG.get(currentToken.getPosTag()),
+					PRE_TAG.get(getPreTag()), NEXT_TAG.get(getNextTag()),
+					PRE_PRE_TAG.get(getPrePreTag()),
+					PRE_TYPE.get(getPreType()), FIRST_WORD.get(firstWord),
+					IS_CAPITAL.get(isCapital()) };
 		}
 
 		private boolean isCapital() {
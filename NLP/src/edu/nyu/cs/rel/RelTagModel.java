@@ -1,7 +1,6 @@
 package edu.nyu.cs.rel;
 
 import java.io.IOException;
-import java.util.List;
 
 import edu.nyu.cs.ne.feature.RelExtractor;
 import edu.nyu.cs.ne.feature.RelFeature;
@@ -9,6 +8,8 @@ import edu.nyu.cs.ne.feature.SimpleExtractor;
 import edu.nyu.cs.pub.AbstractModel;
 import edu.nyu.cs.pub.Decoder;
 import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.Metrics;
+import edu.nyu.cs.pub.Metrics.Timer;
 
 /**
  * Data model for relation tagging task
@@ -18,16 +19,21 @@ import edu.nyu.cs.pub.FileManager;
  */
 public class RelTagModel extends AbstractModel {
 
+	// time to load corpus and write its features
+	private static final Timer TRAIN = Metrics.instance.timer("rel.train");
+
 	private String modelFile = "relFeatures.dat";
 
 	@Override
 	public void train(String filePath) throws IOException {
+		long start = TRAIN.start();
 		// debug Load corpus into memory
 		loadCorpus(filePath);
 		SimpleExtractor<RelFeature> extractor = new SimpleExtractor<RelFeature>(
 				new RelExtractor());
-		List<RelFeature> features = extractor.extractFeature(corpus);
-		FileManager.writeFeatures(modelFile, features);
+		// written as extracted, so that they need not fit in memory
+		FileManager.writeFeatures(modelFile, extractor.features(corpus));
+		TRAIN.stop(start);
 	}
 
 	@Override
@@ -56,16 +62,11 @@ public class RelTagModel extends AbstractModel {
 		RelTagModel memm = new RelTagModel();
 		// training
 		if ("-t".equals(args[0])) {
-			long t1 = System.currentTimeMillis();
 			memm.train(args[1]);
-			long t2 = System.currentTimeMillis();
-			System.out.println("Create model time: " + (t2 - t1));
 		}
 		if ("-d".equals(args[2])) {
-			long t2 = System.currentTimeMillis();
 			memm.tag(args[3]);
-			long t3 = System.currentTimeMillis();
-			System.out.println("Decoding time: " + (t3 - t2));
+			System.out.print(Metrics.instance.dump());
 		} else {
 			System.out.println("Wrong command\n " + instruction);
 			return;
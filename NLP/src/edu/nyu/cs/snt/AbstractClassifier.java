@@ -1,10 +1,11 @@
 package edu.nyu.cs.snt;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
+import edu.nyu.cs.pub.CompositeCorpus;
 import edu.nyu.cs.pub.Corpus;
 
 /**
@@ -37,13 +38,12 @@ public abstract class AbstractClassifier {
 	 * 
 	 * @param trainingData
 	 *            sets of corpus
-	 * @return set of words merged from given corpus
+	 * @return set of words merged from given corpus, a snapshot of
+	 *         their vocabularies, taken once
 	 */
 	protected Set<String> mergeVocabulary(Corpus[] trainingData) {
-		Set<String> voc = new HashSet<String>();
-		voc.addAll(trainingData[0].getVocabulary());
-		voc.addAll(trainingData[1].getVocabulary());
-		return voc;
+		return new CompositeCorpus(Arrays.asList(trainingData))
+				.getVocabulary();
 	}
 
 	/**
@@ -1,21 +1,22 @@
 package edu.nyu.cs.snt;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import edu.nyu.cs.pub.AsyncWriter;
+import edu.nyu.cs.pub.CorpusCache;
+import edu.nyu.cs.pub.DirectoryLoader;
+import edu.nyu.cs.pub.DirectoryLoader.Loader;
 import edu.nyu.cs.pub.IFileReader;
+import edu.nyu.cs.pub.Metrics;
 import edu.nyu.cs.pub.Sentence;
 import edu.nyu.cs.pub.TextTool;
 import edu.nyu.cs.pub.Token.TokenBuilder;
@@ -56,6 +57,14 @@ public class FileManager implements IFileReader {
 	public FileManager() {
 	}
 
+	/**
+	 * @return preprocessing options, i.e. word lists and prefix, see
+	 *         {@link CorpusCache}
+	 */
+	public String getOptions() {
+		return CorpusCache.options(negPrefix, negwords, punctuations, stopList);
+	}
+
 	/**
 	 * Read in sentences from input corpus
 	 * 
@@ -77,11 +86,18 @@ public class FileManager implements IFileReader {
 		}
 	}
 
+	/**
+	 * Read files of a directory in parallel, in order of names
+	 */
 	private List<Sentence> getFromDir(File file) throws IOException {
 		List<Sentence> res = new ArrayList<Sentence>();
-		File[] files = file.listFiles();
-		for (File sub : files) {
-			res.addAll(read(sub));
+		for (List<Sentence> sentences : DirectoryLoader.load(DirectoryLoader
+				.listFiles(file), new Loader<List<Sentence>>() {
+			public List<Sentence> load(File file) throws IOException {
+				return getFromFile(file);
+			}
+		})) {
+			res.addAll(sentences);
 		}
 		return res;
 	}
@@ -107,8 +123,8 @@ public class FileManager implements IFileReader {
 				}
 			}
 		}
-		System.out.println("File " + file.getPath() + " has " + count
-				+ " words\n");
+		Metrics.instance.counter("corpus.files").inc();
+		Metrics.instance.counter("corpus.tokens").add(count);
 		res.add(sentence);
 		return res;
 	}
@@ -157,14 +173,17 @@ public class FileManager implements IFileReader {
 	 */
 	public static void writeFeatures(String modelFile, List<String[]> features)
 			throws IOException {
-		FileOutputStream fstream = new FileOutputStream(modelFile);
-		// Get the object of DataInputStream
-		DataOutputStream in = new DataOutputStream(fstream);
-		BufferedWriter br = new BufferedWriter(new OutputStreamWriter(in));
-		for (String[] feature : features) {
-			br.append(feature[0] + " " + feature[1] + "\n");
+		AsyncWriter writer = new AsyncWriter(new File(modelFile));
+		try {
+			for (String[] feature : features) {
+				writer.write(feature[0]);
+				writer.write(' ');
+				writer.write(feature[1]);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
 		}
-		br.flush();
 	}
 
 	/**
@@ -17,6 +17,7 @@ import libsvm.svm_node;
 import libsvm.svm_parameter;
 import libsvm.svm_problem;
 import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FeatureIndex;
 import edu.nyu.cs.pub.Sentence;
 import edu.nyu.cs.pub.TextTool;
 
@@ -37,7 +38,7 @@ public class SVM {
 
 	private int cutoff = 4;
 
-	private List<String> vocabulary;
+	private FeatureIndex vocabulary;
 
 	private svm_model model = null;
 
@@ -106,16 +107,14 @@ public class SVM {
 		List<List<Integer[]>> indexAndValue = new ArrayList<List<Integer[]>>();
 		for (Sentence sentence : posSent) {
 			String[] tokens = sentence.getTokenArray();
-			Set<String> binarization = new HashSet<String>();
+			Set<Integer> binarization = new HashSet<Integer>();
 			List<Integer[]> tmpList = new ArrayList<Integer[]>();
 			for (String token : tokens) {
-				if (!filter(token) && !binarization.contains(token)) {
-					binarization.add(token);
-					int index = Collections.binarySearch(vocabulary, token);
-					if (index >= 0) {
-						Integer[] pair = new Integer[] { index + 1, 1 };
-						tmpList.add(pair);
-					}
+				// one index per word in vocabulary
+				int index = vocabulary.get(token);
+				if (index > 0 && binarization.add(index) && !filter(token)) {
+					Integer[] pair = new Integer[] { index, 1 };
+					tmpList.add(pair);
 				}
 			}
 			// ascend order
@@ -150,7 +149,7 @@ public class SVM {
 		return returnValue;
 	}
 
-	private List<String> buildVocabulary(Corpus[] trainingData) {
+	private FeatureIndex buildVocabulary(Corpus[] trainingData) {
 		// assemble sentences
 		List<Sentence> totalSentence = new ArrayList<Sentence>();
 		totalSentence.addAll(trainingData[0].getSentences());
@@ -181,7 +180,7 @@ public class SVM {
 		}
 		System.out.println("After cutting off, vocabulary size " + voc.size());
 		Collections.sort(voc);
-		return voc;
+		return new FeatureIndex(voc);
 	}
 
 	private svm_parameter createDefaultParam() {
@@ -3,10 +3,16 @@ package edu.nyu.cs.snt;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import edu.nyu.cs.pub.CompositeCorpus;
 import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.CorpusCache;
+import edu.nyu.cs.pub.DirectoryLoader;
+import edu.nyu.cs.pub.DirectoryLoader.Loader;
 import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.SymbolTable;
 
 /**
  * 
@@ -29,6 +35,14 @@ public class SentimentModel {
 
 	private FileManager fileManager = new FileManager();
 
+	// reuses parsed corpora across runs
+	private CorpusCache cache = new CorpusCache(fileManager, fileManager
+			.getOptions());
+
+	// shared by corpora of all folders, so that their vocabularies merge by
+	// ids
+	private SymbolTable symbols = new SymbolTable();
+
 	protected List<Folder> folders = new ArrayList<Folder>();
 
 	private Logger logger = new Logger();
@@ -52,13 +66,18 @@ public class SentimentModel {
 		}
 	}
 
+	/**
+	 * Load each folder of a directory as a corpus, in parallel; folders come
+	 * in order of names, so that positive and negative folders of the same
+	 * name pair up
+	 */
 	private List<Corpus> loadCorpusFromDir(String path) throws IOException {
-		List<Corpus> corpusList = new ArrayList<Corpus>();
-		File[] files = new File(path).listFiles();
-		for (File file : files) {
-			corpusList.add(new Corpus(file.getPath(), fileManager));
-		}
-		return corpusList;
+		return DirectoryLoader.load(Arrays.asList(DirectoryLoader
+				.children(new File(path))), new Loader<Corpus>() {
+			public Corpus load(File file) throws IOException {
+				return new Corpus(file.getPath(), cache, symbols);
+			}
+		});
 	}
 
 	private List<Corpus> loadNegativeCorpus(String negFilePath)
@@ -115,8 +134,8 @@ public class SentimentModel {
 				negList.add(jthFolder.getNegCorpus());
 			}
 		}
-		Corpus posCorpus = new Corpus(posList);
-		Corpus negCorpus = new Corpus(negList);
+		Corpus posCorpus = new CompositeCorpus(posList);
+		Corpus negCorpus = new CompositeCorpus(negList);
 		return new Corpus[] { posCorpus, negCorpus };
 	}
 
@@ -334,7 +353,7 @@ public class SentimentModel {
 
 	private Corpus createTestData(int i) {
 		Folder ithFolder = folders.get(i);
-		return new Corpus(ithFolder.getAllCorpus());
+		return new CompositeCorpus(ithFolder.getAllCorpus());
 	}
 
 	protected void log(String msg) {
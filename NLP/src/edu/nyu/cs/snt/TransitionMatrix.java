@@ -139,10 +139,7 @@ public class TransitionMatrix extends Matrix {
 		List<String[]> biStrs = TextTool.bigramWithSymbols(perm);
 		Double prob = new Double(1);
 		for (String[] biStr : biStrs) {
-			Double biStrProb = this.getItem(biStr[0], biStr[1]);
-			if (biStrProb != null) {
-				prob += Math.abs(Math.log10(biStrProb));
-			}
+			prob += this.getCost(biStr[0], biStr[1]);
 		}
 		return prob;
 	}
@@ -150,10 +147,7 @@ public class TransitionMatrix extends Matrix {
 	public Double probabilityWithUnigram(String[] perm) {
 		Double prob = new Double(0);
 		for (String word : perm) {
-			Double biStrProb = this.getItem(word);
-			if (biStrProb != null) {
-				prob += Math.abs(Math.log10(biStrProb));
-			}
+			prob += this.getCost(word);
 		}
 		return prob;
 	}
@@ -0,0 +1,107 @@
+package edu.nyu.cs.ne;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.nyu.cs.ne.feature.SimpleExtractor;
+import edu.nyu.cs.ne.feature.TagExtractor;
+import edu.nyu.cs.ne.feature.TagFeature;
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.LatticeScorer;
+import edu.nyu.cs.pub.MappedFileReader;
+import edu.nyu.cs.pub.OnlineViterbi;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+
+public class ViterbiForMEMMTest {
+
+	private static String trainingFile = "resources/named_entity/train.np";
+
+	private static String devFile = "resources/named_entity/dev.np";
+
+	private static File features;
+
+	private static ViterbiForMEMM decoder;
+
+	private static List<Sentence> dev;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		Corpus corpus = new Corpus(trainingFile, MappedFileReader.instance);
+		features = File.createTempFile("memm", ".dat");
+		FileManager.writeFeatures(features.getPath(),
+				new SimpleExtractor<TagFeature>(new TagExtractor())
+						.features(corpus));
+		decoder = new ViterbiForMEMM(features.getPath());
+		dev = new ArrayList<Sentence>();
+		for (Sentence sentence : new Corpus(devFile, MappedFileReader.instance)) {
+			if (!sentence.isEmpty()) {
+				dev.add(sentence);
+			}
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		new File(features.getPath() + ".model").delete();
+		features.delete();
+	}
+
+	@Test
+	public void testOnlineSameAsViterbi() {
+		// lag longer than any sentence, so nothing is committed early
+		int lag = 0;
+		for (Sentence sentence : dev) {
+			lag = Math.max(lag, sentence.length());
+		}
+		OnlineViterbi online = new OnlineViterbi(decoder.scorer(), lag);
+		for (Sentence sentence : dev) {
+			Sentence expected = decoder.decode(sentence.clone());
+			Sentence actual = sentence.clone();
+			List<Token> decoded = new ArrayList<Token>();
+			for (Token token : actual.getTokens()) {
+				decoded.addAll(online.push(token));
+			}
+			decoded.addAll(online.flush());
+			Assert.assertEquals(actual.length(), decoded.size());
+			for (int i = 0; i < actual.length(); i++) {
+				Assert.assertEquals(expected.getTokens().get(i)
+						.getPredictBIOChunk(), actual.getTokens().get(i)
+						.getPredictBIOChunk());
+			}
+		}
+	}
+
+	@Test
+	public void testOnlineLagIsBounded() {
+		int lag = 3;
+		LatticeScorer scorer = decoder.scorer();
+		OnlineViterbi online = new OnlineViterbi(scorer, lag);
+		// whole development set as one stream, without sentence breaks
+		int pushed = 0;
+		int decoded = 0;
+		for (Sentence sentence : dev) {
+			for (Token token : sentence.clone().getTokens()) {
+				pushed++;
+				for (Token t : online.push(token)) {
+					Assert.assertNotNull(t.getPredictBIOChunk());
+					decoded++;
+				}
+				// tokens still waiting as lookahead are pending too
+				Assert.assertTrue(online.pending() <= lag + scorer.lookahead());
+			}
+		}
+		decoded += online.flush().size();
+		Assert.assertEquals(pushed, decoded);
+		Assert.assertEquals(0, online.pending());
+	}
+
+}
@@ -0,0 +1,215 @@
+package edu.nyu.cs.pos;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.OnlineViterbi;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.TagDictionary;
+import edu.nyu.cs.pub.Token;
+
+public class CompiledViterbiTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	private String devFile = "test/edu/nyu/cs/pos/development.text";
+
+	private TransitionMatrix priorMatrix = null;
+
+	private EmissionMatrix likelihoodMatrix = null;
+
+	private TagDictionary tagDictionary = null;
+
+	@Before
+	public void setUp() throws Exception {
+		Corpus corpus = new Corpus(trainingFile, FileManager.instance);
+		priorMatrix = new TransitionMatrix(corpus);
+		likelihoodMatrix = new EmissionMatrix(corpus);
+		tagDictionary = new TagDictionary(corpus);
+	}
+
+	@Test
+	public void testSameTagsAsViterbi() throws Exception {
+		Viterbi viterbi = new Viterbi(priorMatrix, likelihoodMatrix);
+		CompiledViterbi compiled = new CompiledViterbi(new CompiledModel(
+				priorMatrix, likelihoodMatrix));
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			if (sentence.isEmpty()) {
+				continue;
+			}
+			Sentence expected = viterbi.decode(sentence.clone());
+			Sentence actual = compiled.decode(sentence.clone());
+			expected.sort();
+			actual.sort();
+			Assert.assertEquals(expected.length(), actual.length());
+			for (int i = 0; i < expected.length(); i++) {
+				Token e = expected.getTokens().get(i);
+				Token a = actual.getTokens().get(i);
+				Assert.assertEquals(e.getPosTag(), a.getPosTag());
+			}
+		}
+	}
+
+	@Test
+	public void testWideBeamSameAsFull() throws Exception {
+		CompiledModel model = new CompiledModel(priorMatrix, likelihoodMatrix);
+		CompiledViterbi full = new CompiledViterbi(model);
+		CompiledViterbi beam = new CompiledViterbi(model,
+				model.numberOfTags(), Double.POSITIVE_INFINITY);
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			if (sentence.isEmpty()) {
+				continue;
+			}
+			Sentence expected = full.decode(sentence.clone());
+			Sentence actual = beam.decode(sentence.clone());
+			for (int i = 0; i < expected.length(); i++) {
+				Assert.assertEquals(expected.getTokens().get(i).getPosTag(),
+						actual.getTokens().get(i).getPosTag());
+			}
+		}
+	}
+
+	@Test
+	public void testNarrowBeamTagsEveryToken() throws Exception {
+		CompiledModel model = new CompiledModel(priorMatrix, likelihoodMatrix);
+		CompiledViterbi beam = new CompiledViterbi(model, 1, 2.0);
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			if (sentence.isEmpty()) {
+				continue;
+			}
+			for (Token token : beam.decode(sentence.clone()).getTokens()) {
+				Assert.assertTrue(model.getTagId(token.getPosTag()) >= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testTagDictionaryKeepsObservedTags() throws Exception {
+		CompiledModel model = new CompiledModel(priorMatrix, likelihoodMatrix,
+				tagDictionary);
+		CompiledViterbi decoder = new CompiledViterbi(model, 0,
+				Double.POSITIVE_INFINITY, true);
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			if (sentence.isEmpty()) {
+				continue;
+			}
+			for (Token token : decoder.decode(sentence.clone()).getTokens()) {
+				String word = token.getLiteral();
+				if (tagDictionary.contains(word)) {
+					Assert.assertTrue(tagDictionary.getTags(word).contains(
+							token.getPosTag()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOnlineLagIsBounded() throws Exception {
+		CompiledModel model = new CompiledModel(priorMatrix, likelihoodMatrix,
+				tagDictionary);
+		CompiledViterbi decoder = new CompiledViterbi(model, 0,
+				Double.POSITIVE_INFINITY, true);
+		int lag = 4;
+		OnlineViterbi online = new OnlineViterbi(decoder.scorer(), lag);
+		// whole development set as one stream, without sentence breaks
+		int pushed = 0;
+		int decoded = 0;
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			for (Token token : sentence.clone().getTokens()) {
+				pushed++;
+				for (Token t : online.push(token)) {
+					Assert.assertTrue(model.getTagId(t.getPosTag()) >= 0);
+					decoded++;
+				}
+				Assert.assertTrue(online.pending() <= lag);
+			}
+		}
+		decoded += online.flush().size();
+		Assert.assertEquals(pushed, decoded);
+		Assert.assertEquals(0, online.pending());
+	}
+
+	@Test
+	public void testKernelSameAsScalar() {
+		int N = 45;
+		Random random = new Random(7);
+		double[] costs = new double[N];
+		double[] transition = new double[N * N];
+		// small integer costs, so many sums tie
+		for (int s = 0; s < N; s++) {
+			costs[s] = 1 + random.nextInt(4);
+		}
+		for (int i = 0; i < transition.length; i++) {
+			transition[i] = random.nextInt(4);
+		}
+		for (int count = 0; count <= N; count += 5) {
+			int[] states = new int[count];
+			for (int i = 0; i < count; i++) {
+				states[i] = i * N / Math.max(count, 1);
+			}
+			double[] expected = new double[N];
+			int[] expectedArg = new int[N];
+			double[] actual = new double[N];
+			int[] actualArg = new int[N];
+			MinPlusKernel.scalar().minPlus(costs, 0, states, count,
+					transition, N, expected, expectedArg, 0);
+			MinPlusKernel.instance.minPlus(costs, 0, states, count,
+					transition, N, actual, actualArg, 0);
+			for (int s = 0; s < N; s++) {
+				Assert.assertEquals(expected[s], actual[s], 0.0);
+				Assert.assertEquals(expectedArg[s], actualArg[s]);
+			}
+		}
+	}
+
+	@Test
+	public void testEmptySentence() {
+		CompiledViterbi compiled = new CompiledViterbi(new CompiledModel(
+				priorMatrix, likelihoodMatrix));
+		Sentence sentence = new Sentence();
+		Assert.assertSame(sentence, compiled.decode(sentence));
+		Assert.assertTrue(sentence.isEmpty());
+	}
+
+	@Test
+	public void testNoPathTagsEveryToken() throws Exception {
+		// every state of the full lattice unreachable, without back pointers
+		CompiledViterbi compiled = new CompiledViterbi(new CompiledModel(
+				priorMatrix, likelihoodMatrix), 0, Double.POSITIVE_INFINITY,
+				false);
+		compiled.setKernel(new MinPlusKernel() {
+			@Override
+			public void minPlus(double[] costs, int from, int[] states,
+					int count, double[] transition, int N, double[] out,
+					int[] arg, int to) {
+				for (int s = 0; s < N; s++) {
+					out[to + s] = Double.POSITIVE_INFINITY;
+					arg[to + s] = -1;
+				}
+			}
+
+			@Override
+			public String getName() {
+				return "unreachable";
+			}
+		});
+		for (Sentence sentence : new Corpus(devFile, FileManager.instance)) {
+			compiled.decode(sentence);
+			for (Token token : sentence.getTokens()) {
+				Assert.assertNotNull(token.getPosTag());
+				Assert.assertTrue(token.getPosTag().length() > 0);
+			}
+		}
+	}
+}
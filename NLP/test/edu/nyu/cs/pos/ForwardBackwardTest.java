@@ -0,0 +1,98 @@
+package edu.nyu.cs.pos;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.pub.Corpus;
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.TagDictionary;
+import edu.nyu.cs.pub.Token.TokenBuilder;
+
+public class ForwardBackwardTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	private String devFile = "test/edu/nyu/cs/pos/development.text";
+
+	private CompiledModel model = null;
+
+	@Before
+	public void setUp() throws Exception {
+		Corpus corpus = new Corpus(trainingFile, FileManager.instance);
+		model = new CompiledModel(new TransitionMatrix(corpus),
+				new EmissionMatrix(corpus), new TagDictionary(corpus));
+	}
+
+	@Test
+	public void testSameTagsAsViterbi() throws Exception {
+		CompiledViterbi viterbi = new CompiledViterbi(model, 0,
+				Double.POSITIVE_INFINITY, true);
+		ForwardBackward forwardBackward = new ForwardBackward(model, true);
+		Corpus dev = new Corpus(devFile, FileManager.instance);
+		for (Sentence sentence : dev) {
+			if (sentence.isEmpty()) {
+				continue;
+			}
+			Sentence expected = viterbi.decode(sentence.clone());
+			Sentence actual = sentence.clone();
+			TagPosteriors posteriors = forwardBackward.analyse(actual);
+			Assert.assertEquals(expected.toString(), actual.toString());
+			for (int t = 0; t < posteriors.length(); t++) {
+				double sum = 0.0;
+				for (double p : posteriors.getDistribution(t)) {
+					sum += p;
+				}
+				Assert.assertEquals(1.0, sum, 1e-9);
+				Assert.assertTrue(posteriors.getConfidence(t) > 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testPosteriorsOfEveryPath() throws Exception {
+		Sentence sentence = new Sentence();
+		String[] words = { "The", "stock", "rose" };
+		for (int i = 0; i < words.length; i++) {
+			TokenBuilder builder = new TokenBuilder(new String[] { words[i] });
+			builder.setIndex(i);
+			sentence.addToken(builder.build());
+		}
+		ForwardBackward forwardBackward = new ForwardBackward(model);
+		TagPosteriors posteriors = forwardBackward.analyse(sentence);
+		// sum probabilities of every tag sequence
+		int N = model.numberOfTags();
+		double[][] emission = new double[3][N];
+		for (int t = 0; t < 3; t++) {
+			model.emissionCost(sentence.getTokens().get(t).getLiteral(),
+					emission[t]);
+		}
+		double total = 0.0;
+		double[][] marginal = new double[3][N];
+		for (int a = 0; a < N; a++) {
+			for (int b = 0; b < N; b++) {
+				for (int c = 0; c < N; c++) {
+					double cost = model.startCost(a) + emission[0][a]
+							+ model.transitionCost(a, b) + emission[1][b]
+							+ model.transitionCost(b, c) + emission[2][c]
+							+ model.endCost(c);
+					double p = Math.pow(10, -cost);
+					total += p;
+					marginal[0][a] += p;
+					marginal[1][b] += p;
+					marginal[2][c] += p;
+				}
+			}
+		}
+		Assert.assertEquals(-Math.log10(total), posteriors.getCost(), 1e-9);
+		for (int t = 0; t < 3; t++) {
+			double[] distribution = posteriors.getDistribution(t);
+			for (int s = 0; s < N; s++) {
+				Assert.assertEquals(marginal[t][s] / total, distribution[s],
+						1e-9);
+			}
+		}
+	}
+}
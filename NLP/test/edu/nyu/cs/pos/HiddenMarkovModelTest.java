@@ -1,10 +1,18 @@
 package edu.nyu.cs.pos;
 
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import junit.framework.Assert;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.Sentence;
+
 public class HiddenMarkovModelTest {
 
 	private HiddenMarkovModel model = null;
@@ -13,11 +21,18 @@ public class HiddenMarkovModelTest {
 
 	private String devFile = "test/edu/nyu/cs/pos/development.text";
 
+	private String annotatedDevFile = "test/edu/nyu/cs/pos/development.pos";
+
 	@Before
 	public void setUp() {
 		this.model = new HiddenMarkovModel();
 	}
 
+	@After
+	public void tearDown() {
+		model.close();
+	}
+
 	@Test
 	public void testTrain() throws Exception {
 		model.train(trainingFile);
@@ -34,4 +49,95 @@ public class HiddenMarkovModelTest {
 		Assert.assertNotNull(model.getDecoder());
 	}
 
+	@Test
+	public void testTagInParallel() throws Exception {
+		model.train(trainingFile);
+		List<Sentence> expected = model.tag(devFile);
+		model.setParallelism(4);
+		List<Sentence> actual = model.tag(devFile);
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).toString(), actual.get(i)
+					.toString());
+		}
+	}
+
+	@Test
+	public void testTagStream() throws Exception {
+		model.train(trainingFile);
+		model.tag(devFile);
+		File output = new File(devFile + ".out");
+		List<Sentence> expected = FileManager.instance.read(output);
+		model.tagStream(devFile);
+		List<Sentence> actual = FileManager.instance.read(output);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testTagOnline() throws Exception {
+		model.train(trainingFile);
+		model.tag(devFile);
+		File output = new File(devFile + ".out");
+		List<Sentence> expected = FileManager.instance.read(output);
+		model.tagOnline(devFile, 8);
+		List<Sentence> actual = FileManager.instance.read(output);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		model.train(trainingFile);
+		List<Sentence> expected = model.tag(devFile);
+		File modelFile = File.createTempFile("hmm", ".bin");
+		modelFile.deleteOnExit();
+		model.save(modelFile.getPath());
+		HiddenMarkovModel loaded = new HiddenMarkovModel();
+		loaded.load(modelFile.getPath());
+		List<Sentence> actual = loaded.tag(devFile);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testTrainInParallel() throws Exception {
+		model.train(trainingFile);
+		List<Sentence> expected = model.tag(devFile);
+		HiddenMarkovModel parallel = new HiddenMarkovModel();
+		parallel.setParallelism(4);
+		parallel.train(trainingFile);
+		List<Sentence> actual = parallel.tag(devFile);
+		parallel.close();
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testCloseKeepsGivenExecutor() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			model.setParallelism(2);
+			model.setExecutor(pool);
+			model.train(trainingFile);
+			model.close();
+			Assert.assertFalse(pool.isShutdown());
+			// works in calling thread once closed
+			Assert.assertFalse(model.tag(devFile).isEmpty());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		List<Sentence> all = FileManager.instance.read(new File(trainingFile));
+		all.addAll(FileManager.instance.read(new File(annotatedDevFile)));
+		File allFile = File.createTempFile("all", ".pos");
+		allFile.deleteOnExit();
+		FileManager.instance.writeFileForTest(allFile, all);
+		model.train(allFile.getPath());
+		List<Sentence> expected = model.tag(devFile);
+		HiddenMarkovModel updated = new HiddenMarkovModel();
+		updated.train(trainingFile);
+		updated.update(FileManager.instance.read(new File(annotatedDevFile)));
+		List<Sentence> actual = updated.tag(devFile);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
 }
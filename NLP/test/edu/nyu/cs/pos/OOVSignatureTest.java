@@ -0,0 +1,33 @@
+package edu.nyu.cs.pos;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class OOVSignatureTest {
+
+	@Test
+	public void testFlags() {
+		int sig = OOVSignature.of("Twenty-3");
+		Assert.assertTrue(OOVSignature.has(sig, OOVSignature.CAPITAL));
+		Assert.assertTrue(OOVSignature.has(sig, OOVSignature.NUMERIC));
+		Assert.assertTrue(OOVSignature.has(sig, OOVSignature.HYPHEN));
+		Assert.assertEquals(OOVSignature.SUFFIX_NONE, OOVSignature.suffix(sig));
+		Assert.assertEquals(0, OOVSignature.of(""));
+	}
+
+	@Test
+	public void testSuffix() {
+		Assert.assertEquals(OOVSignature.SUFFIX_S,
+				OOVSignature.suffix(OOVSignature.of("WIDGETS")));
+		Assert.assertEquals(OOVSignature.SUFFIX_ED,
+				OOVSignature.suffix(OOVSignature.of("frobbed")));
+		Assert.assertEquals(OOVSignature.SUFFIX_ABLE,
+				OOVSignature.suffix(OOVSignature.of("frobbable")));
+		Assert.assertEquals(OOVSignature.SUFFIX_ING,
+				OOVSignature.suffix(OOVSignature.of("frobbing")));
+		Assert.assertFalse(OOVSignature.has(OOVSignature.of("frobbing"),
+				OOVSignature.CAPITAL));
+	}
+
+}
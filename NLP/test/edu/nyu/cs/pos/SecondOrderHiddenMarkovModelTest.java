@@ -0,0 +1,100 @@
+package edu.nyu.cs.pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.pub.FileManager;
+import edu.nyu.cs.pub.Sentence;
+import edu.nyu.cs.pub.Token;
+
+public class SecondOrderHiddenMarkovModelTest {
+
+	private SecondOrderHiddenMarkovModel model = null;
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	private String devFile = "test/edu/nyu/cs/pos/development.text";
+
+	private String annotatedDevFile = "test/edu/nyu/cs/pos/development.pos";
+
+	@Before
+	public void setUp() {
+		this.model = new SecondOrderHiddenMarkovModel();
+	}
+
+	@Test
+	public void testTag() throws Exception {
+		model.train(trainingFile);
+		List<Sentence> res = model.tag(devFile);
+		for (Sentence sentence : res) {
+			for (Token token : sentence.getTokens()) {
+				Assert.assertNotNull(token.getPosTag());
+			}
+		}
+	}
+
+	@Test
+	public void testWideBeamSameAsFull() throws Exception {
+		model.train(trainingFile);
+		model.setBeamWidth(0);
+		List<Sentence> full = model.tag(devFile);
+		int N = model.compiledModel.numberOfTags();
+		model.setBeamWidth(N * N);
+		List<Sentence> beam = model.tag(devFile);
+		Assert.assertEquals(full.size(), beam.size());
+		for (int i = 0; i < full.size(); i++) {
+			List<Token> expected = full.get(i).getTokens();
+			List<Token> actual = beam.get(i).getTokens();
+			for (int j = 0; j < expected.size(); j++) {
+				Assert.assertEquals(expected.get(j).getPosTag(), actual.get(j)
+						.getPosTag());
+			}
+		}
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		List<Sentence> all = FileManager.instance.read(new File(trainingFile));
+		all.addAll(FileManager.instance.read(new File(annotatedDevFile)));
+		File allFile = File.createTempFile("all", ".pos");
+		allFile.deleteOnExit();
+		FileManager.instance.writeFileForTest(allFile, all);
+		model.train(allFile.getPath());
+		List<Sentence> expected = model.tag(devFile);
+		SecondOrderHiddenMarkovModel updated = new SecondOrderHiddenMarkovModel();
+		updated.train(trainingFile);
+		updated.update(FileManager.instance.read(new File(annotatedDevFile)));
+		List<Sentence> actual = updated.tag(devFile);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		model.train(trainingFile);
+		List<Sentence> expected = model.tag(devFile);
+		File modelFile = File.createTempFile("hmm2", ".bin");
+		modelFile.deleteOnExit();
+		model.save(modelFile.getPath());
+		SecondOrderHiddenMarkovModel loaded = new SecondOrderHiddenMarkovModel();
+		loaded.load(modelFile.getPath());
+		List<Sentence> actual = loaded.tag(devFile);
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadFirstOrderModel() throws Exception {
+		HiddenMarkovModel bigram = new HiddenMarkovModel();
+		bigram.train(trainingFile);
+		File modelFile = File.createTempFile("hmm", ".bin");
+		modelFile.deleteOnExit();
+		bigram.save(modelFile.getPath());
+		model.load(modelFile.getPath());
+	}
+
+}
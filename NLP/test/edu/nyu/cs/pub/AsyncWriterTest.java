@@ -0,0 +1,83 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.nyu.cs.pub.Token.TokenDecor;
+
+public class AsyncWriterTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	@Test
+	public void testManyBuffers() throws Exception {
+		File file = newFile();
+		StringBuilder expected = new StringBuilder();
+		AsyncWriter writer = new AsyncWriter(file);
+		for (int i = 0; i < 100000; i++) {
+			String s = (i % 7 == 0) ? "caf\u00e9 " + i : "word " + i;
+			writer.write(s);
+			writer.write('\n');
+			expected.append(s).append('\n');
+		}
+		writer.close();
+		// closing twice does nothing
+		writer.close();
+		Assert.assertEquals(encoded(expected.toString()), read(file));
+	}
+
+	@Test
+	public void testSameAsTokenDecor() throws Exception {
+		List<Sentence> sentences = MappedFileReader.instance.read(new File(
+				trainingFile));
+		File file = newFile();
+		SentenceWriter writer = new SentenceWriter(file, TokenDecor.TAB);
+		StringBuilder expected = new StringBuilder();
+		for (Sentence sentence : sentences) {
+			writer.write(sentence);
+			for (Token token : sentence.getTokens()) {
+				expected.append(new TokenDecor(token, TokenDecor.TAB))
+						.append('\n');
+			}
+			expected.append('\n');
+		}
+		writer.close();
+		Assert.assertEquals(encoded(expected.toString()), read(file));
+	}
+
+	private File newFile() throws IOException {
+		File file = File.createTempFile("writer", ".out");
+		file.deleteOnExit();
+		return file;
+	}
+
+	/**
+	 * @return string as read back once written in default charset
+	 */
+	private String encoded(String s) {
+		Charset charset = Charset.defaultCharset();
+		return new String(s.getBytes(charset), charset);
+	}
+
+	private String read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < bytes.length) {
+				read += in.read(bytes, read, bytes.length - read);
+			}
+		} finally {
+			in.close();
+		}
+		return new String(bytes, Charset.defaultCharset());
+	}
+}
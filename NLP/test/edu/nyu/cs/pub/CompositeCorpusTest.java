@@ -0,0 +1,106 @@
+package edu.nyu.cs.pub;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class CompositeCorpusTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	private String developmentFile = "test/edu/nyu/cs/pos/development.pos";
+
+	@Test
+	public void testSameAsCopy() throws Exception {
+		List<Corpus> corpora = new ArrayList<Corpus>();
+		corpora.add(new Corpus(trainingFile, MappedFileReader.instance));
+		corpora.add(new Corpus(developmentFile, MappedFileReader.instance));
+		Corpus expected = new Corpus(corpora);
+		Corpus actual = new CompositeCorpus(corpora);
+		Assert.assertEquals(expected.getSentences(), actual.getSentences());
+		Assert.assertEquals(expected.getSentences().size(), actual
+				.getSentences().size());
+		Iterator<Sentence> it = actual.iterator();
+		for (Sentence sentence : expected) {
+			Assert.assertSame(sentence, it.next());
+		}
+		Assert.assertFalse(it.hasNext());
+		Assert.assertEquals(expected.getVocabulary(), actual.getVocabulary());
+		Assert.assertEquals(expected.vocabularySize(), actual.vocabularySize());
+		Assert.assertEquals(expected.getVocabulary(), new HashSet<String>(
+				actual.getVocabulary()));
+		Assert.assertTrue(actual.containsWord("The"));
+	}
+
+	@Test
+	public void testVocabularyTaken() throws Exception {
+		List<Corpus> corpora = new ArrayList<Corpus>();
+		corpora.add(new Corpus(trainingFile, MappedFileReader.instance));
+		Sentence sentence = new Sentence();
+		sentence.addToken(new Token.TokenBuilder(new String[] { "Zyzzyva",
+				"NNP" }).build());
+		List<Sentence> added = new ArrayList<Sentence>();
+		added.add(sentence);
+		corpora.get(0).addSentences(added);
+		Corpus actual = new CompositeCorpus(corpora);
+		Assert.assertTrue(actual.containsWord("zyzzyva"));
+		Assert.assertEquals(corpora.get(0).getVocabulary(), actual
+				.getVocabulary());
+		// taken once, later sentences of corpora are not seen
+		int size = actual.vocabularySize();
+		sentence = new Sentence();
+		sentence.addToken(new Token.TokenBuilder(new String[] { "Zyzzyvas",
+				"NNPS" }).build());
+		added.clear();
+		added.add(sentence);
+		corpora.get(0).addSentences(added);
+		Assert.assertFalse(actual.containsWord("zyzzyvas"));
+		Assert.assertEquals(size, actual.vocabularySize().intValue());
+	}
+
+	@Test
+	public void testIndexedByOffsets() throws Exception {
+		List<Corpus> corpora = new ArrayList<Corpus>();
+		corpora.add(new Corpus(trainingFile, MappedFileReader.instance));
+		corpora.add(new Corpus(new ArrayList<Corpus>()));
+		corpora.add(new Corpus(developmentFile, MappedFileReader.instance));
+		Corpus actual = new CompositeCorpus(corpora);
+		List<String> expected = new ArrayList<String>();
+		for (Sentence sentence : actual) {
+			expected.add(sentence.toString());
+		}
+		Assert.assertEquals(expected.size(), actual.size());
+		List<Sentence> sentences = actual.getSentences();
+		Assert.assertEquals(expected.size(), sentences.size());
+		// first sentence after the empty corpus
+		int first = corpora.get(0).size();
+		Assert.assertEquals(expected.get(first), sentences.get(first)
+				.toString());
+		Assert.assertSame(corpora.get(2).getSentences().get(0), sentences
+				.get(first));
+		// the first corpus still iterates copies from its store
+		corpora.get(0).iterator().next().getTokens().get(0).setTag("XX");
+		Assert.assertFalse("XX".equals(corpora.get(0).iterator().next()
+				.getTokens().get(0).getPosTag()));
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), sentences.get(i).toString());
+		}
+		try {
+			sentences.get(expected.size());
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+			// past the last corpus
+		}
+		// sizes are taken once, as the vocabulary is
+		List<Sentence> added = new ArrayList<Sentence>();
+		added.add(corpora.get(0).iterator().next());
+		corpora.get(2).addSentences(added);
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected.size(), sentences.size());
+	}
+}
@@ -0,0 +1,193 @@
+package edu.nyu.cs.pub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CorpusCacheTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	// temporary files and cache directories to delete
+	private List<File> created = new ArrayList<File>();
+
+	@After
+	public void tearDown() {
+		for (File file : created) {
+			File[] children = file.listFiles();
+			for (int i = 0; children != null && i < children.length; i++) {
+				children[i].delete();
+			}
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSameAsReader() throws Exception {
+		File dir = newDirectory();
+		CorpusCache cache = new CorpusCache(MappedFileReader.instance, "", dir);
+		List<Sentence> expected = MappedFileReader.instance.read(new File(
+				trainingFile));
+		// parsed and written, then loaded
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+		Assert.assertEquals(1, dir.listFiles().length);
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+	}
+
+	@Test
+	public void testStale() throws Exception {
+		File dir = newDirectory();
+		File file = File.createTempFile("cache", ".pos");
+		created.add(file);
+		write(file, "The\tDT\nman\tNN\n");
+		CorpusCache cache = new CorpusCache(MappedFileReader.instance, "", dir);
+		Assert.assertEquals(2, cache.read(file).get(0).length());
+		write(file, "The\tDT\nold\tJJ\nman\tNN\n");
+		Assert.assertEquals(3, cache.read(file).get(0).length());
+		// stale file overwritten
+		Assert.assertEquals(1, dir.listFiles().length);
+		// other options, other cache file
+		new CorpusCache(MappedFileReader.instance, "lower", dir).read(file);
+		Assert.assertEquals(2, dir.listFiles().length);
+	}
+
+	@Test
+	public void testOffByDefault() throws Exception {
+		Assert.assertNull(System.getProperty(CorpusCache.DIRECTORY_PROPERTY));
+		CorpusCache cache = new CorpusCache(MappedFileReader.instance, "");
+		SentenceAssert.assertSameSentences(MappedFileReader.instance.read(new File(
+				trainingFile)), cache.read(new File(trainingFile)));
+	}
+
+	@Test
+	public void testBrokenLength() throws Exception {
+		File dir = newDirectory();
+		CorpusCache cache = new CorpusCache(MappedFileReader.instance, "", dir);
+		List<Sentence> expected = cache.read(new File(trainingFile));
+		File cacheFile = dir.listFiles()[0];
+		// number of sentences, after magic, version and key
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		try {
+			raf.seek(8);
+			raf.seek(12 + raf.readInt());
+			raf.writeInt(Integer.MAX_VALUE - 1);
+		} finally {
+			raf.close();
+		}
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+	}
+
+	@Test
+	public void testBrokenFile() throws Exception {
+		File dir = newDirectory();
+		CorpusCache cache = new CorpusCache(MappedFileReader.instance, "", dir);
+		List<Sentence> expected = cache.read(new File(trainingFile));
+		File cacheFile = dir.listFiles()[0];
+		write(cacheFile, "CRP1 broken");
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+		SentenceAssert.assertSameSentences(expected, cache.read(new File(trainingFile)));
+	}
+
+	@Test
+	public void testPolarity() throws Exception {
+		SentenceStore store = new SentenceStore();
+		Sentence sentence = new Sentence();
+		sentence.addToken(new Token.TokenBuilder(new String[] { "good" })
+				.build());
+		sentence.setPolarity(Sentence.POSITIVE);
+		store.add(sentence);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		store.write(out);
+		out.close();
+		SentenceStore read = new SentenceStore();
+		read.read(ByteBuffer.wrap(bytes.toByteArray()));
+		Assert.assertEquals(Sentence.POSITIVE, read.get(0).getPolarity());
+		Assert.assertEquals(sentence.toString(), read.get(0).toString());
+	}
+
+	@Test
+	public void testLabels() throws Exception {
+		final List<Sentence> expected = new ArrayList<Sentence>();
+		for (int i = 0; i < 3; i++) {
+			Sentence sentence = new Sentence();
+			sentence.addToken(new Token.TokenBuilder(new String[] { "GOOD" })
+					.build());
+			expected.add(sentence);
+		}
+		// labels sharing symbols with tokens, none, and a null one
+		expected.get(0).setLabels("r1", "GOOD", "0.5");
+		expected.get(2).setLabels("r3", null);
+		IFileReader reader = new IFileReader() {
+			public List<Sentence> read(File file) {
+				return expected;
+			}
+		};
+		File dir = newDirectory();
+		CorpusCache cache = new CorpusCache(reader, "", dir);
+		File file = new File(trainingFile);
+		// parsed and written, then loaded
+		for (int round = 0; round < 2; round++) {
+			SentenceStore store = new SentenceStore();
+			cache.read(file, store);
+			Assert.assertEquals(1, dir.listFiles().length);
+			for (int i = 0; i < expected.size(); i++) {
+				String[] labels = store.get(i).getLabels();
+				if (expected.get(i).getLabels() == null) {
+					Assert.assertNull(labels);
+				} else {
+					Assert.assertEquals(Arrays.asList(expected.get(i)
+							.getLabels()), Arrays.asList(labels));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOptionsNameWords() {
+		// lists of equal hash codes
+		Assert.assertEquals(Arrays.asList("Aa").hashCode(), Arrays.asList(
+				"BB").hashCode());
+		Assert.assertFalse(CorpusCache.options("NOT_", Arrays.asList("Aa"))
+				.equals(CorpusCache.options("NOT_", Arrays.asList("BB"))));
+		// words holding separators
+		Assert.assertFalse(CorpusCache.options("", Arrays.asList("a 1:b"))
+				.equals(CorpusCache.options("", Arrays.asList("a", "b"))));
+		Assert.assertFalse(CorpusCache.options("", Arrays.asList("a"),
+				Arrays.asList("b")).equals(
+				CorpusCache.options("", Arrays.asList("a", "b"))));
+	}
+
+	private File newDirectory() throws IOException {
+		File dir = File.createTempFile("cache", "");
+		dir.delete();
+		dir.mkdirs();
+		created.add(dir);
+		return dir;
+	}
+
+	private void write(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		// as if modified later, whatever the time resolution
+		file.setLastModified(file.lastModified() + 2000);
+	}
+}
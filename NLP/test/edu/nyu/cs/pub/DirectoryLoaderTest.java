@@ -0,0 +1,144 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.pub.DirectoryLoader.Loader;
+
+public class DirectoryLoaderTest {
+
+	private File dir;
+
+	// files in order of names
+	private String[] sorted = { "a", "b/y", "b/z", "c", "d" };
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("loader", "");
+		dir.delete();
+		new File(dir, "b").mkdirs();
+		String[] names = { "c", "a", "b/z", "b/y", "d" };
+		for (int i = 0; i < names.length; i++) {
+			OutputStream out = new FileOutputStream(new File(dir, names[i]));
+			try {
+				out.write((names[i] + "\tNN\n\nword" + i + "\tVB\n")
+						.getBytes("US-ASCII"));
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	private void delete(File file) {
+		for (File sub : DirectoryLoader.children(file)) {
+			delete(sub);
+		}
+		file.delete();
+	}
+
+	@Test
+	public void testListFiles() throws Exception {
+		List<File> files = DirectoryLoader.listFiles(dir);
+		Assert.assertEquals(sorted.length, files.size());
+		for (int i = 0; i < sorted.length; i++) {
+			Assert.assertEquals(new File(dir, sorted[i]), files.get(i));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testListMissingFile() throws Exception {
+		DirectoryLoader.listFiles(new File(dir, "missing"));
+	}
+
+	@Test
+	public void testLoadInOrder() throws Exception {
+		List<File> files = DirectoryLoader.listFiles(dir);
+		List<String> loaded = DirectoryLoader.load(files, new Loader<String>() {
+			public String load(File file) throws IOException {
+				// last file finishes first
+				try {
+					Thread.sleep(10 * ("d".equals(file.getName()) ? 0 : 5));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return file.getName();
+			}
+		});
+		Assert.assertEquals(Arrays.asList("a", "y", "z", "c", "d"), loaded);
+	}
+
+	@Test
+	public void testNestedLoad() throws Exception {
+		List<File> dirs = Arrays.asList(dir, dir);
+		List<Integer> loaded = DirectoryLoader.load(dirs,
+				new Loader<Integer>() {
+					public Integer load(File file) throws IOException {
+						// runs in the calling pool thread, without waiting
+						return DirectoryLoader.load(
+								DirectoryLoader.listFiles(file),
+								new Loader<File>() {
+									public File load(File file) {
+										return file;
+									}
+								}).size();
+					}
+				});
+		Assert.assertEquals(Arrays.asList(sorted.length, sorted.length),
+				loaded);
+	}
+
+	@Test
+	public void testFirstError() throws Exception {
+		List<File> files = DirectoryLoader.listFiles(dir);
+		try {
+			DirectoryLoader.load(files, new Loader<File>() {
+				public File load(File file) throws IOException {
+					if (file.getName().compareTo("b") > 0) {
+						throw new IOException(file.getName());
+					}
+					return file;
+				}
+			});
+			Assert.fail();
+		} catch (IOException e) {
+			// y fails before z, c and d, in order of files
+			Assert.assertEquals("y", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testReadersInOrder() throws Exception {
+		List<Sentence> expected = new ArrayList<Sentence>();
+		for (String name : sorted) {
+			expected.addAll(FileManager.instance.read(new File(dir, name)));
+		}
+		List<Sentence> sentences = FileManager.instance.read(dir);
+		SentenceAssert.assertSameSentences(expected, sentences);
+		SentenceAssert.assertSameSentences(expected, MappedFileReader.instance.read(dir));
+		Assert.assertEquals("b/y", sentences.get(2).getTokens().get(0)
+				.getOriginWord());
+		SentenceStore store = new SentenceStore();
+		FileManager.instance.read(dir, store);
+		List<Sentence> stored = new ArrayList<Sentence>();
+		for (int i = 0; i < store.size(); i++) {
+			stored.add(store.get(i));
+		}
+		SentenceAssert.assertSameSentences(expected, stored);
+	}
+}
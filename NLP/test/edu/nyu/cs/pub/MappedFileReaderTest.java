@@ -0,0 +1,70 @@
+package edu.nyu.cs.pub;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MappedFileReaderTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	@Test
+	public void testSameAsFileManager() throws Exception {
+		assertSameSentences(new File(trainingFile));
+	}
+
+	@Test
+	public void testLineBreaksAndColumns() throws Exception {
+		File file = File.createTempFile("mapped", ".pos");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(("The\tdt\r\nold  JJ\tB-NP\t1\t2\tPRED\textra\r"
+					+ "\tnn \n  \n\nman NN\n\n").getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		assertSameSentences(file);
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		File file = File.createTempFile("mapped", ".pos");
+		file.deleteOnExit();
+		assertSameSentences(file);
+	}
+
+	@Test
+	public void testDirectory() throws Exception {
+		File dir = File.createTempFile("mapped", "");
+		dir.delete();
+		File sub = new File(dir, "b");
+		sub.mkdirs();
+		String[] names = { "c", "a", "b/z", "b/y", "d" };
+		for (int i = 0; i < names.length; i++) {
+			File file = new File(dir, names[i]);
+			file.deleteOnExit();
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write((names[i] + "\tNN\n\nword" + i + "\tVB\n")
+						.getBytes("US-ASCII"));
+			} finally {
+				out.close();
+			}
+		}
+		sub.deleteOnExit();
+		dir.deleteOnExit();
+		// files are read in parallel, sentences come in order of names
+		assertSameSentences(dir);
+	}
+
+	private void assertSameSentences(File file) throws IOException {
+		List<Sentence> expected = FileManager.instance.read(file);
+		List<Sentence> actual = MappedFileReader.instance.read(file);
+		SentenceAssert.assertSameSentences(expected, actual);
+	}
+}
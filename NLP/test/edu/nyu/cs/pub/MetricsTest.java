@@ -0,0 +1,66 @@
+package edu.nyu.cs.pub;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.nyu.cs.pub.Metrics.Gauge;
+import edu.nyu.cs.pub.Metrics.Timer;
+
+public class MetricsTest {
+
+	@Test
+	public void testPercentiles() {
+		Timer timer = new Metrics(null).timer("decode.sentence");
+		Assert.assertEquals(0.0, timer.percentile(0.99));
+		// 1 to 1000 microseconds
+		for (int i = 1000; i > 0; i--) {
+			timer.record(i * 1000L);
+		}
+		Assert.assertEquals(1000, timer.getCount());
+		Assert.assertEquals(500500.0, timer.getMeanMillis() * 1e6, 1e-3);
+		Assert.assertEquals(1.0, timer.getMaxMillis());
+		// a sixteenth off at most
+		Assert.assertEquals(500000, timer.percentile(0.5), 500000 / 16.0);
+		Assert.assertEquals(990000, timer.percentile(0.99), 990000 / 16.0);
+		Assert.assertEquals(1000000, timer.percentile(1), 0.0);
+		timer.record(3);
+		Assert.assertEquals(3.0, timer.percentile(0));
+	}
+
+	@Test
+	public void testRegistry() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		Metrics metrics = new Metrics(server);
+		metrics.counter("corpus.tokens").add(5);
+		metrics.counter("corpus.tokens").inc();
+		metrics.timer("decode.sentence").record(2000000);
+		metrics.gauge("output.queued", new Gauge() {
+			public long value() {
+				return 3;
+			}
+		});
+		Assert.assertEquals(6L, server.getAttribute(new ObjectName(
+				"edu.nyu.cs:type=Metrics,name=\"corpus.tokens\""), "Count"));
+		Assert.assertEquals(3L, server.getAttribute(new ObjectName(
+				"edu.nyu.cs:type=Metrics,name=\"output.queued\""), "Value"));
+		Assert.assertEquals(2.0, server.getAttribute(new ObjectName(
+				"edu.nyu.cs:type=Metrics,name=\"decode.sentence\""),
+				"MaxMillis"));
+		String[] lines = metrics.dump().split("\n");
+		Assert.assertEquals(3, lines.length);
+		Assert.assertEquals("corpus.tokens count=6", lines[0]);
+		Assert.assertTrue(lines[1].startsWith("decode.sentence count=1 "));
+		Assert.assertEquals("output.queued value=3", lines[2]);
+		try {
+			metrics.timer("corpus.tokens");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// a counter
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package edu.nyu.cs.pub;
+
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+/**
+ * Assertions shared by the tests of corpus readers and stores: two sources
+ * hold the same sentences when they print the same, in the same order.
+ *
+ * @author Daniel Wu
+ *
+ */
+final class SentenceAssert {
+
+	private SentenceAssert() {
+	}
+
+	static void assertSameSentences(Iterable<Sentence> expected,
+			Iterable<Sentence> actual) {
+		Iterator<Sentence> it = actual.iterator();
+		for (Sentence sentence : expected) {
+			Assert.assertTrue(it.hasNext());
+			Assert.assertEquals(sentence.toString(), it.next().toString());
+		}
+		Assert.assertFalse(it.hasNext());
+	}
+
+	static void assertSameSentences(List<Sentence> expected,
+			SentenceStore actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).toString(), actual.get(i)
+					.toString());
+		}
+	}
+}
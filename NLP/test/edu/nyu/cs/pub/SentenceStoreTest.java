@@ -0,0 +1,195 @@
+package edu.nyu.cs.pub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class SentenceStoreTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		List<Sentence> expected = FileManager.instance.read(new File(
+				trainingFile));
+		SentenceStore store = new SentenceStore();
+		store.addAll(expected);
+		SentenceAssert.assertSameSentences(expected, store);
+	}
+
+	@Test
+	public void testRoundTripOfEveryField() {
+		Sentence sentence = sentence("The", "old", "man");
+		Token token = sentence.getTokens().get(1);
+		token.setLiteral("OLD");
+		token.setEntityType("B-NP");
+		token.setPredictRelType("ARG1");
+		token.setSeqNo("7");
+		token.setSentIndex("3");
+		token.setOriginalRelType("ARG0");
+		sentence.setPolarity(Sentence.POSITIVE);
+		SentenceStore store = new SentenceStore();
+		store.add(new Sentence());
+		store.add(sentence);
+		Assert.assertEquals(sentence.toString(), store.get(1).toString());
+		Assert.assertEquals(Sentence.POSITIVE, store.get(1).getPolarity());
+		Assert.assertEquals(-1, store.get(0).getPolarity());
+	}
+
+	@Test
+	public void testSort() {
+		SentenceStore store = new SentenceStore();
+		store.add(unsorted());
+		Sentence sentence = unsorted();
+		sentence.sort();
+		store.add(sentence);
+		// indices are kept, whether tokens are in their order or not
+		List<Token> unsorted = store.get(0).getTokens();
+		Assert.assertEquals("w2", unsorted.get(0).getOriginWord());
+		Assert.assertEquals(2, unsorted.get(0).getIndex());
+		List<Token> sorted = store.get(1).getTokens();
+		for (int i = 0; i < sorted.size(); i++) {
+			Assert.assertEquals("w" + i, sorted.get(i).getOriginWord());
+			Assert.assertEquals(i, sorted.get(i).getIndex());
+		}
+		Sentence resorted = store.get(0);
+		resorted.sort();
+		Assert.assertEquals(store.get(1).toString(), resorted.toString());
+	}
+
+	@Test
+	public void testSizes() {
+		SentenceStore store = new SentenceStore();
+		Assert.assertEquals(0, store.size());
+		Assert.assertEquals(0, store.numberOfTokens());
+		// more than fit in initial columns
+		int count = 5000;
+		for (int i = 0; i < count; i++) {
+			store.add((i % 3 == 0) ? new Sentence() : sentence("a", "b"));
+		}
+		Assert.assertEquals(count, store.size());
+		Assert.assertEquals(2 * (count - (count + 2) / 3), store
+				.numberOfTokens());
+		int tokens = 0;
+		for (int i = 0; i < count; i++) {
+			Assert.assertEquals(tokens, store.begin(i));
+			Assert.assertEquals((i % 3 == 0) ? 0 : 2, store.end(i)
+					- store.begin(i));
+			Assert.assertEquals(store.end(i) - store.begin(i), store.get(i)
+					.length());
+			tokens = store.end(i);
+		}
+		// tokens of an open sentence count, the sentence does not
+		store.addToken(new String[] { "c", "NN" });
+		Assert.assertEquals(count, store.size());
+		Assert.assertEquals(tokens + 1, store.numberOfTokens());
+		store.endSentence();
+		Assert.assertEquals(count + 1, store.size());
+	}
+
+	@Test
+	public void testAddTokenAsBuilt() {
+		String[] fields = { "Man", " nn ", "B-NP" };
+		SentenceStore store = new SentenceStore();
+		store.addToken(fields);
+		store.endSentence();
+		Token expected = new Token.TokenBuilder(fields).build();
+		Assert.assertEquals(expected.toString(), store.get(0).getTokens()
+				.get(0).toString());
+		Assert.assertEquals("NN", store.getTag(0));
+	}
+
+	@Test
+	public void testViewsDoNotChangeStore() {
+		SentenceStore store = new SentenceStore();
+		store.add(sentence("old", "man"));
+		Sentence view = store.get(0);
+		view.getTokens().get(0).setTag("VB");
+		Assert.assertEquals("NN", store.get(0).getTokens().get(0)
+				.getPosTag());
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		List<Sentence> expected = FileManager.instance.read(new File(
+				trainingFile));
+		SentenceStore store = new SentenceStore();
+		store.addAll(expected);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		store.write(out);
+		out.close();
+		// into a store on another symbol table
+		SentenceStore read = new SentenceStore();
+		read.read(ByteBuffer.wrap(bytes.toByteArray()));
+		SentenceAssert.assertSameSentences(expected, read);
+	}
+
+	@Test
+	public void testAddAllStores() {
+		SymbolTable symbols = new SymbolTable();
+		SentenceStore store = new SentenceStore(symbols);
+		store.add(sentence("a"));
+		SentenceStore other = new SentenceStore(symbols);
+		other.add(sentence("b", "c"));
+		store.addAll(other);
+		Assert.assertEquals(2, store.size());
+		Assert.assertEquals(other.get(0).toString(), store.get(1).toString());
+		try {
+			store.addAll(new SentenceStore());
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// stores on other tables are added sentence by sentence
+		}
+	}
+
+	@Test
+	public void testCorpusSwitchesToList() throws Exception {
+		Corpus corpus = new Corpus(trainingFile, MappedFileReader.instance);
+		// iterated sentences are copies of the store
+		corpus.iterator().next().getTokens().get(0).setTag("XX");
+		Assert.assertFalse("XX".equals(corpus.iterator().next().getTokens()
+				.get(0).getPosTag()));
+		// once asked for as a list, the corpus holds the list
+		List<Sentence> sentences = corpus.getSentences();
+		sentences.get(0).getTokens().get(0).setTag("XX");
+		Assert.assertSame(sentences, corpus.getSentences());
+		Assert.assertSame(sentences.get(0), corpus.iterator().next());
+		Iterator<SentenceStore> batches = corpus.batches();
+		Assert.assertEquals("XX", batches.next().getTag(0));
+		Assert.assertFalse(batches.hasNext());
+	}
+
+	/**
+	 * @return sentence of words w2, w0, w1, indexed by their number
+	 */
+	private Sentence unsorted() {
+		Sentence res = new Sentence();
+		for (int index : new int[] { 2, 0, 1 }) {
+			Token.TokenBuilder builder = new Token.TokenBuilder(new String[] {
+					"w" + index, "NN" });
+			builder.setIndex(index);
+			res.addToken(builder.build());
+		}
+		return res;
+	}
+
+	/**
+	 * @return sentence of given words, tagged NN
+	 */
+	private Sentence sentence(String... words) {
+		Sentence res = new Sentence();
+		for (String word : words) {
+			res.addToken(new Token.TokenBuilder(new String[] { word, "NN" })
+					.build());
+		}
+		return res;
+	}
+}
@@ -0,0 +1,102 @@
+package edu.nyu.cs.pub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.nyu.cs.pos.EmissionMatrix;
+import edu.nyu.cs.pos.TransitionMatrix;
+
+public class StreamingCorpusTest {
+
+	private String trainingFile = "test/edu/nyu/cs/pos/training.pos";
+
+	// one sentence index per sentence, i.e. as many distinct values
+	private String relationFile = "resources/relation_extraction/%-training";
+
+	@Test
+	public void testSameAsCorpus() throws Exception {
+		Corpus expected = new Corpus(trainingFile, MappedFileReader.instance);
+		Corpus actual = new StreamingCorpus(trainingFile);
+		SentenceAssert.assertSameSentences(expected, actual);
+		// twice, each iteration reads again
+		SentenceAssert.assertSameSentences(expected, actual);
+		Assert.assertEquals(expected.getVocabulary(), actual.getVocabulary());
+		Assert.assertTrue(actual.containsWord("The"));
+	}
+
+	@Test
+	public void testSameMatrices() throws Exception {
+		Corpus expected = new Corpus(trainingFile, MappedFileReader.instance);
+		Corpus actual = new StreamingCorpus(trainingFile);
+		assertSameMatrix(new TransitionMatrix(expected), new TransitionMatrix(
+				actual));
+		Assert.assertEquals(new EmissionMatrix(expected).getItem("NN", "man"),
+				new EmissionMatrix(actual).getItem("NN", "man"));
+	}
+
+	@Test
+	public void testAddSentences() throws Exception {
+		Corpus expected = new Corpus(trainingFile, MappedFileReader.instance);
+		Corpus actual = new StreamingCorpus(trainingFile);
+		Sentence sentence = new Sentence();
+		sentence.addToken(new Token.TokenBuilder(new String[] { "Zyzzyva",
+				"NNP" }).build());
+		List<Sentence> added = new ArrayList<Sentence>();
+		added.add(sentence);
+		expected.addSentences(added);
+		actual.addSentences(added);
+		SentenceAssert.assertSameSentences(expected, actual);
+		Assert.assertTrue(actual.containsWord("zyzzyva"));
+		Assert.assertEquals(expected.vocabularySize(), actual.vocabularySize());
+	}
+
+	@Test
+	public void testMemoryFlatAcrossBatches() throws Exception {
+		int sentences = new Corpus(relationFile, MappedFileReader.instance)
+				.getSentences().size();
+		StreamingCorpus corpus = new StreamingCorpus(relationFile, 2000);
+		int batches = 0;
+		SymbolTable last = null;
+		Iterator<SentenceStore> it = corpus.batches();
+		while (it.hasNext()) {
+			SentenceStore batch = it.next();
+			batches++;
+			// a table per batch, holding values of that batch only
+			Assert.assertNotSame(last, batch.getSymbols());
+			Assert.assertTrue(batch.getSymbols().size() < sentences);
+			last = batch.getSymbols();
+		}
+		Assert.assertTrue(batches > 10);
+	}
+
+	@Test
+	public void testSameInSmallBatches() throws Exception {
+		Corpus expected = new Corpus(trainingFile, MappedFileReader.instance);
+		Corpus actual = new StreamingCorpus(trainingFile, 2000);
+		SentenceAssert.assertSameSentences(expected, actual);
+		assertSameMatrix(new TransitionMatrix(expected), new TransitionMatrix(
+				actual));
+		Assert.assertEquals(new EmissionMatrix(expected).getItem("NN", "man"),
+				new EmissionMatrix(actual).getItem("NN", "man"));
+		Assert.assertEquals(expected.getVocabulary(), actual.getVocabulary());
+	}
+
+	/**
+	 * Same rows of probabilities, whatever the order of their entries
+	 */
+	private void assertSameMatrix(Matrix expected, Matrix actual) {
+		Assert.assertEquals(new HashSet<String>(Arrays.asList(expected
+				.getKeys())), new HashSet<String>(Arrays.asList(actual
+				.getKeys())));
+		for (String row : expected.getKeys()) {
+			Assert.assertEquals(expected.getRow(row), actual.getRow(row));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package edu.nyu.cs.pos;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link MinPlusKernel} on the JDK Vector API.
+ * <p>
+ * States are processed a vector of lanes at a time: each previous state adds
+ * its cost to a contiguous slice of its transition row, and lanes where the
+ * sum is lower take it and the previous state. Comparisons are strict, so ties
+ * keep the first previous state as in {@link ScalarMinPlusKernel}, and sums
+ * are the same IEEE additions, so results are identical. Remaining states
+ * past the last full vector are done in a scalar loop.
+ * <p>
+ * Needs <code>--add-modules jdk.incubator.vector</code>, at compile and run
+ * time. Loaded by name from {@link MinPlusKernel#instance}.
+ *
+ * @author Daniel Wu
+ */
+class VectorMinPlusKernel extends MinPlusKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	// int lanes matching the double lanes one to one, for back pointers
+	private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(
+			int.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+	@Override
+	public void minPlus(double[] costs, int from, int[] states, int count,
+			double[] transition, int N, double[] out, int[] arg, int to) {
+		int upper = SPECIES.loopBound(N);
+		int s = 0;
+		for (; s < upper; s += SPECIES.length()) {
+			DoubleVector best = DoubleVector.broadcast(SPECIES,
+					Double.MAX_VALUE);
+			DoubleVector backtrack = DoubleVector.broadcast(SPECIES, -1);
+			for (int i = 0; i < count; i++) {
+				int s1 = states[i];
+				DoubleVector log = DoubleVector.fromArray(SPECIES, transition,
+						s1 * N + s).add(costs[from + s1]);
+				VectorMask<Double> lower = log.lt(best);
+				best = best.blend(log, lower);
+				backtrack = backtrack.blend(s1, lower);
+			}
+			best.intoArray(out, to + s);
+			backtrack.convertShape(VectorOperators.D2I, INT_SPECIES, 0)
+					.reinterpretAsInts().intoArray(arg, to + s);
+		}
+		for (; s < N; s++) {
+			double argmax = Double.MAX_VALUE;
+			int backtrackArg = -1;
+			for (int i = 0; i < count; i++) {
+				int s1 = states[i];
+				double log = costs[from + s1] + transition[s1 * N + s];
+				if (log < argmax) {
+					argmax = log;
+					backtrackArg = s1;
+				}
+			}
+			out[to + s] = argmax;
+			arg[to + s] = backtrackArg;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector(" + SPECIES.length() + " lanes)";
+	}
+}